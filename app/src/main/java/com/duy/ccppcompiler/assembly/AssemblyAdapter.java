@@ -0,0 +1,100 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.assembly;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.duy.ccppcompiler.R;
+
+public class AssemblyAdapter extends RecyclerView.Adapter<AssemblyAdapter.ViewHolder> {
+    @Nullable
+    private AssemblyListing mListing;
+    private int mHighlightedSourceLine = AssemblyListing.NO_SOURCE_LINE;
+    private final int mHighlightColor;
+    @Nullable
+    private AssemblyContract.Presenter mPresenter;
+
+    AssemblyAdapter(Context context) {
+        TypedArray a = context.obtainStyledAttributes(new int[]{R.attr.findResultsKeyword});
+        mHighlightColor = a.getColor(0, Color.YELLOW);
+        a.recycle();
+    }
+
+    void setPresenter(@Nullable AssemblyContract.Presenter presenter) {
+        mPresenter = presenter;
+    }
+
+    void setListing(@Nullable AssemblyListing listing) {
+        mListing = listing;
+        notifyDataSetChanged();
+    }
+
+    void setHighlightedSourceLine(int sourceLine) {
+        if (mHighlightedSourceLine != sourceLine) {
+            mHighlightedSourceLine = sourceLine;
+            notifyDataSetChanged();
+        }
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.list_item_assembly, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        //noinspection ConstantConditions, there are no items without listing
+        final int sourceLine = mListing.getSourceLine(position);
+        holder.txtAssembly.setText(mListing.getLine(position));
+        boolean highlighted = sourceLine != AssemblyListing.NO_SOURCE_LINE
+                && sourceLine == mHighlightedSourceLine;
+        holder.txtAssembly.setBackgroundColor(highlighted ? mHighlightColor : Color.TRANSPARENT);
+        holder.txtAssembly.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                if (mPresenter != null && sourceLine != AssemblyListing.NO_SOURCE_LINE) {
+                    mPresenter.onAssemblyLineClick(sourceLine);
+                }
+            }
+        });
+    }
+
+    @Override
+    public int getItemCount() {
+        return mListing != null ? mListing.size() : 0;
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        TextView txtAssembly;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            txtAssembly = itemView.findViewById(R.id.txt_assembly);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.assembly;
+
+import android.support.annotation.MainThread;
+
+public class AssemblyContract {
+    public interface View {
+        void showListing(AssemblyListing listing);
+
+        /**
+         * Shown instead of the listing, e.g. while the listing is generated or when it failed
+         */
+        void showMessage(CharSequence message);
+
+        /**
+         * Highlight the assembly generated from a line of the source and scroll to it
+         *
+         * @param sourceLine - line number starting at 1
+         */
+        void highlightSourceLine(int sourceLine);
+
+        void setPresenter(Presenter presenter);
+    }
+
+    public interface Presenter {
+        @MainThread
+        void onAssemblyLineClick(int sourceLine);
+    }
+}
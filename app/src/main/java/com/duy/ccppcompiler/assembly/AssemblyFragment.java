@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.assembly;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.duy.ccppcompiler.R;
+
+/**
+ * Shows the assembly of the current source in the bottom panel, in place of the diagnostics.
+ * The presenter may call this view before it is created, the state is applied in
+ * {@link #onViewCreated(View, Bundle)}
+ */
+
+public class AssemblyFragment extends Fragment implements AssemblyContract.View {
+    private RecyclerView mRecyclerView;
+    private TextView mTxtMessage;
+    private AssemblyAdapter mAdapter;
+    private LinearLayoutManager mLayoutManager;
+    @Nullable
+    private AssemblyContract.Presenter mPresenter;
+    @Nullable
+    private AssemblyListing mListing;
+    @Nullable
+    private CharSequence mMessage;
+    private int mHighlightedSourceLine = AssemblyListing.NO_SOURCE_LINE;
+
+    public static AssemblyFragment newInstance() {
+
+        Bundle args = new Bundle();
+
+        AssemblyFragment fragment = new AssemblyFragment();
+        fragment.setArguments(args);
+        return fragment;
+    }
+
+    @Nullable
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
+        return inflater.inflate(R.layout.fragment_assembly, container, false);
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        mTxtMessage = view.findViewById(R.id.txt_message);
+        mRecyclerView = view.findViewById(R.id.assembly_list_view);
+        mLayoutManager = new LinearLayoutManager(getContext());
+        mRecyclerView.setLayoutManager(mLayoutManager);
+        mAdapter = new AssemblyAdapter(getContext());
+        mAdapter.setPresenter(mPresenter);
+        mRecyclerView.setAdapter(mAdapter);
+        if (mMessage != null) {
+            showMessage(mMessage);
+        } else if (mListing != null) {
+            showListing(mListing);
+        }
+    }
+
+    @Override
+    public void showListing(AssemblyListing listing) {
+        mListing = listing;
+        mMessage = null;
+        if (mAdapter == null) {
+            return;
+        }
+        mTxtMessage.setVisibility(View.GONE);
+        mAdapter.setListing(listing);
+        highlightSourceLine(mHighlightedSourceLine);
+    }
+
+    @Override
+    public void showMessage(CharSequence message) {
+        mMessage = message;
+        if (mAdapter == null) {
+            return;
+        }
+        mTxtMessage.setText(message);
+        mTxtMessage.setVisibility(View.VISIBLE);
+    }
+
+    @Override
+    public void highlightSourceLine(int sourceLine) {
+        mHighlightedSourceLine = sourceLine;
+        if (mAdapter == null) {
+            return;
+        }
+        mAdapter.setHighlightedSourceLine(sourceLine);
+        int index = mListing != null ? mListing.indexOfSourceLine(sourceLine) : -1;
+        if (index >= 0) {
+            mLayoutManager.scrollToPositionWithOffset(index, 0);
+        }
+    }
+
+    @Override
+    public void setPresenter(AssemblyContract.Presenter presenter) {
+        mPresenter = presenter;
+        if (mAdapter != null) {
+            mAdapter.setPresenter(presenter);
+        }
+    }
+}
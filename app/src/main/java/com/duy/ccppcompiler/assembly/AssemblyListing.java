@@ -0,0 +1,164 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.assembly;
+
+import android.support.annotation.NonNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Assembly written by gcc -S -g, reduced to the lines worth reading: instructions, labels of
+ * functions and jump targets and data. Debug sections, other directives and comment lines are
+ * dropped.
+ * <p>
+ * Every line is mapped to the line of the source it was generated from by the .loc directives.
+ * Code inlined from other files has no source line.
+ */
+
+public class AssemblyListing {
+    public static final int NO_SOURCE_LINE = -1;
+
+    private static final Pattern FILE_PATTERN = Pattern.compile("^\\s*\\.file\\s+(\\d+)\\s+\"(.*)\"");
+    private static final Pattern LOC_PATTERN = Pattern.compile("^\\s*\\.loc\\s+(\\d+)\\s+(\\d+)");
+    private static final Pattern LABEL_PATTERN = Pattern.compile("^([.\\w$]+):");
+    /**
+     * Labels of jump targets (.L5) and constants (.LC0), other local labels are only used by
+     * the debug information
+     */
+    private static final Pattern USEFUL_LOCAL_LABEL_PATTERN = Pattern.compile("^\\.LC?\\d+$");
+    private static final Pattern SECTION_PATTERN = Pattern.compile("^\\s*\\.(section\\s+([^\\s,]+)|text|data|bss)\\b");
+    private static final String[] DATA_DIRECTIVES = {
+            ".ascii", ".asciz", ".string", ".byte", ".short", ".hword", ".word", ".long",
+            ".quad", ".float", ".double", ".space", ".zero"};
+
+    private final List<String> mLines = new ArrayList<>();
+    private final List<Integer> mSourceLines = new ArrayList<>();
+
+    private AssemblyListing() {
+    }
+
+    /**
+     * @param sourcePath - path of the compiled source as written by the #line directive, lines
+     *                   of other files are not mapped
+     */
+    @NonNull
+    public static AssemblyListing parse(Reader reader, String sourcePath) throws IOException {
+        AssemblyListing listing = new AssemblyListing();
+        BufferedReader bufferedReader = new BufferedReader(reader);
+        try {
+            //the main file is usually number 1, unless it is declared with its path
+            int sourceFile = 1;
+            boolean sourceFileDeclared = false;
+            int currentFile = -1;
+            int currentLine = NO_SOURCE_LINE;
+            boolean debugSection = false;
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                Matcher matcher = SECTION_PATTERN.matcher(line);
+                if (matcher.find()) {
+                    debugSection = matcher.group(2) != null && matcher.group(2).startsWith(".debug");
+                    continue;
+                }
+                if (debugSection) {
+                    continue;
+                }
+                matcher = FILE_PATTERN.matcher(line);
+                if (matcher.find()) {
+                    if (!sourceFileDeclared && matcher.group(2).equals(sourcePath)) {
+                        sourceFile = Integer.parseInt(matcher.group(1));
+                        sourceFileDeclared = true;
+                    }
+                    continue;
+                }
+                matcher = LOC_PATTERN.matcher(line);
+                if (matcher.find()) {
+                    currentFile = Integer.parseInt(matcher.group(1));
+                    currentLine = Integer.parseInt(matcher.group(2));
+                    continue;
+                }
+
+                String text = line.trim();
+                if (text.isEmpty() || text.startsWith("@") || text.startsWith("#")
+                        || text.startsWith("//")) {
+                    continue;
+                }
+                matcher = LABEL_PATTERN.matcher(text);
+                if (matcher.find()) {
+                    String label = matcher.group(1);
+                    if (label.startsWith(".L") && !USEFUL_LOCAL_LABEL_PATTERN.matcher(label).matches()) {
+                        continue;
+                    }
+                    listing.add(label + ":", NO_SOURCE_LINE);
+                    continue;
+                }
+                if (text.startsWith(".") && !isDataDirective(text)) {
+                    continue;
+                }
+                int source = currentFile == sourceFile ? currentLine : NO_SOURCE_LINE;
+                listing.add("  " + text.replace('\t', ' '), source);
+            }
+        } finally {
+            bufferedReader.close();
+        }
+        return listing;
+    }
+
+    private static boolean isDataDirective(String text) {
+        for (String directive : DATA_DIRECTIVES) {
+            if (text.startsWith(directive)
+                    && (text.length() == directive.length() || Character.isWhitespace(text.charAt(directive.length())))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void add(String line, int sourceLine) {
+        mLines.add(line);
+        mSourceLines.add(sourceLine);
+    }
+
+    public int size() {
+        return mLines.size();
+    }
+
+    public String getLine(int index) {
+        return mLines.get(index);
+    }
+
+    /**
+     * @return line number of the source starting at 1, {@link #NO_SOURCE_LINE} if the line
+     * doesn't belong to a line of the source
+     */
+    public int getSourceLine(int index) {
+        return mSourceLines.get(index);
+    }
+
+    /**
+     * @return index of the first line generated from the given source line, -1 if the source
+     * line generated no code
+     */
+    public int indexOfSourceLine(int sourceLine) {
+        return mSourceLines.indexOf(sourceLine);
+    }
+}
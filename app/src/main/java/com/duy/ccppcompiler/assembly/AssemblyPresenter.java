@@ -0,0 +1,254 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.assembly;
+
+import android.content.Context;
+import android.core.widget.EditAreaView;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.MainThread;
+import android.support.annotation.Nullable;
+import android.text.Editable;
+import android.text.TextWatcher;
+
+import com.duy.ccppcompiler.R;
+import com.duy.ccppcompiler.compiler.GCCCompiler;
+import com.duy.ccppcompiler.compiler.GPlusPlusCompiler;
+import com.duy.common.DLog;
+import com.duy.ide.compiler.CompileScheduler;
+import com.duy.ide.compiler.shell.ProcessSupervisor;
+import com.duy.ide.compiler.shell.ShellResult;
+import com.jecelyin.editor.v2.Preferences;
+import com.jecelyin.editor.v2.common.Command;
+import com.jecelyin.editor.v2.ui.editor.EditorDelegate;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * Keeps the assembly view in sync with one editor. The listing is generated when the editor is
+ * attached and again after typing pauses, moving the cursor only changes the highlighted lines.
+ * <p>
+ * Like syntax checks, generating runs as a background check of {@link CompileScheduler}, so it
+ * never competes with a build.
+ */
+
+public class AssemblyPresenter implements AssemblyContract.Presenter, TextWatcher,
+        EditAreaView.OnSelectionChangedListener {
+    private static final String TAG = "AssemblyPresenter";
+    /**
+     * Time without any edit before the listing is generated again
+     */
+    private static final long DEBOUNCE_DELAY = 1500;
+
+    private final Context mContext;
+    private final AssemblyContract.View mView;
+    private final CompileScheduler mScheduler;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    @Nullable
+    private EditorDelegate mEditorDelegate;
+    @Nullable
+    private AssemblyTask mRunningTask;
+
+    private final Runnable mGenerateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            generate();
+        }
+    };
+
+    public AssemblyPresenter(AssemblyContract.View view, Context context, CompileScheduler scheduler) {
+        mContext = context;
+        mView = view;
+        mScheduler = scheduler;
+        mView.setPresenter(this);
+    }
+
+    /**
+     * Show the assembly of the source of this editor, the previous editor is detached
+     */
+    @MainThread
+    public void attach(@Nullable EditorDelegate editorDelegate) {
+        detach();
+        if (editorDelegate == null || editorDelegate.getEditText() == null) {
+            mView.showMessage(mContext.getString(R.string.assembly_not_source));
+            return;
+        }
+        mEditorDelegate = editorDelegate;
+        EditAreaView editText = editorDelegate.getEditText();
+        editText.addTextChangedListener(this);
+        editText.setOnSelectionChangedListener(this);
+        //the old listing stays visible while the listing of an edit is generated
+        mView.showMessage(mContext.getString(R.string.assembly_generating));
+        generate();
+    }
+
+    @MainThread
+    public void detach() {
+        mHandler.removeCallbacks(mGenerateRunnable);
+        if (mRunningTask != null) {
+            mRunningTask.abort();
+            mRunningTask = null;
+        }
+        if (mEditorDelegate != null && mEditorDelegate.getEditText() != null) {
+            mEditorDelegate.getEditText().removeTextChangedListener(this);
+            mEditorDelegate.getEditText().setOnSelectionChangedListener(null);
+        }
+        mEditorDelegate = null;
+    }
+
+    @Nullable
+    private GCCCompiler createCompiler(File sourceFile) {
+        String name = sourceFile.getName().toLowerCase();
+        if (name.endsWith(".c")) {
+            return new GCCCompiler(mContext);
+        } else if (name.endsWith(".cpp") || name.endsWith(".cc") || name.endsWith(".cxx")) {
+            return new GPlusPlusCompiler(mContext);
+        }
+        return null;
+    }
+
+    private void generate() {
+        if (mEditorDelegate == null) {
+            return;
+        }
+        File sourceFile = new File(mEditorDelegate.getPath());
+        GCCCompiler compiler = createCompiler(sourceFile);
+        if (compiler == null) {
+            mView.showMessage(mContext.getString(R.string.assembly_not_source));
+            return;
+        }
+        if (mRunningTask != null) {
+            mRunningTask.abort();
+            mRunningTask = null;
+        }
+        Preferences preferences = Preferences.getInstance(mContext);
+        ProcessSupervisor supervisor = mScheduler.startBackgroundCheck(
+                preferences.getCompileTimeout(), preferences.getCompileMemoryLimit());
+        if (supervisor == null) {
+            //a build is running, try again when it is finished
+            mHandler.postDelayed(mGenerateRunnable, DEBOUNCE_DELAY);
+            return;
+        }
+        //take the snapshot on the main thread, the editor can't change while it is copied
+        mRunningTask = new AssemblyTask(compiler, sourceFile, mEditorDelegate.getText(), supervisor);
+        mRunningTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    @Override
+    public void onAssemblyLineClick(int sourceLine) {
+        if (mEditorDelegate != null) {
+            Command command = new Command(Command.CommandEnum.GOTO_INDEX);
+            command.args.putInt("line", sourceLine);
+            command.args.putInt("col", -1);
+            mEditorDelegate.doCommand(command);
+        }
+    }
+
+    /**
+     * Called for every typed character, the line is looked up in the line index of the document
+     * instead of counting line breaks
+     */
+    @Override
+    public void onSelectionChanged(int selStart, int selEnd) {
+        if (mEditorDelegate != null && mEditorDelegate.getDocument() != null) {
+            mView.highlightSourceLine(mEditorDelegate.getDocument().getRealLine(selStart));
+        }
+    }
+
+    @Override
+    public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+
+    }
+
+    @Override
+    public void onTextChanged(CharSequence s, int start, int before, int count) {
+
+    }
+
+    @Override
+    public void afterTextChanged(Editable s) {
+        mHandler.removeCallbacks(mGenerateRunnable);
+        mHandler.postDelayed(mGenerateRunnable, DEBOUNCE_DELAY);
+    }
+
+    private class AssemblyTask extends AsyncTask<Void, Void, Object> {
+        private final GCCCompiler mCompiler;
+        private final File mSourceFile;
+        private final String mSnapshot;
+        private final ProcessSupervisor mSupervisor;
+
+        AssemblyTask(GCCCompiler compiler, File sourceFile, String snapshot, ProcessSupervisor supervisor) {
+            mCompiler = compiler;
+            mSourceFile = sourceFile;
+            mSnapshot = snapshot;
+            mSupervisor = supervisor;
+        }
+
+        void abort() {
+            mSupervisor.cancel();
+        }
+
+        /**
+         * @return the listing, or the compiler output if it failed
+         */
+        @Override
+        protected Object doInBackground(Void... voids) {
+            try {
+                ShellResult result = mCompiler.generateAssembly(mSourceFile, mSnapshot, mSupervisor);
+                if (DLog.DEBUG)
+                    DLog.d(TAG, "generateAssembly: " + mSourceFile + " finished in " + result.getTime() + "ms");
+                if (mSupervisor.isAborted()) {
+                    result.release();
+                    return null;
+                }
+                if (result.getResultCode() != 0) {
+                    String message = result.getMessage();
+                    result.release();
+                    return message;
+                }
+                File assemblyFile = mCompiler.getAssemblyFile(mSourceFile, mSnapshot);
+                return AssemblyListing.parse(new FileReader(assemblyFile), mSourceFile.getAbsolutePath());
+            } catch (IOException e) {
+                e.printStackTrace();
+                return e.getMessage();
+            } finally {
+                mScheduler.finishBackgroundCheck(mSupervisor);
+            }
+        }
+
+        @Override
+        protected void onPostExecute(Object result) {
+            super.onPostExecute(result);
+            if (mRunningTask != this) {
+                //outdated, the content was changed again
+                return;
+            }
+            mRunningTask = null;
+            if (result instanceof AssemblyListing) {
+                mView.showListing((AssemblyListing) result);
+                if (mEditorDelegate != null) {
+                    onSelectionChanged(mEditorDelegate.getCursorOffset(), mEditorDelegate.getCursorOffset());
+                }
+            } else if (result != null) {
+                mView.showMessage(mContext.getString(R.string.assembly_failed, result));
+            }
+        }
+    }
+}
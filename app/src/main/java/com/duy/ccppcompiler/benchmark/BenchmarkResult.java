@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.benchmark;
+
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measured runs of a benchmark, warmup runs are not included
+ */
+
+public class BenchmarkResult {
+    private final List<RunStats> mRuns = new ArrayList<>();
+    private final int mWarmupRuns;
+    @Nullable
+    private String mError;
+
+    public BenchmarkResult(int warmupRuns) {
+        mWarmupRuns = warmupRuns;
+    }
+
+    public void addRun(RunStats run) {
+        mRuns.add(run);
+    }
+
+    public List<RunStats> getRuns() {
+        return mRuns;
+    }
+
+    /**
+     * @return why the benchmark stopped before all runs finished, null if it completed
+     */
+    @Nullable
+    public String getError() {
+        return mError;
+    }
+
+    public void setError(@Nullable String error) {
+        mError = error;
+    }
+
+    public Statistics getWallTime() {
+        double[] values = new double[mRuns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = mRuns.get(i).getWallTimeNanos() / 1e6;
+        }
+        return new Statistics(values);
+    }
+
+    public Statistics getUserTime() {
+        double[] values = new double[mRuns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = mRuns.get(i).getUserTimeMillis();
+        }
+        return new Statistics(values);
+    }
+
+    public Statistics getSystemTime() {
+        double[] values = new double[mRuns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = mRuns.get(i).getSystemTimeMillis();
+        }
+        return new Statistics(values);
+    }
+
+    public Statistics getPeakMemory() {
+        double[] values = new double[mRuns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.max(0, mRuns.get(i).getPeakMemory()) / 1024.0;
+        }
+        return new Statistics(values);
+    }
+
+    /**
+     * @return a table of min, median, p95 and standard deviation, meant for a monospace font
+     */
+    public String format() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.US, "Runs: %d, warmup: %d%n%n", mRuns.size(), mWarmupRuns));
+        builder.append(String.format(Locale.US, "%-10s %9s %9s %9s %9s%n", "", "min", "median", "p95", "stddev"));
+        appendRow(builder, "Wall ms", getWallTime());
+        appendRow(builder, "User ms", getUserTime());
+        appendRow(builder, "Sys ms", getSystemTime());
+        appendRow(builder, "RSS KB", getPeakMemory());
+        if (mError != null) {
+            builder.append(String.format(Locale.US, "%n%s%n", mError));
+        }
+        return builder.toString();
+    }
+
+    private static void appendRow(StringBuilder builder, String name, Statistics statistics) {
+        builder.append(String.format(Locale.US, "%-10s %9.2f %9.2f %9.2f %9.2f%n", name,
+                statistics.getMin(), statistics.getMedian(), statistics.getPercentile(95),
+                statistics.getStandardDeviation()));
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.benchmark;
+
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import com.duy.ide.compiler.shell.ProcessTree;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Run a binary without a terminal and measure it. The output is discarded, so the time spent
+ * to render it doesn't disturb the measurement. Peak memory is sampled from /proc/[pid] while
+ * the process runs, because the process is reaped as soon as it exits. The cpu time is taken
+ * from the times of the reaped children of this process, a sample misses the last slice.
+ */
+
+public class BenchmarkRunner {
+    /**
+     * Cpu times in /proc have a resolution of 10 ms, sampling more often only steals cpu from
+     * the measured process
+     */
+    private static final long SAMPLE_INTERVAL = 10;
+
+    private final Map<String, String> mEnvironment;
+    private final File mWorkingDir;
+    @Nullable
+    private volatile Process mProcess;
+    private volatile boolean mCancelled = false;
+
+    public BenchmarkRunner(Map<String, String> environment, File workingDir) {
+        mEnvironment = environment;
+        mWorkingDir = workingDir;
+    }
+
+    /**
+     * Kill the running process and its children, no new process is started afterwards
+     */
+    public void cancel() {
+        mCancelled = true;
+        Process process = mProcess;
+        if (process != null) {
+            kill(process);
+        }
+    }
+
+    private static void kill(Process process) {
+        int pid = ProcessTree.getPid(process);
+        if (pid > 0) {
+            ProcessTree.kill(pid);
+        }
+        process.destroy();
+    }
+
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Run the binary once
+     *
+     * @param input - content of standard input, null for empty input
+     */
+    @WorkerThread
+    public RunStats run(File binary, @Nullable File input) throws IOException, InterruptedException {
+        ProcessBuilder builder = new ProcessBuilder(binary.getAbsolutePath());
+        builder.directory(mWorkingDir);
+        builder.environment().putAll(mEnvironment);
+        builder.redirectErrorStream(true);
+
+        long[] reapedBefore = ProcessTree.getReapedChildrenCpuTime();
+        long start = System.nanoTime();
+        Process process = builder.start();
+        mProcess = process;
+        if (mCancelled) {
+            kill(process);
+        }
+        InputWriter inputWriter = new InputWriter(process.getOutputStream(), input);
+        inputWriter.start();
+        OutputDrainer outputDrainer = new OutputDrainer(process.getInputStream());
+        outputDrainer.start();
+        Sampler sampler = new Sampler(ProcessTree.getPid(process));
+        sampler.start();
+        try {
+            int exitCode = process.waitFor();
+            long wallTime = System.nanoTime() - start;
+            sampler.finish();
+            sampler.join();
+            outputDrainer.join();
+            long userTime = sampler.mUserTime;
+            long systemTime = sampler.mSystemTime;
+            long[] reapedAfter = ProcessTree.getReapedChildrenCpuTime();
+            if (reapedBefore != null && reapedAfter != null) {
+                //waitFor returns after the process was reaped. The difference also counts the
+                //children of the process, and any other child reaped meanwhile
+                userTime = Math.max(userTime, reapedAfter[0] - reapedBefore[0]);
+                systemTime = Math.max(systemTime, reapedAfter[1] - reapedBefore[1]);
+            }
+            return new RunStats(wallTime, userTime, systemTime, sampler.mPeakMemory, exitCode);
+        } finally {
+            sampler.finish();
+            inputWriter.interrupt();
+            process.destroy();
+            mProcess = null;
+        }
+    }
+
+    /**
+     * Reads the cpu times and the peak memory of the process until it exits. The cpu times are
+     * only used if the times of the reaped children can't be read
+     */
+    private static class Sampler extends Thread {
+        private final int mPid;
+        private volatile boolean mFinished = false;
+        private volatile long mUserTime = 0;
+        private volatile long mSystemTime = 0;
+        private volatile long mPeakMemory = -1;
+
+        Sampler(int pid) {
+            super("BenchmarkSampler");
+            mPid = pid;
+        }
+
+        void finish() {
+            mFinished = true;
+            interrupt();
+        }
+
+        @Override
+        public void run() {
+            if (mPid <= 0) {
+                return;
+            }
+            while (!mFinished) {
+                long[] cpuTime = ProcessTree.getCpuTime(mPid);
+                if (cpuTime == null) {
+                    //reaped, keep the last sample
+                    return;
+                }
+                mUserTime = cpuTime[0];
+                mSystemTime = cpuTime[1];
+                //a zombie still has its cpu times but no memory anymore
+                long peakMemory = ProcessTree.getPeakResidentMemory(mPid);
+                if (peakMemory >= 0) {
+                    mPeakMemory = peakMemory;
+                }
+                try {
+                    Thread.sleep(SAMPLE_INTERVAL);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static class InputWriter extends Thread {
+        private final OutputStream mOutputStream;
+        @Nullable
+        private final File mInput;
+
+        InputWriter(OutputStream outputStream, @Nullable File input) {
+            super("BenchmarkInput");
+            mOutputStream = outputStream;
+            mInput = input;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (mInput != null) {
+                    InputStream inputStream = new FileInputStream(mInput);
+                    try {
+                        byte[] buffer = new byte[8192];
+                        int count;
+                        while (!isInterrupted() && (count = inputStream.read(buffer)) > 0) {
+                            mOutputStream.write(buffer, 0, count);
+                        }
+                    } finally {
+                        inputStream.close();
+                    }
+                }
+            } catch (IOException e) {
+                //the process exited without reading the whole input
+            } finally {
+                try {
+                    mOutputStream.close();
+                } catch (IOException e) {
+                    //already closed
+                }
+            }
+        }
+    }
+
+    private static class OutputDrainer extends Thread {
+        private final InputStream mInputStream;
+
+        OutputDrainer(InputStream inputStream) {
+            super("BenchmarkOutput");
+            mInputStream = inputStream;
+        }
+
+        @Override
+        public void run() {
+            byte[] buffer = new byte[8192];
+            try {
+                while (mInputStream.read(buffer) >= 0) {
+                    //discard
+                }
+            } catch (IOException e) {
+                //the process was killed
+            } finally {
+                try {
+                    mInputStream.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.benchmark;
+
+import android.app.Activity;
+import android.app.ProgressDialog;
+import android.content.DialogInterface;
+import android.graphics.Typeface;
+import android.os.AsyncTask;
+import android.support.annotation.Nullable;
+import android.support.v7.app.AlertDialog;
+import android.widget.TextView;
+
+import com.duy.ccppcompiler.R;
+import com.duy.ccppcompiler.console.services.BackgroundJob;
+import com.duy.ccppcompiler.console.services.EnvironmentVariable;
+import com.duy.common.DLog;
+import com.jecelyin.editor.v2.Preferences;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Run the compiled binary several times in background and show a summary of the measurements.
+ * The number of runs, warmup runs and the input file are read from settings.
+ */
+
+public class BenchmarkTask extends AsyncTask<Void, Integer, BenchmarkResult> {
+    private static final String TAG = "BenchmarkTask";
+    private final Activity mActivity;
+    private final File mBinary;
+    private final int mRuns;
+    private final int mWarmupRuns;
+    @Nullable
+    private final File mInput;
+    private final BenchmarkRunner mRunner;
+    private ProgressDialog mProgressDialog;
+
+    public BenchmarkTask(Activity activity, File binary) {
+        mActivity = activity;
+        mBinary = binary;
+        Preferences preferences = Preferences.getInstance(activity);
+        mRuns = Math.max(1, preferences.getBenchmarkRuns());
+        mWarmupRuns = Math.max(0, preferences.getBenchmarkWarmupRuns());
+        String input = preferences.getBenchmarkInput();
+        mInput = input == null || input.trim().isEmpty() ? null : new File(input.trim());
+
+        String workingDir = EnvironmentVariable.getHomePath(activity);
+        Map<String, String> environment = BackgroundJob.buildEnvironmentMap(false, workingDir, activity);
+        mRunner = new BenchmarkRunner(environment, new File(workingDir));
+    }
+
+    @Override
+    protected void onPreExecute() {
+        super.onPreExecute();
+        mProgressDialog = new ProgressDialog(mActivity);
+        mProgressDialog.setTitle(R.string.benchmark);
+        mProgressDialog.setMessage(mActivity.getString(R.string.benchmark_progress, 1, mWarmupRuns + mRuns));
+        mProgressDialog.setCancelable(false);
+        mProgressDialog.setButton(DialogInterface.BUTTON_NEGATIVE, mActivity.getString(R.string.abort),
+                new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        mRunner.cancel();
+                    }
+                });
+        mProgressDialog.show();
+    }
+
+    @Override
+    protected BenchmarkResult doInBackground(Void... voids) {
+        BenchmarkResult result = new BenchmarkResult(mWarmupRuns);
+        if (mInput != null && !mInput.isFile()) {
+            result.setError(mActivity.getString(R.string.benchmark_input_not_found, mInput.getPath()));
+            return result;
+        }
+        int total = mWarmupRuns + mRuns;
+        for (int i = 0; i < total && !mRunner.isCancelled(); i++) {
+            publishProgress(i + 1, total);
+            try {
+                RunStats run = mRunner.run(mBinary, mInput);
+                if (DLog.DEBUG) DLog.d(TAG, "run " + (i + 1) + ": " + run);
+                if (mRunner.isCancelled()) {
+                    break;
+                }
+                if (run.getExitCode() != 0) {
+                    result.setError(mActivity.getString(R.string.benchmark_run_failed, i + 1, run.getExitCode()));
+                    break;
+                }
+                if (i >= mWarmupRuns) {
+                    result.addRun(run);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+                result.setError(e.toString());
+                break;
+            }
+        }
+        if (mRunner.isCancelled() && result.getError() == null) {
+            result.setError(mActivity.getString(R.string.benchmark_cancelled));
+        }
+        return result;
+    }
+
+    @Override
+    protected void onProgressUpdate(Integer... values) {
+        super.onProgressUpdate(values);
+        mProgressDialog.setMessage(mActivity.getString(R.string.benchmark_progress, values[0], values[1]));
+    }
+
+    @Override
+    protected void onPostExecute(BenchmarkResult result) {
+        super.onPostExecute(result);
+        if (mActivity.isFinishing()) {
+            return;
+        }
+        mProgressDialog.dismiss();
+
+        TextView textView = new TextView(mActivity);
+        int padding = (int) (16 * mActivity.getResources().getDisplayMetrics().density);
+        textView.setPadding(padding, padding, padding, padding);
+        textView.setTypeface(Typeface.MONOSPACE);
+        textView.setTextIsSelectable(true);
+        textView.setText(result.format());
+        new AlertDialog.Builder(mActivity)
+                .setTitle(R.string.benchmark)
+                .setView(textView)
+                .setPositiveButton(R.string.close, null)
+                .show();
+    }
+
+    /**
+     * Stop the benchmark, called when the activity is destroyed
+     */
+    public void cancel() {
+        mRunner.cancel();
+        cancel(false);
+        if (mProgressDialog != null && mProgressDialog.isShowing()) {
+            mProgressDialog.dismiss();
+        }
+    }
+}
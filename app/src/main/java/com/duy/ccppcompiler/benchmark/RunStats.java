@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.benchmark;
+
+/**
+ * Measurements of one execution of the benchmarked binary
+ */
+
+public class RunStats {
+    private final long mWallTimeNanos;
+    private final long mUserTimeMillis;
+    private final long mSystemTimeMillis;
+    private final long mPeakMemory;
+    private final int mExitCode;
+
+    public RunStats(long wallTimeNanos, long userTimeMillis, long systemTimeMillis, long peakMemory,
+                    int exitCode) {
+        mWallTimeNanos = wallTimeNanos;
+        mUserTimeMillis = userTimeMillis;
+        mSystemTimeMillis = systemTimeMillis;
+        mPeakMemory = peakMemory;
+        mExitCode = exitCode;
+    }
+
+    public long getWallTimeNanos() {
+        return mWallTimeNanos;
+    }
+
+    public long getUserTimeMillis() {
+        return mUserTimeMillis;
+    }
+
+    public long getSystemTimeMillis() {
+        return mSystemTimeMillis;
+    }
+
+    /**
+     * @return peak resident set size in bytes, -1 if the process exited before it was sampled
+     */
+    public long getPeakMemory() {
+        return mPeakMemory;
+    }
+
+    public int getExitCode() {
+        return mExitCode;
+    }
+
+    @Override
+    public String toString() {
+        return "RunStats{" +
+                "wallTimeNanos=" + mWallTimeNanos +
+                ", userTimeMillis=" + mUserTimeMillis +
+                ", systemTimeMillis=" + mSystemTimeMillis +
+                ", peakMemory=" + mPeakMemory +
+                ", exitCode=" + mExitCode +
+                '}';
+    }
+}
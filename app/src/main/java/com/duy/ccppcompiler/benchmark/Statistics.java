@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Summary of repeated measurements of one quantity
+ */
+
+public class Statistics {
+    private final double[] mSorted;
+
+    public Statistics(double[] values) {
+        mSorted = values.clone();
+        Arrays.sort(mSorted);
+    }
+
+    public int getCount() {
+        return mSorted.length;
+    }
+
+    public double getMin() {
+        return mSorted.length == 0 ? 0 : mSorted[0];
+    }
+
+    public double getMax() {
+        return mSorted.length == 0 ? 0 : mSorted[mSorted.length - 1];
+    }
+
+    public double getMedian() {
+        int n = mSorted.length;
+        if (n == 0) {
+            return 0;
+        }
+        return n % 2 == 1 ? mSorted[n / 2] : (mSorted[n / 2 - 1] + mSorted[n / 2]) / 2;
+    }
+
+    /**
+     * Nearest rank percentile, the value is always one of the measurements
+     *
+     * @param percent - in range (0, 100]
+     */
+    public double getPercentile(double percent) {
+        int n = mSorted.length;
+        if (n == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percent / 100 * n);
+        return mSorted[Math.max(0, Math.min(n, rank) - 1)];
+    }
+
+    public double getMean() {
+        if (mSorted.length == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (double value : mSorted) {
+            sum += value;
+        }
+        return sum / mSorted.length;
+    }
+
+    /**
+     * @return sample standard deviation, 0 for less than two measurements
+     */
+    public double getStandardDeviation() {
+        int n = mSorted.length;
+        if (n < 2) {
+            return 0;
+        }
+        double mean = getMean();
+        double sum = 0;
+        for (double value : mSorted) {
+            sum += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(sum / (n - 1));
+    }
+}
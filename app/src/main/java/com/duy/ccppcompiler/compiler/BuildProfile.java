@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.compiler;
+
+import android.content.Context;
+
+import com.duy.ccppcompiler.R;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Optimization settings of a build, selected in settings. The order of constants must match
+ * {@code R.array.build_profiles}. No profile defines NDEBUG, assert() is checked in every
+ * profile
+ */
+public enum BuildProfile {
+    /**
+     * Fast to compile and easy to debug, the default
+     */
+    DEBUG("debug",
+            new String[]{"-Og"},
+            new String[]{}),
+    /**
+     * Optimized code, used to measure the speed of an algorithm
+     */
+    RELEASE("release",
+            new String[]{"-O2"},
+            new String[]{}),
+    /**
+     * Object files contain the intermediate representation, the whole program is optimized
+     * again when it is linked
+     */
+    RELEASE_LTO("release_lto",
+            new String[]{"-O2", "-flto"},
+            new String[]{"-O2", "-flto"}),
+    /**
+     * Smallest binary, unused functions are removed and symbols are stripped
+     */
+    SIZE("size",
+            new String[]{"-Os", "-ffunction-sections", "-fdata-sections"},
+            new String[]{"-Wl,--gc-sections", "-s"}),;
+
+    private String id;
+    private String[] compileFlags;
+    private String[] linkFlags;
+
+    BuildProfile(String id, String[] compileFlags, String[] linkFlags) {
+        this.id = id;
+        this.compileFlags = compileFlags;
+        this.linkFlags = linkFlags;
+    }
+
+    /**
+     * @param id - value stored in preferences, see {@code R.array.build_profile_values}
+     */
+    public static BuildProfile fromId(String id) {
+        for (BuildProfile profile : values()) {
+            if (profile.id.equals(id)) {
+                return profile;
+            }
+        }
+        return DEBUG;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public List<String> getCompileFlags() {
+        return Arrays.asList(compileFlags);
+    }
+
+    public List<String> getLinkFlags() {
+        return Arrays.asList(linkFlags);
+    }
+
+    public String getTitle(Context context) {
+        return context.getResources().getStringArray(R.array.build_profiles)[ordinal()];
+    }
+}
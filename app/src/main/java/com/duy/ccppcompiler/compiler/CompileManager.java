@@ -17,96 +17,423 @@
 package com.duy.ccppcompiler.compiler;
 
 import android.app.ProgressDialog;
+import android.content.DialogInterface;
 import android.content.Intent;
+import android.os.AsyncTask;
+import android.support.annotation.MainThread;
+import android.support.annotation.Nullable;
 import android.widget.Toast;
 
 import com.duy.ccppcompiler.R;
-import com.duy.ccppcompiler.compiler.diagnostic.DiagnosticsCollector;
+import com.duy.ccppcompiler.benchmark.BenchmarkTask;
+import com.duy.ccppcompiler.compiler.analyze.OptimizationReportTask;
+import com.duy.ccppcompiler.compiler.diagnostic.Diagnostic;
+import com.duy.ccppcompiler.compiler.diagnostic.DiagnosticListener;
 import com.duy.ccppcompiler.compiler.diagnostic.OutputParser;
 import com.duy.ccppcompiler.console.ConsoleActivity;
+import com.duy.ccppcompiler.console.services.EnvironmentVariable;
 import com.duy.ccppcompiler.diagnostic.DiagnosticPresenter;
+import com.duy.ccppcompiler.diagnostic.SnapshotGenerations;
+import com.duy.ccppcompiler.profiler.ProfileTask;
+import com.duy.ccppcompiler.tester.TestRunTask;
 import com.duy.common.DLog;
+import com.duy.ide.compiler.BuildCache;
+import com.duy.ide.compiler.BuildMetrics;
+import com.duy.ide.compiler.CompileScheduler;
+import com.duy.ide.compiler.CompileTask;
 import com.duy.ide.compiler.ICompileManager;
+import com.duy.ide.compiler.INativeCompiler;
+import com.duy.ide.compiler.shell.ProcessSupervisor;
 import com.duy.ide.compiler.shell.ShellResult;
+import com.jecelyin.common.utils.LimitedQueue;
+import com.jecelyin.editor.v2.Preferences;
 import com.jecelyin.editor.v2.ui.activities.EditorActivity;
 import com.jecelyin.editor.v2.ui.widget.menu.MenuDef;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Created by Duy on 25-Apr-18.
  */
 
 public class CompileManager implements ICompileManager {
+    /**
+     * Run the binary interactively in {@link ConsoleActivity}
+     */
+    public static final int RUN_MODE_CONSOLE = 0;
+    /**
+     * Run the binary several times without terminal and show its timings
+     */
+    public static final int RUN_MODE_BENCHMARK = 1;
+    /**
+     * Judge the binary on the test cases of {@link #setTestDirectory(File)}
+     */
+    public static final int RUN_MODE_TESTS = 2;
+    /**
+     * Build with -pg, run the binary in {@link ConsoleActivity}, then show the report of gprof
+     */
+    public static final int RUN_MODE_PROFILE = 3;
+
     private static final String TAG = "CompileManager";
+    private static final int BUILD_HISTORY_SIZE = 20;
+    /**
+     * Number of diagnostics shown at once while the output of a failed build is parsed
+     */
+    private static final int DIAGNOSTIC_PAGE_SIZE = 50;
     private ProgressDialog mCompileDialog;
     private EditorActivity mActivity;
     private DiagnosticPresenter mDiagnosticPresenter;
+    private final CompileScheduler mScheduler = new CompileScheduler();
+    /**
+     * Metrics of the latest builds, the oldest one first
+     */
+    private final LimitedQueue<BuildMetrics> mBuildHistory = new LimitedQueue<>(BUILD_HISTORY_SIZE);
+    /**
+     * What to do with the binary of the latest requested build
+     */
+    private int mRunMode = RUN_MODE_CONSOLE;
+    /**
+     * The generations of the documents when the content of the latest requested build was copied
+     */
+    private SnapshotGenerations mBuildGenerations = new SnapshotGenerations();
+    @Nullable
+    private BenchmarkTask mBenchmarkTask;
+    @Nullable
+    private File mTestDirectory;
+    @Nullable
+    private TestRunTask mTestRunTask;
+    @Nullable
+    private OptimizationReportTask mOptimizationReportTask;
+    /**
+     * The compiler and the binary of the profiled run which is in the console, null if none
+     */
+    @Nullable
+    private GCCCompiler mProfiledCompiler;
+    @Nullable
+    private File mProfiledBinary;
+    @Nullable
+    private ProfileTask mProfileTask;
 
     public CompileManager(EditorActivity activity) {
         mCompileDialog = new ProgressDialog(activity);
         mActivity = activity;
     }
 
+    /**
+     * Build the sources and run the binary. If a build is already running, this build starts
+     * when it finishes and the result of the running build is discarded
+     */
+    @MainThread
+    public void compile(INativeCompiler compiler, File[] srcFiles) {
+        compile(compiler, srcFiles, RUN_MODE_CONSOLE);
+    }
+
+    /**
+     * @param runMode - {@link #RUN_MODE_CONSOLE}, {@link #RUN_MODE_BENCHMARK}, {@link #RUN_MODE_TESTS}
+     *                or {@link #RUN_MODE_PROFILE}
+     */
+    @MainThread
+    public void compile(INativeCompiler compiler, File[] srcFiles, int runMode) {
+        //only the result of the latest build is delivered, see CompileScheduler
+        mRunMode = runMode;
+        if (mDiagnosticPresenter != null) {
+            //the caller copied the unsaved content just before
+            mBuildGenerations = mDiagnosticPresenter.snapshotGenerations();
+        }
+        if (compiler instanceof GCCCompiler) {
+            ((GCCCompiler) compiler).setProfiling(runMode == RUN_MODE_PROFILE);
+        }
+        BuildCache buildCache = new BuildCache(new File(mActivity.getCacheDir(), GCCConstants.BUILD_CACHE_DIR),
+                GCCConstants.BUILD_CACHE_MAX_SIZE);
+        CompileTask compileTask = new CompileTask(compiler, srcFiles, this, buildCache);
+        Preferences preferences = Preferences.getInstance(mActivity);
+        compileTask.setLimits(preferences.getCompileTimeout(), preferences.getCompileMemoryLimit());
+        compileTask.setArtifactStore(GCCCompiler.createArtifactStore(mActivity));
+        mScheduler.submit(compileTask);
+    }
+
+    /**
+     * Compile the content of a source with -fopt-info and show the optimization remarks in the
+     * diagnostic list. Nothing is linked, the binary of the source is not changed
+     */
+    @MainThread
+    public void showOptimizationReport(GCCCompiler compiler, File sourceFile, String content) {
+        if (mDiagnosticPresenter == null) {
+            return;
+        }
+        Preferences preferences = Preferences.getInstance(mActivity);
+        ProcessSupervisor supervisor = mScheduler.startBackgroundCheck(
+                preferences.getCompileTimeout(), preferences.getCompileMemoryLimit());
+        if (supervisor == null) {
+            Toast.makeText(mActivity, R.string.title_compiling, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (mOptimizationReportTask != null) {
+            mOptimizationReportTask.cancel();
+        }
+        mOptimizationReportTask = new OptimizationReportTask(mActivity, compiler, sourceFile, content,
+                mDiagnosticPresenter.snapshotGenerations(), mScheduler, supervisor, mDiagnosticPresenter);
+        mOptimizationReportTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * @param testDirectory - directory with pairs of .in and .out files used by {@link #RUN_MODE_TESTS}
+     */
+    public void setTestDirectory(@Nullable File testDirectory) {
+        mTestDirectory = testDirectory;
+    }
+
+    public CompileScheduler getScheduler() {
+        return mScheduler;
+    }
+
+    public LimitedQueue<BuildMetrics> getBuildHistory() {
+        return mBuildHistory;
+    }
+
+    private void addToHistory(ShellResult shellResult) {
+        BuildMetrics metrics = shellResult.getMetrics();
+        if (metrics != null) {
+            mBuildHistory.add(metrics);
+            if (DLog.DEBUG) DLog.d(TAG, "build metrics: " + metrics);
+        }
+    }
+
+    /**
+     * Abort the running build and all background checks, called when the activity is destroyed
+     */
+    @MainThread
+    public void cancel() {
+        mScheduler.cancel();
+        mScheduler.cancelBackgroundChecks();
+        if (mBenchmarkTask != null) {
+            mBenchmarkTask.cancel();
+            mBenchmarkTask = null;
+        }
+        if (mTestRunTask != null) {
+            mTestRunTask.cancel();
+            mTestRunTask = null;
+        }
+        if (mOptimizationReportTask != null) {
+            mOptimizationReportTask.cancel();
+            mOptimizationReportTask = null;
+        }
+        if (mProfileTask != null) {
+            mProfileTask.cancel();
+            mProfileTask = null;
+        }
+    }
+
     @Override
     public void onPrepareCompile() {
         mActivity.setMenuStatus(R.id.action_run, MenuDef.STATUS_DISABLED);
         mCompileDialog.setTitle(R.string.title_compiling);
+        //shown until the compiler writes the first line
+        if (!mBuildHistory.isEmpty()) {
+            mCompileDialog.setMessage(mActivity.getString(R.string.last_build, mBuildHistory.getLast()));
+        }
+        mCompileDialog.setCancelable(false);
+        mCompileDialog.setButton(DialogInterface.BUTTON_NEGATIVE, mActivity.getString(R.string.abort),
+                new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        //the result is still delivered to onCompileFailed
+                        mScheduler.cancel();
+                    }
+                });
         mCompileDialog.show();
     }
 
     @Override
     public void onNewMessage(CharSequence charSequence) {
-        mCompileDialog.setMessage(charSequence);
+        //the dialog only needs to show the latest line of the chunk
+        String lines = charSequence.toString();
+        mCompileDialog.setMessage(lines.substring(lines.lastIndexOf('\n') + 1));
     }
 
     @Override
     public void onCompileSuccess(ShellResult shellResult) {
+        addToHistory(shellResult);
+        shellResult.release();
+        CompileTask compileTask = mScheduler.getRunningTask();
+        if (mScheduler.onTaskFinished()) {
+            //the sources changed while compiling, wait for the newer build
+            return;
+        }
         finishCompile();
         if (mCompileDialog != null && mCompileDialog.isShowing()) {
             mCompileDialog.dismiss();
         }
+        if (compileTask == null) {
+            return;
+        }
 
-        File internalDir = mActivity.getFilesDir();
-        String path = new File(internalDir, GCCConstants.TEMP_BINARY_NAME).getAbsolutePath();
+        //every source has its own binary, the program of another tab may still be running
+        INativeCompiler compiler = compileTask.getCompiler();
+        File binary = compiler.getOutputFile(compileTask.getSourceFiles());
+        if (mRunMode == RUN_MODE_BENCHMARK) {
+            if (mBenchmarkTask != null) {
+                //two benchmarks running at once would distort each other
+                mBenchmarkTask.cancel();
+            }
+            mBenchmarkTask = new BenchmarkTask(mActivity, binary);
+            //not the serial executor, the runs would wait behind unrelated tasks and block them
+            mBenchmarkTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+            return;
+        }
+        if (mRunMode == RUN_MODE_TESTS && mTestDirectory != null) {
+            if (mTestRunTask != null) {
+                mTestRunTask.cancel();
+            }
+            mTestRunTask = new TestRunTask(mActivity, binary, mTestDirectory);
+            mTestRunTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+            return;
+        }
         Intent intent = new Intent(mActivity, ConsoleActivity.class);
-        intent.putExtra(ConsoleActivity.EXTRA_BINARY_FILE_PATH, path);
+        intent.putExtra(ConsoleActivity.EXTRA_BINARY_FILE_PATH, binary.getAbsolutePath());
+        if (compiler instanceof GCCCompiler) {
+            BuildProfile profile = ((GCCCompiler) compiler).getBuildProfile();
+            intent.putExtra(ConsoleActivity.EXTRA_BUILD_PROFILE, profile.getTitle(mActivity));
+        }
+        if (mRunMode == RUN_MODE_PROFILE && compiler instanceof GCCCompiler) {
+            //a profile of an earlier run must not be mistaken for the profile of this run
+            getGmonFile().delete();
+            mProfiledCompiler = (GCCCompiler) compiler;
+            mProfiledBinary = binary;
+            mActivity.startActivityForResult(intent, EditorActivity.RC_PROFILE);
+            return;
+        }
         mActivity.startActivity(intent);
     }
 
+    /**
+     * Called when the console of a profiled run is closed, gmon.out is only written if the
+     * program exited normally
+     */
+    @MainThread
+    public void onProfiledRunFinished() {
+        GCCCompiler compiler = mProfiledCompiler;
+        File binary = mProfiledBinary;
+        mProfiledCompiler = null;
+        mProfiledBinary = null;
+        if (compiler == null || binary == null || mDiagnosticPresenter == null) {
+            return;
+        }
+        File gmon = getGmonFile();
+        if (!gmon.isFile()) {
+            Toast.makeText(mActivity, mActivity.getString(R.string.gmon_not_found, gmon.getName()),
+                    Toast.LENGTH_LONG).show();
+            return;
+        }
+        if (mProfileTask != null) {
+            mProfileTask.cancel();
+        }
+        mProfileTask = new ProfileTask(mActivity, compiler, binary, gmon, mDiagnosticPresenter);
+        mProfileTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * The console runs the binary in the home directory, see {@link EnvironmentVariable#getHomePath(android.content.Context)}
+     */
+    private File getGmonFile() {
+        return new File(EnvironmentVariable.getHomePath(mActivity), GCCConstants.GMON_FILE_NAME);
+    }
+
     private void finishCompile() {
         mActivity.setMenuStatus(R.id.action_run, MenuDef.STATUS_NORMAL);
     }
 
     @Override
     public void onCompileFailed(ShellResult shellResult) {
+        addToHistory(shellResult);
+        CompileTask compileTask = mScheduler.getRunningTask();
+        String abortMessage = compileTask != null ? compileTask.getAbortMessage() : null;
+        if (mScheduler.onTaskFinished()) {
+            shellResult.release();
+            return;
+        }
         finishCompile();
         if (mCompileDialog != null && mCompileDialog.isShowing()) {
             mCompileDialog.dismiss();
         }
-        Toast.makeText(mActivity, "Compiled failed", Toast.LENGTH_LONG).show();
+        Toast.makeText(mActivity, abortMessage != null ? abortMessage : "Compiled failed",
+                Toast.LENGTH_LONG).show();
         if (DLog.DEBUG) DLog.w(TAG, "onCompileFailed: \n" + shellResult.getMessage());
 
         if (mDiagnosticPresenter != null) {
-            DiagnosticsCollector diagnosticsCollector = new DiagnosticsCollector();
-            OutputParser parser = new OutputParser(diagnosticsCollector);
-            parser.parse(shellResult.getMessage());
-            ArrayList diagnostics = diagnosticsCollector.getDiagnostics();
-            mDiagnosticPresenter.setDiagnostics(diagnostics);
-            mDiagnosticPresenter.showView();
-
-            debug(diagnostics);
-        }
-    }
-
-    private void debug(ArrayList diagnostics) {
-        for (Object diagnostic : diagnostics) {
-            System.out.println(diagnostic);
+            //the serial executor keeps the lists of consecutive builds in order
+            new ParseDiagnosticsTask(shellResult, mBuildGenerations, mDiagnosticPresenter).execute();
+        } else {
+            shellResult.release();
         }
     }
 
     public void setDiagnosticPresenter(DiagnosticPresenter diagnosticPresenter) {
         this.mDiagnosticPresenter = diagnosticPresenter;
     }
+
+    /**
+     * Parses the output of a failed build off the main thread. Diagnostics are shown page by page
+     * as the parser reports them, the complete list is set when the output is parsed
+     */
+    private class ParseDiagnosticsTask extends AsyncTask<Void, Diagnostic, ArrayList<Diagnostic>>
+            implements DiagnosticListener {
+        private final ShellResult mShellResult;
+        private final SnapshotGenerations mGenerations;
+        private final DiagnosticPresenter mPresenter;
+        private final ArrayList<Diagnostic> mDiagnostics = new ArrayList<>();
+        private int mPublished = 0;
+
+        ParseDiagnosticsTask(ShellResult shellResult, SnapshotGenerations generations,
+                             DiagnosticPresenter presenter) {
+            mShellResult = shellResult;
+            mGenerations = generations;
+            mPresenter = presenter;
+        }
+
+        @Override
+        protected void onPreExecute() {
+            super.onPreExecute();
+            mPresenter.showView();
+        }
+
+        @Override
+        protected ArrayList<Diagnostic> doInBackground(Void... voids) {
+            try {
+                new OutputParser(this).parse(mShellResult.openMessageReader());
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                mShellResult.release();
+            }
+            return mDiagnostics;
+        }
+
+        @Override
+        public void report(Diagnostic diagnostic) {
+            mDiagnostics.add(diagnostic);
+            int count = mDiagnostics.size();
+            if (count - mPublished >= DIAGNOSTIC_PAGE_SIZE) {
+                List<Diagnostic> page = mDiagnostics.subList(mPublished, count);
+                publishProgress(page.toArray(new Diagnostic[page.size()]));
+                mPublished = count;
+            }
+        }
+
+        @Override
+        protected void onProgressUpdate(Diagnostic... values) {
+            super.onProgressUpdate(values);
+            mPresenter.appendDiagnostics(Arrays.asList(values));
+        }
+
+        @Override
+        protected void onPostExecute(ArrayList<Diagnostic> diagnostics) {
+            super.onPostExecute(diagnostics);
+            mPresenter.setDiagnostics(diagnostics, mGenerations);
+        }
+    }
 }
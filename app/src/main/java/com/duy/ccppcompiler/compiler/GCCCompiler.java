@@ -17,54 +17,714 @@
 package com.duy.ccppcompiler.compiler;
 
 import android.content.Context;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
 
+import com.duy.ide.compiler.ArtifactStore;
+import com.duy.ide.compiler.BuildMetrics;
+import com.duy.ide.compiler.BuildScheduler;
+import com.duy.ide.compiler.Hash;
 import com.duy.ide.compiler.INativeCompiler;
+import com.duy.ide.compiler.shell.OutputBuffer;
+import com.duy.ide.compiler.shell.OutputListener;
+import com.duy.ide.compiler.shell.ProcessSupervisor;
 import com.duy.ide.compiler.shell.ShellResult;
 import com.duy.ide.compiler.shell.ShellUtils;
+import com.jecelyin.editor.v2.Preferences;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Created by Duy on 25-Apr-18.
  */
 
 public class GCCCompiler implements INativeCompiler {
-    private Context mContext;
+    private static final Pattern LOCAL_INCLUDE_PATTERN = Pattern.compile("^\\s*#\\s*include\\s*\"([^\"]+)\"");
+    protected Context mContext;
+    private final BuildProfile mBuildProfile;
+    @Nullable
+    private IncludeScanner mIncludeScanner;
+    @Nullable
+    private SourceFingerprint mSourceFingerprint;
+    @Nullable
+    private ShadowSources mShadowSources;
+    private boolean mProfiling = false;
 
     public GCCCompiler(Context context) {
         this.mContext = context;
+        this.mBuildProfile = BuildProfile.fromId(Preferences.getInstance(context).getBuildProfile());
     }
 
+    public BuildProfile getBuildProfile() {
+        return mBuildProfile;
+    }
+
+    /**
+     * Instrument the binary with -pg, it writes gmon.out to the working directory when it exits.
+     * -g lets gprof map the samples to source lines. The instrumented binary and its objects are
+     * kept apart from the normal build, see {@link #getVariant()}
+     */
+    public void setProfiling(boolean profiling) {
+        mProfiling = profiling;
+    }
+
+    /**
+     * Run gprof on the profile written by a binary built with {@link #setProfiling(boolean)}
+     *
+     * @param lineByLine - report the time of every source line instead of every function
+     * @return the report, without the explanation of the columns
+     */
+    @WorkerThread
+    public ShellResult runGprof(File binary, File gmon, boolean lineByLine,
+                                @Nullable ProcessSupervisor supervisor) {
+        File gprof = getGprofFile();
+        if (!gprof.isFile()) {
+            return new ShellResult(-1, "Can not find " + gprof);
+        }
+        List<String> flags = new ArrayList<>();
+        flags.add("-b");
+        if (lineByLine) {
+            //-L prints the full path of the sources instead of the file name
+            flags.add("-l");
+            flags.add("-L");
+            flags.add("-p");
+        } else {
+            flags.add("-p");
+            flags.add("-q");
+        }
+        flags.add(binary.getAbsolutePath());
+        flags.add(gmon.getAbsolutePath());
+        return ShellUtils.execCommand(gprof.getAbsolutePath(), flags, buildEnvironment(), null,
+                supervisor, createOutputBuffer());
+    }
+
+    private File getGprofFile() {
+        File gccBinDir = new File(getGccDir(), "bin");
+        return new File(gccBinDir, "arm-linux-androideabi-gprof");
+    }
+
+    /**
+     * @return name of the output of this configuration, binaries and objects of different
+     * configurations don't replace each other
+     */
+    private String getVariant() {
+        return mProfiling ? mBuildProfile.getId() + "-pg" : mBuildProfile.getId();
+    }
+
+    /**
+     * Unsaved files are compiled from copies in the build directory, see {@link ShadowSources}
+     */
     @Override
-    public ShellResult compile(File[] sourceFiles) {
-        File internalDir = mContext.getFilesDir();
-        File gccDir = new File(internalDir, "gcc");
-        final String sysPath = System.getenv("PATH");
-        final File gccBinDir = new File(gccDir, "bin");
-        final File armGccBinDir = new File(gccDir, "arm-linux-androideabi" + File.separator + "bin");
-        final File libExecBinDir = new File(gccDir, "libexec/gcc/arm-linux-androideabi/" + GCCConstants.GCC_VERSION);
+    public void setUnsavedFiles(Map<File, String> unsavedFiles) {
+        File shadowDir = new File(new File(getGccDir(), GCCConstants.BUILD_DIR), GCCConstants.SHADOW_DIR);
+        mShadowSources = unsavedFiles.isEmpty() ? null : new ShadowSources(shadowDir, unsavedFiles);
+    }
 
-        String compilerPath = new File(gccBinDir, "arm-linux-androideabi-gcc").getAbsolutePath();
+    /**
+     * Compile every source file into its own object file with -c, skip the units which are still
+     * up to date, then link all objects into the binary. Out of date units don't depend on each
+     * other, they are compiled in parallel by {@link BuildScheduler}
+     */
+    @Override
+    public ShellResult compile(File[] sourceFiles, @Nullable final OutputListener listener,
+                               @Nullable final ProcessSupervisor supervisor) {
+        long timeStart = System.currentTimeMillis();
+        File[] unitSources;
+        try {
+            unitSources = prepareSources(sourceFiles);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new ShellResult(-1, e.getMessage());
+        }
+        final Map<String, String> envMap = buildEnvironment();
+        final List<String> compileFlags = buildCompileFlags();
+        final String flagsHash = hashFlags(compileFlags);
+
+        File objectDir = getObjectDir();
+        objectDir.mkdirs();
+
+        //the include directories of precompiled headers are not part of the flags hash, they
+        //are derived from it. The report flags don't change the output, they aren't hashed either
+        final List<String> reportFlags = getReportFlags();
+        final List<String> unitFlags = new ArrayList<>(compileFlags);
+        unitFlags.addAll(preparePrecompiledHeaders(unitSources, compileFlags, flagsHash, envMap,
+                listener, supervisor));
+        unitFlags.addAll(reportFlags);
+
+        List<String> linkFlags = new ArrayList<>();
+        List<Callable<ShellResult>> jobs = new ArrayList<>();
+        for (File sourceFile : unitSources) {
+            final TranslationUnit unit = new TranslationUnit(sourceFile, objectDir);
+            linkFlags.add(unit.getObject().getAbsolutePath());
+            if (unit.isUpToDate(flagsHash)) {
+                continue;
+            }
+            jobs.add(new Callable<ShellResult>() {
+                @Override
+                public ShellResult call() {
+                    ShellResult result = compileObject(unit, unitFlags, envMap, listener, supervisor);
+                    if (result.getResultCode() == 0) {
+                        unit.writeStamp(flagsHash);
+                    } else {
+                        unit.invalidate();
+                    }
+                    return result;
+                }
+            });
+        }
+
+        //keep compiling the other units when one fails, so all errors are reported at once
+        OutputBuffer output = createOutputBuffer();
+        int resultCode;
+        try {
+            resultCode = BuildScheduler.merge(BuildScheduler.create(mContext).runAll(jobs), output)
+                    .getResultCode();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            output.append(e.toString());
+            resultCode = -1;
+        }
+
+        if (resultCode == 0) {
+            linkFlags.addAll(buildLinkFlags(unitSources, getOutputFile(sourceFiles)));
+            linkFlags.addAll(reportFlags);
+            ShellResult result = ShellUtils.execCommand(getCompilerPath(), linkFlags, envMap,
+                    listener, supervisor, createOutputBuffer());
+            output.append(result);
+            resultCode = result.getResultCode();
+        }
+        output.close();
+
+        ShellResult shellResult = new ShellResult(resultCode, output.getHead());
+        shellResult.setOutput(output);
+        shellResult.setTime(System.currentTimeMillis() - timeStart);
+        shellResult.setMetrics(createMetrics(shellResult, supervisor));
+        return shellResult;
+    }
+
+    private BuildMetrics createMetrics(ShellResult result, @Nullable ProcessSupervisor supervisor) {
+        BuildMetrics metrics = new BuildMetrics();
+        try {
+            TimeReportParser.parse(result.openMessageReader(), metrics);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        metrics.setTotalTime(result.getTime());
+        metrics.setOutputBytes(result.getOutput() != null ? result.getOutput().length() : result.getMessage().length());
+        if (supervisor != null) {
+            metrics.setPeakMemory(supervisor.getPeakMemory());
+        }
+        return metrics;
+    }
+
+    /**
+     * Run the compiler with -fsyntax-only on the unsaved content of a source. The content is
+     * written to a snapshot, see {@link #writeSnapshot(File, String)}, the original directory is
+     * added to the quote include path so local headers are still found
+     *
+     * @return compiler output, diagnostics refer to the original path and line numbers
+     */
+    @WorkerThread
+    public ShellResult checkSyntax(File sourceFile, String content, @Nullable ProcessSupervisor supervisor) {
+        long timeStart = System.currentTimeMillis();
+        Map<String, String> envMap = buildEnvironment();
+        List<String> compileFlags = buildCompileFlags();
+
+        File snapshot;
+        try {
+            snapshot = writeSnapshot(sourceFile, content);
+        } catch (IOException e) {
+            return new ShellResult(-1, e.getMessage());
+        }
 
         List<String> flags = new ArrayList<>();
-        for (File source : sourceFiles) {
-            flags.add(source.getAbsolutePath());
+        flags.add(snapshot.getAbsolutePath());
+        flags.add("-fsyntax-only");
+        if (sourceFile.getParentFile() != null) {
+            flags.add("-iquote");
+            flags.add(sourceFile.getParentFile().getAbsolutePath());
         }
-        flags.add("-pie");
-        flags.add("-std=c99");
-        flags.add("-lz");//zlib
-        flags.add("-ldl");
-        flags.add("-lm");//math
-        flags.add("-llog");
-        flags.add("-lncurses");
-        flags.add("-Og");
+        flags.addAll(compileFlags);
+        flags.addAll(preparePrecompiledHeaders(new File[]{snapshot}, compileFlags, hashFlags(compileFlags),
+                envMap, null, supervisor));
+        ShellResult result = ShellUtils.execCommand(getCompilerPath(), flags, envMap, null, supervisor,
+                createOutputBuffer());
+        snapshot.delete();
+        result.setTime(System.currentTimeMillis() - timeStart);
+        return result;
+    }
+
+    /**
+     * Compile the unsaved content of a source into assembly with -S -fverbose-asm. -g makes gcc
+     * write .loc directives which map the instructions to the source lines. The listing is
+     * cached by the digest of the content and the flags, see {@link #getAssemblyFile(File, String)}
+     *
+     * @return compiler output, the listing is only written if the result code is 0
+     */
+    @WorkerThread
+    public ShellResult generateAssembly(File sourceFile, String content, @Nullable ProcessSupervisor supervisor) {
+        long timeStart = System.currentTimeMillis();
+        File assemblyFile = getAssemblyFile(sourceFile, content);
+        if (assemblyFile.isFile()) {
+            //mark as recently used
+            assemblyFile.setLastModified(timeStart);
+            return new ShellResult(0, "");
+        }
+        File asmDir = assemblyFile.getParentFile();
+        asmDir.mkdirs();
+        File snapshot;
+        try {
+            snapshot = writeSnapshot(sourceFile, content);
+        } catch (IOException e) {
+            return new ShellResult(-1, e.getMessage());
+        }
+
+        Map<String, String> envMap = buildEnvironment();
+        List<String> compileFlags = buildCompileFlags();
+        //write to a temporary file, an aborted run must not leave a broken listing in the cache
+        File tmp = new File(assemblyFile.getPath() + ".tmp");
+        List<String> flags = new ArrayList<>();
+        flags.add(snapshot.getAbsolutePath());
+        flags.add("-S");
+        flags.add("-fverbose-asm");
+        flags.add("-g");
         flags.add("-o");
-        flags.add(new File(internalDir.getAbsolutePath(), GCCConstants.TEMP_BINARY_NAME).getAbsolutePath());
+        flags.add(tmp.getAbsolutePath());
+        if (sourceFile.getParentFile() != null) {
+            flags.add("-iquote");
+            flags.add(sourceFile.getParentFile().getAbsolutePath());
+        }
+        flags.addAll(compileFlags);
+        ShellResult result = ShellUtils.execCommand(getCompilerPath(), flags, envMap, null, supervisor,
+                createOutputBuffer());
+        snapshot.delete();
+        if (result.getResultCode() != 0 || !tmp.renameTo(assemblyFile)) {
+            tmp.delete();
+        }
+        trimAssemblyCache(asmDir);
+        result.setTime(System.currentTimeMillis() - timeStart);
+        return result;
+    }
+
+    /**
+     * @return the cached listing of this content, the file may not exist yet
+     */
+    public File getAssemblyFile(File sourceFile, String content) {
+        Hash hash = new Hash();
+        hash.update(GCCConstants.GCC_VERSION);
+        hash.update(getCompilerPath());
+        for (String flag : buildCompileFlags()) {
+            hash.update(flag);
+        }
+        hash.update(sourceFile.getAbsolutePath());
+        hash.update(content);
+        File asmDir = new File(new File(getGccDir(), GCCConstants.BUILD_DIR), GCCConstants.ASM_DIR);
+        return new File(asmDir, hash.toHex() + ".s");
+    }
+
+    /**
+     * Keep the listings which were used last
+     */
+    private static void trimAssemblyCache(File asmDir) {
+        File[] files = asmDir.listFiles();
+        if (files == null || files.length <= GCCConstants.ASM_CACHE_SIZE) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                long diff = o2.lastModified() - o1.lastModified();
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+        for (int i = GCCConstants.ASM_CACHE_SIZE; i < files.length; i++) {
+            files[i].delete();
+        }
+    }
+
+    /**
+     * Compile the unsaved content of a source with -fopt-info. The vectorizer reports every loop
+     * it vectorized or failed to vectorize, the inliner reports the calls it did not inline. The
+     * reports are written to {@link #getRemarkFiles(File)}, the object file is not kept
+     *
+     * @return compiler output, it contains the errors if the content does not compile
+     */
+    @WorkerThread
+    public ShellResult generateOptimizationReport(File sourceFile, String content,
+                                                  @Nullable ProcessSupervisor supervisor) {
+        long timeStart = System.currentTimeMillis();
+        Map<String, String> envMap = buildEnvironment();
+        List<String> compileFlags = buildCompileFlags();
+
+        File[] remarkFiles = getRemarkFiles(sourceFile);
+        File remarksDir = remarkFiles[0].getParentFile();
+        remarksDir.mkdirs();
+        for (File remarkFile : remarkFiles) {
+            remarkFile.delete();
+        }
+        File snapshot;
+        File object;
+        try {
+            snapshot = writeSnapshot(sourceFile, content);
+            object = File.createTempFile("remarks", ".o", remarksDir);
+        } catch (IOException e) {
+            return new ShellResult(-1, e.getMessage());
+        }
+
+        List<String> flags = new ArrayList<>();
+        flags.add(snapshot.getAbsolutePath());
+        flags.add("-c");
+        flags.add("-o");
+        flags.add(object.getAbsolutePath());
+        if (sourceFile.getParentFile() != null) {
+            flags.add("-iquote");
+            flags.add(sourceFile.getParentFile().getAbsolutePath());
+        }
+        flags.addAll(compileFlags);
+        flags.addAll(preparePrecompiledHeaders(new File[]{snapshot}, compileFlags, hashFlags(compileFlags),
+                envMap, null, supervisor));
+        //with -flto the loops are only optimized when the program is linked
+        flags.add("-fno-lto");
+        flags.add("-fopt-info-vec-optimized-missed=" + remarkFiles[0].getAbsolutePath());
+        flags.add("-fopt-info-inline-missed=" + remarkFiles[1].getAbsolutePath());
+        ShellResult result = ShellUtils.execCommand(getCompilerPath(), flags, envMap, null, supervisor,
+                createOutputBuffer());
+        snapshot.delete();
+        object.delete();
+        result.setTime(System.currentTimeMillis() - timeStart);
+        return result;
+    }
+
+    /**
+     * Write the unsaved content of a source into a new file of the check directory. Every call
+     * gets its own file, an aborted check must not delete the snapshot of the check which
+     * replaced it. #line keeps the file name and line numbers of the original source in the
+     * diagnostics
+     */
+    private File writeSnapshot(File sourceFile, String content) throws IOException {
+        File checkDir = new File(new File(getGccDir(), GCCConstants.BUILD_DIR), GCCConstants.CHECK_DIR);
+        checkDir.mkdirs();
+        //the suffix keeps the extension, gcc chooses the language by it
+        File snapshot = File.createTempFile("snapshot", "-" + sourceFile.getName(), checkDir);
+        String path = sourceFile.getAbsolutePath().replace("\\", "\\\\").replace("\"", "\\\"");
+        if (!com.jecelyin.common.utils.IOUtils.writeFile(snapshot, "#line 1 \"" + path + "\"\n" + content)) {
+            snapshot.delete();
+            throw new IOException("Can not write " + snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return the reports of the vectorizer and the inliner, see
+     * {@link #generateOptimizationReport(File, String, ProcessSupervisor)}
+     */
+    public File[] getRemarkFiles(File sourceFile) {
+        String prefix = new Hash().update(sourceFile.getAbsolutePath()).toHex().substring(0, 8);
+        File remarksDir = new File(new File(getGccDir(), GCCConstants.BUILD_DIR), GCCConstants.REMARKS_DIR);
+        return new File[]{new File(remarksDir, prefix + "-vec.txt"), new File(remarksDir, prefix + "-inline.txt")};
+    }
+
+    private ShellResult compileObject(TranslationUnit unit, List<String> compileFlags,
+                                      Map<String, String> envMap, @Nullable OutputListener listener,
+                                      @Nullable ProcessSupervisor supervisor) {
+        List<String> flags = new ArrayList<>();
+        flags.add(unit.getSource().getAbsolutePath());
+        flags.add("-c");
+        //write the list of user headers used by this source, system headers are omitted
+        flags.add("-MMD");
+        flags.add("-MF");
+        flags.add(unit.getDependencyFile().getAbsolutePath());
+        flags.add("-o");
+        flags.add(unit.getObject().getAbsolutePath());
+        File originalDir = mShadowSources != null
+                ? mShadowSources.getOriginalDir(unit.getSource().getParentFile()) : null;
+        if (originalDir != null) {
+            //the copy is compiled in the shadow directory, saved headers are next to the original
+            flags.add("-iquote");
+            flags.add(originalDir.getAbsolutePath());
+        }
+        flags.addAll(compileFlags);
+        return ShellUtils.execCommand(getCompilerPath(), flags, envMap, listener, supervisor,
+                createOutputBuffer());
+    }
+
+    /**
+     * Build the precompiled headers included by the sources if they don't exist for the current
+     * flags yet. A header which fails to precompile is simply parsed as usual
+     *
+     * @return -I flags of the precompiled headers which are ready to use
+     */
+    private List<String> preparePrecompiledHeaders(File[] sourceFiles, List<String> compileFlags,
+                                                   String flagsHash, Map<String, String> envMap,
+                                                   @Nullable OutputListener listener,
+                                                   @Nullable ProcessSupervisor supervisor) {
+        List<String> flags = new ArrayList<>();
+        File rootDir = getPrecompiledHeaderDir();
+        for (String header : getPrecompiledHeaders()) {
+            if (!PrecompiledHeader.isIncluded(header, sourceFiles)) {
+                continue;
+            }
+            PrecompiledHeader pch = new PrecompiledHeader(header, rootDir, flagsHash);
+            if (!pch.exists()) {
+                if (!compilePrecompiledHeader(pch, compileFlags, envMap, listener, supervisor)) {
+                    continue;
+                }
+                PrecompiledHeader.trim(rootDir, flagsHash);
+            }
+            pch.touch();
+            String includeDir = "-I" + pch.getIncludeDir().getAbsolutePath();
+            if (!flags.contains(includeDir)) {
+                flags.add(includeDir);
+            }
+        }
+        return flags;
+    }
+
+    private boolean compilePrecompiledHeader(PrecompiledHeader pch, List<String> compileFlags,
+                                             Map<String, String> envMap,
+                                             @Nullable OutputListener listener,
+                                             @Nullable ProcessSupervisor supervisor) {
+        File source = pch.getSource();
+        File output = pch.getOutput();
+        source.getParentFile().mkdirs();
+        output.getParentFile().mkdirs();
+        if (!com.jecelyin.common.utils.IOUtils.writeFile(source, pch.getSourceContent())) {
+            return false;
+        }
+        //write to a temporary file, a killed build must not leave a broken .gch
+        File tmp = new File(output.getPath() + ".tmp");
+        List<String> flags = new ArrayList<>();
+        flags.add("-x");
+        flags.add(getPrecompiledHeaderLanguage());
+        flags.add(source.getAbsolutePath());
+        flags.add("-o");
+        flags.add(tmp.getAbsolutePath());
+        flags.addAll(compileFlags);
+        ShellResult result = ShellUtils.execCommand(getCompilerPath(), flags, envMap, listener, supervisor,
+                createOutputBuffer());
+        //the output was already shown by the listener, the header is parsed as usual on failure
+        result.release();
+        if (result.getResultCode() != 0 || !tmp.renameTo(output)) {
+            tmp.delete();
+            return false;
+        }
+        return true;
+    }
+
+    private String hashFlags(List<String> flags) {
+        Hash hash = new Hash();
+        hash.update(GCCConstants.GCC_VERSION);
+        hash.update(getCompilerPath());
+        for (String flag : flags) {
+            hash.update(flag);
+        }
+        return hash.toHex();
+    }
+
+    @Nullable
+    @Override
+    public String getBuildKey(File[] sourceFiles) {
+        try {
+            File[] unitSources = prepareSources(sourceFiles);
+            Hash hash = new Hash();
+            hash.update(GCCConstants.GCC_VERSION);
+            hash.update(getCompilerPath());
+            for (String flag : buildCompileFlags()) {
+                hash.update(flag);
+            }
+            for (String flag : buildLinkFlags(unitSources, getOutputFile(sourceFiles))) {
+                hash.update(flag);
+            }
+            Set<File> visited = new HashSet<>();
+            for (File sourceFile : unitSources) {
+                hashSource(hash, sourceFile, visited);
+            }
+            return hash.toHex();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Hash the source file and every local header it includes with #include "...". System
+     * headers belong to the toolchain, they are covered by {@link GCCConstants#GCC_VERSION}.
+     * Sources are hashed by their {@link SourceFingerprint}, editing the text of a comment or
+     * the whitespace within a line doesn't change the key
+     */
+    private void hashSource(Hash hash, File source, Set<File> visited) throws IOException {
+        if (!visited.add(source)) {
+            return;
+        }
+        hash.update(source.getAbsolutePath());
+        if (!source.isFile()) {
+            //creating the file later changes the key
+            hash.update(-1L);
+            return;
+        }
+        if (mSourceFingerprint == null) {
+            mSourceFingerprint = SourceFingerprint.create(mContext);
+        }
+        hash.update(mSourceFingerprint.compute(source));
+        BufferedReader reader = new BufferedReader(new FileReader(source));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Matcher matcher = LOCAL_INCLUDE_PATTERN.matcher(line);
+                if (matcher.find()) {
+                    File header = mShadowSources != null
+                            ? mShadowSources.resolveInclude(source, matcher.group(1))
+                            : new File(source.getParentFile(), matcher.group(1));
+                    hashSource(hash, header.getCanonicalFile(), visited);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Each source has its own binary for each profile, see {@link #createArtifactStore(Context)}
+     */
+    @Override
+    public File getOutputFile(File[] sourceFiles) {
+        return createArtifactStore(mContext).getBinary(sourceFiles, getVariant());
+    }
+
+    public static ArtifactStore createArtifactStore(Context context) {
+        return new ArtifactStore(new File(context.getFilesDir(), GCCConstants.ARTIFACTS_DIR),
+                GCCConstants.ARTIFACTS_MAX_SIZE);
+    }
+
+    protected String getCompilerPath() {
+        File gccBinDir = new File(getGccDir(), "bin");
+        return new File(gccBinDir, "arm-linux-androideabi-gcc").getAbsolutePath();
+    }
+
+    protected String getLanguageStandard() {
+        return "-std=c99";
+    }
+
+    protected File getGccDir() {
+        return new File(mContext.getFilesDir(), GCCConstants.GCC_DIR_NAME);
+    }
+
+    /**
+     * Each profile has its own object files, switching the profile doesn't rebuild everything
+     */
+    protected File getObjectDir() {
+        File objectDir = new File(new File(getGccDir(), GCCConstants.BUILD_DIR), GCCConstants.OBJECT_DIR);
+        return new File(objectDir, getVariant());
+    }
+
+    /**
+     * Huge compiler output is written to a temporary file in the build directory instead of
+     * being kept in memory
+     */
+    protected OutputBuffer createOutputBuffer() {
+        File outputDir = new File(new File(getGccDir(), GCCConstants.BUILD_DIR), GCCConstants.OUTPUT_DIR);
+        return new OutputBuffer(outputDir, OutputBuffer.DEFAULT_MEMORY_LIMIT);
+    }
+
+    protected File getPrecompiledHeaderDir() {
+        return new File(new File(getGccDir(), GCCConstants.BUILD_DIR), GCCConstants.PCH_DIR);
+    }
+
+    /**
+     * @return system headers which are expensive to parse and worth to precompile when a source
+     * includes them
+     */
+    protected String[] getPrecompiledHeaders() {
+        return new String[0];
+    }
+
+    protected String getPrecompiledHeaderLanguage() {
+        return "c-header";
+    }
+
+    /**
+     * @return flags used to compile each source file into an object file
+     */
+    protected List<String> buildCompileFlags() {
+        List<String> flags = new ArrayList<>();
+        flags.add(getLanguageStandard());
+        flags.add("-fPIE");
+        flags.addAll(mBuildProfile.getCompileFlags());
+        if (mProfiling) {
+            flags.add("-pg");
+            flags.add("-g");
+        }
         flags.addAll(getUserFlags());
+        return flags;
+    }
+
+    /**
+     * @param unitSources - the files which are compiled, see {@link #prepareSources(File[])}
+     * @return flags used to link object files into the binary, object files are not included
+     */
+    protected List<String> buildLinkFlags(File[] unitSources, File output) {
+        List<String> flags = new ArrayList<>();
+        flags.add("-pie");
+        for (String flag : mBuildProfile.getLinkFlags()) {
+            if (mProfiling && flag.equals("-s")) {
+                //gprof needs the symbols
+                continue;
+            }
+            flags.add(flag);
+        }
+        if (mProfiling) {
+            flags.add("-pg");
+        }
+        flags.addAll(getLibraryFlags(unitSources));
+        flags.add("-o");
+        flags.add(output.getAbsolutePath());
+        return flags;
+    }
+
+    /**
+     * @return the files gcc must compile, the copies of unsaved sources if there are any
+     */
+    @WorkerThread
+    private File[] prepareSources(File[] sourceFiles) throws IOException {
+        return mShadowSources != null ? mShadowSources.prepare(sourceFiles) : sourceFiles;
+    }
+
+    /**
+     * Only link the libraries whose headers are included, directly or through a local header
+     */
+    private List<String> getLibraryFlags(File[] sourceFiles) {
+        try {
+            if (mIncludeScanner == null) {
+                mIncludeScanner = IncludeScanner.create(mContext);
+            }
+            return SystemLibraries.getLinkFlags(mIncludeScanner.scanSystemHeaders(sourceFiles, mShadowSources));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return Arrays.asList(SystemLibraries.LIBRARIES);
+        }
+    }
+
+    protected Map<String, String> buildEnvironment() {
+        File internalDir = mContext.getFilesDir();
+        File gccDir = getGccDir();
+        final String sysPath = System.getenv("PATH");
+        final File gccBinDir = new File(gccDir, "bin");
+        final File armGccBinDir = new File(gccDir, "arm-linux-androideabi" + File.separator + "bin");
+        final File libExecBinDir = new File(gccDir, "libexec/gcc/arm-linux-androideabi/" + GCCConstants.GCC_VERSION);
 
         String TEMPEnv = new File(gccDir, GCCConstants.BUILD_DIR).getAbsolutePath();
         String PATHEnv =
@@ -74,13 +734,27 @@ public class GCCCompiler implements INativeCompiler {
                         + libExecBinDir.getAbsolutePath() + File.pathSeparator
                         + sysPath;
 
-        System.out.println("PATHEnv = " + PATHEnv);
-        System.out.println("TEMPEnv = " + TEMPEnv);
-
         Map<String, String> envMap = new HashMap<>();
         envMap.put("PATH", PATHEnv);
         envMap.put("TEMP", TEMPEnv);
-        return ShellUtils.execCommand(compilerPath, flags, envMap);
+        return envMap;
+    }
+
+    /**
+     * -time prints the time of every program started by the driver (cc1, as, collect2), it is
+     * cheap so it is always on. -ftime-report prints the time of every compiler phase, but the
+     * report is long, so it is only enabled in settings.
+     * <p>
+     * They are only added to the commands of a build, not to {@link #buildCompileFlags()}. They
+     * don't change the output, so they must not change the build key or the flags hash
+     */
+    private ArrayList<String> getReportFlags() {
+        ArrayList<String> flags = new ArrayList<>();
+        flags.add("-time");
+        if (Preferences.getInstance(mContext).isCompileTimeReport()) {
+            flags.add("-ftime-report");
+        }
+        return flags;
     }
 
     private ArrayList<String> getUserFlags() {
@@ -26,8 +26,60 @@ public class GCCConstants {
     public static final String GCC_ASSET_FILE = "gcc.zip";
 
     public static final String TEMP_FILE_NAME = "temp.c";
-    public static final String TEMP_BINARY_NAME = "temp";
+    /**
+     * Directory in files dir which contains the binary of each source, see {@link com.duy.ide.compiler.ArtifactStore}
+     */
+    public static final String ARTIFACTS_DIR = "bin";
+    /**
+     * Size limit of {@link #ARTIFACTS_DIR} in bytes
+     */
+    public static final long ARTIFACTS_MAX_SIZE = 64 * 1024 * 1024;
     public static final String BUILD_DIR = "tmpdir";
+    /**
+     * Directory in {@link #BUILD_DIR} which contains object files of each source, see {@link TranslationUnit}
+     */
+    public static final String OBJECT_DIR = "obj";
+    /**
+     * Directory in {@link #BUILD_DIR} which contains precompiled headers, see {@link PrecompiledHeader}
+     */
+    public static final String PCH_DIR = "pch";
+    /**
+     * Directory in {@link #BUILD_DIR} which contains snapshots of edited sources for syntax checking
+     */
+    public static final String CHECK_DIR = "check";
+    /**
+     * Directory in {@link #BUILD_DIR} which contains copies of unsaved sources, see {@link ShadowSources}
+     */
+    public static final String SHADOW_DIR = "shadow";
+    /**
+     * Directory in {@link #BUILD_DIR} which contains the listings of the assembly view
+     */
+    public static final String ASM_DIR = "asm";
+    /**
+     * Number of listings kept in {@link #ASM_DIR}
+     */
+    public static final int ASM_CACHE_SIZE = 32;
+    /**
+     * Directory in {@link #BUILD_DIR} which contains the reports written by -fopt-info
+     */
+    public static final String REMARKS_DIR = "remarks";
+    /**
+     * Directory in {@link #BUILD_DIR} which contains compiler output too large to keep in memory
+     */
+    public static final String OUTPUT_DIR = "output";
+    /**
+     * Directory in cache dir which contains binaries of previous builds, see {@link com.duy.ide.compiler.BuildCache}
+     */
+    public static final String BUILD_CACHE_DIR = "build_cache";
+    /**
+     * Size limit of {@link #BUILD_CACHE_DIR} in bytes
+     */
+    public static final long BUILD_CACHE_MAX_SIZE = 32 * 1024 * 1024;
+
+    /**
+     * Written to the working directory by a binary built with -pg when it exits
+     */
+    public static final String GMON_FILE_NAME = "gmon.out";
 
     public static final String INDENT_FILE_NAME = "indent.c";
     public static final String INDENT_ARGS = "-nbap -bli0 -i2 -l79 -ts2 -ncs -npcs -npsl -fca -lc79 -fc1 -ts1 -ce -br -cdw -brs -brf";
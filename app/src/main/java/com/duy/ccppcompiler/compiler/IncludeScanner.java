@@ -0,0 +1,197 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.compiler;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.duy.ide.compiler.Hash;
+import com.jecelyin.common.utils.IOUtils;
+
+import org.gjt.sp.jedit.Mode;
+import org.gjt.sp.jedit.Segment;
+import org.gjt.sp.jedit.syntax.Token;
+import org.gjt.sp.jedit.syntax.TokenHandler;
+import org.gjt.sp.jedit.syntax.TokenMarker;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Find the headers included by the sources with the syntax highlighter tokenizer, so includes in
+ * comments, string literals and disabled lines of a multi line comment are ignored.
+ * <p>
+ * The includes of every file are cached by the digest of its content, only edited files are
+ * tokenized again.
+ */
+
+public class IncludeScanner {
+    private static final int CACHE_SIZE = 128;
+    private static final Map<String, Includes> sCache = Collections.synchronizedMap(
+            new LinkedHashMap<String, Includes>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Includes> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    private final TokenMarker mTokenMarker;
+
+    /**
+     * @param tokenMarker - must not be shared with the editor, a token marker keeps the state of
+     *                    the line it is marking
+     */
+    public IncludeScanner(TokenMarker tokenMarker) {
+        mTokenMarker = tokenMarker;
+    }
+
+    public static IncludeScanner create(Context context) {
+        //C++ uses the same preprocessor syntax, a private mode instance has its own token marker
+        Mode mode = new Mode("C", "c.xml", null, null);
+        return new IncludeScanner(mode.getTokenMarker(context));
+    }
+
+    /**
+     * @return headers written with angle brackets in the sources and in all local headers they
+     * include. A header written with quotes which doesn't exist next to the including file is
+     * searched in the system directories by gcc, so it is returned too
+     */
+    public Set<String> scanSystemHeaders(File[] sourceFiles) throws IOException {
+        return scanSystemHeaders(sourceFiles, null);
+    }
+
+    /**
+     * @param shadowSources - resolves local headers of copies of unsaved sources, null if the
+     *                      sources are not copies
+     */
+    public Set<String> scanSystemHeaders(File[] sourceFiles, @Nullable ShadowSources shadowSources)
+            throws IOException {
+        Set<String> headers = new HashSet<>();
+        Set<File> visited = new HashSet<>();
+        for (File sourceFile : sourceFiles) {
+            scan(sourceFile.getCanonicalFile(), headers, visited, shadowSources);
+        }
+        return headers;
+    }
+
+    private void scan(File file, Set<String> headers, Set<File> visited,
+                      @Nullable ShadowSources shadowSources) throws IOException {
+        if (!visited.add(file) || !file.isFile()) {
+            return;
+        }
+        String content = IOUtils.readFile(file);
+        String digest = new Hash().update(content).toHex();
+        Includes includes = sCache.get(digest);
+        if (includes == null) {
+            includes = tokenize(content);
+            sCache.put(digest, includes);
+        }
+        headers.addAll(includes.systemHeaders);
+        for (String localHeader : includes.localHeaders) {
+            File header = shadowSources != null
+                    ? shadowSources.resolveInclude(file, localHeader)
+                    : new File(file.getParentFile(), localHeader);
+            if (header.isFile()) {
+                scan(header.getCanonicalFile(), headers, visited, shadowSources);
+            } else {
+                headers.add(localHeader);
+            }
+        }
+    }
+
+    /**
+     * The token marker is not thread safe
+     */
+    @NonNull
+    synchronized Includes tokenize(String content) {
+        Includes includes = new Includes();
+        IncludeTokenHandler handler = new IncludeTokenHandler();
+        TokenMarker.LineContext context = null;
+        char[] chars = content.toCharArray();
+        int start = 0;
+        while (start <= chars.length) {
+            int end = start;
+            while (end < chars.length && chars[end] != '\n') {
+                end++;
+            }
+            char[] line = new char[end - start];
+            System.arraycopy(chars, start, line, 0, line.length);
+            handler.startLine();
+            context = mTokenMarker.markTokens(context, handler, new Segment(line, 0, line.length));
+
+            String header = handler.getHeader();
+            if (header != null && header.length() > 2) {
+                String name = header.substring(1, header.length() - 1).trim();
+                if (header.charAt(0) == '<' && header.charAt(header.length() - 1) == '>') {
+                    includes.systemHeaders.add(name);
+                } else if (header.charAt(0) == '"' && header.charAt(header.length() - 1) == '"') {
+                    includes.localHeaders.add(name);
+                }
+            }
+            start = end + 1;
+        }
+        return includes;
+    }
+
+    static class Includes {
+        final List<String> systemHeaders = new ArrayList<>();
+        final List<String> localHeaders = new ArrayList<>();
+    }
+
+    /**
+     * Collect the literal after the "include" directive of a line
+     */
+    private static class IncludeTokenHandler implements TokenHandler {
+        private boolean mInclude;
+        private StringBuilder mHeader = new StringBuilder();
+
+        void startLine() {
+            mInclude = false;
+            mHeader.setLength(0);
+        }
+
+        String getHeader() {
+            return mHeader.length() > 0 ? mHeader.toString().trim() : null;
+        }
+
+        @Override
+        public void handleToken(Segment seg, byte id, int offset, int length,
+                                TokenMarker.LineContext context) {
+            if (id == Token.END || length <= 0) {
+                return;
+            }
+            if (id == Token.MARKUP && !mInclude) {
+                mInclude = "include".equals(new String(seg.array, seg.offset + offset, length).trim());
+            } else if (id == Token.LITERAL1 && mInclude) {
+                mHeader.append(seg.array, seg.offset + offset, length);
+            }
+        }
+
+        @Override
+        public void setLineContext(TokenMarker.LineContext lineContext) {
+
+        }
+    }
+}
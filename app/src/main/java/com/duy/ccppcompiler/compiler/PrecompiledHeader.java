@@ -0,0 +1,157 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.compiler;
+
+import com.duy.utils.IOUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Precompiled version of a heavy system header such as bits/stdc++.h.
+ * <p>
+ * The .gch file is written into a directory named by the digest of the compile flags, which
+ * already covers {@link GCCConstants#GCC_VERSION}. When this directory is added with -I, gcc
+ * finds the .gch before the real header and loads it instead of parsing the header again. If the
+ * .gch doesn't match the flags, gcc silently falls back to the real header.
+ * <p>
+ * Every flag set (build profile, profiling, toolchain version) keeps its own directory, so
+ * switching between them doesn't precompile the header again. Only the least recently used
+ * directories are deleted when there are more than {@link #MAX_FLAG_SETS}.
+ */
+
+public class PrecompiledHeader {
+    private static final Pattern SYSTEM_INCLUDE_PATTERN = Pattern.compile("^\\s*#\\s*include\\s*<([^>]+)>");
+    /**
+     * A precompiled bits/stdc++.h takes tens of megabytes
+     */
+    static final int MAX_FLAG_SETS = 4;
+
+    private final String mHeader;
+    private final File mIncludeDir;
+
+    /**
+     * @param header  - name of the header as written in #include, e.g. bits/stdc++.h
+     * @param rootDir - directory which contains precompiled headers of all flag sets
+     */
+    public PrecompiledHeader(String header, File rootDir, String flagsHash) {
+        mHeader = header;
+        mIncludeDir = new File(rootDir, flagsHash);
+    }
+
+    /**
+     * @return true if one of the sources includes the given header
+     */
+    public static boolean isIncluded(String header, File[] sourceFiles) {
+        for (File sourceFile : sourceFiles) {
+            try {
+                BufferedReader reader = new BufferedReader(new FileReader(sourceFile));
+                try {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        Matcher matcher = SYSTEM_INCLUDE_PATTERN.matcher(line);
+                        if (matcher.find() && matcher.group(1).trim().equals(header)) {
+                            return true;
+                        }
+                    }
+                } finally {
+                    reader.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Delete the directories of the least recently used flag sets until at most
+     * {@link #MAX_FLAG_SETS} are left. The directories of older toolchains are never used again
+     * and are deleted this way too
+     *
+     * @param flagsHash - flag set which is in use, it is never deleted
+     */
+    public static void trim(File rootDir, String flagsHash) {
+        File[] files = rootDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        List<File> dirs = new ArrayList<>();
+        for (File file : files) {
+            if (file.isDirectory() && !file.getName().equals(flagsHash)) {
+                dirs.add(file);
+            }
+        }
+        Collections.sort(dirs, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                long diff = o1.lastModified() - o2.lastModified();
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+        //the directory in use counts as one
+        for (int i = 0; i < dirs.size() - (MAX_FLAG_SETS - 1); i++) {
+            IOUtils.delete(dirs.get(i));
+        }
+    }
+
+    /**
+     * Mark the flag set as recently used, see {@link #trim(File, String)}
+     */
+    public void touch() {
+        mIncludeDir.setLastModified(System.currentTimeMillis());
+    }
+
+    public String getHeader() {
+        return mHeader;
+    }
+
+    /**
+     * @return the directory must be passed with -I
+     */
+    public File getIncludeDir() {
+        return mIncludeDir;
+    }
+
+    public File getOutput() {
+        return new File(mIncludeDir, mHeader + ".gch");
+    }
+
+    /**
+     * The header is precompiled from a file which includes it. The include directory is not
+     * passed when building the .gch, so the real header is found
+     */
+    public File getSource() {
+        return new File(new File(mIncludeDir, "source"), mHeader.replace('/', '_'));
+    }
+
+    public String getSourceContent() {
+        return "#include <" + mHeader + ">\n";
+    }
+
+    public boolean exists() {
+        return getOutput().isFile() && getOutput().length() > 0;
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.compiler;
+
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import com.duy.ide.compiler.Hash;
+import com.jecelyin.common.utils.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Copies of sources in the build directory, used to compile the unsaved content of the editors
+ * without writing the user's files.
+ * <p>
+ * When a directory contains an unsaved file, the sources of that directory are compiled from a
+ * shadow directory which contains a copy of the sources and of every unsaved file of the
+ * directory. gcc searches quoted includes in the directory of the including file first, so
+ * unsaved headers are found there, other headers are found with -iquote in the original
+ * directory. Every copy starts with a #line directive, diagnostics refer to the original file.
+ * <p>
+ * A copy is only rewritten when its content changed, so the object files of unchanged sources
+ * stay up to date.
+ */
+
+public class ShadowSources {
+    private final File mRootDir;
+    /**
+     * Unsaved content by absolute path of the original file
+     */
+    private final Map<String, String> mUnsavedFiles = new HashMap<>();
+    /**
+     * Original directory by shadow directory
+     */
+    private final Map<File, File> mOriginalDirs = new HashMap<>();
+
+    /**
+     * @param unsavedFiles - content of the editors which differ from the files on storage
+     */
+    public ShadowSources(File rootDir, Map<File, String> unsavedFiles) {
+        mRootDir = rootDir;
+        for (Map.Entry<File, String> entry : unsavedFiles.entrySet()) {
+            mUnsavedFiles.put(entry.getKey().getAbsolutePath(), entry.getValue());
+        }
+    }
+
+    /**
+     * @return the files gcc must compile, in the same order. A source is replaced by its copy if
+     * its directory contains an unsaved file
+     */
+    @WorkerThread
+    public File[] prepare(File[] sourceFiles) throws IOException {
+        File[] units = new File[sourceFiles.length];
+        Map<File, Set<File>> written = new HashMap<>();
+        for (int i = 0; i < sourceFiles.length; i++) {
+            File source = sourceFiles[i].getAbsoluteFile();
+            File originalDir = source.getParentFile();
+            if (originalDir == null || !hasUnsavedFiles(originalDir)) {
+                units[i] = sourceFiles[i];
+                continue;
+            }
+            File shadowDir = getShadowDir(originalDir);
+            Set<File> files = written.get(shadowDir);
+            if (files == null) {
+                files = writeUnsavedFiles(originalDir, shadowDir);
+                written.put(shadowDir, files);
+            }
+            File copy = new File(shadowDir, source.getName());
+            if (!files.contains(copy)) {
+                writeCopy(copy, source, IOUtils.readFile(source));
+                files.add(copy);
+            }
+            units[i] = copy;
+        }
+        for (Map.Entry<File, Set<File>> entry : written.entrySet()) {
+            deleteStaleCopies(entry.getKey(), entry.getValue());
+        }
+        return units;
+    }
+
+    /**
+     * @return the directory of the user's files a shadow directory was created for, null if the
+     * directory is not a shadow directory
+     */
+    @Nullable
+    public File getOriginalDir(File dir) {
+        return mOriginalDirs.get(dir.getAbsoluteFile());
+    }
+
+    /**
+     * Find a header included with quotes the way gcc does it for the files of {@link #prepare(File[])}
+     *
+     * @param includingFile - a source, a copy or a header
+     * @param name          - the name between the quotes
+     * @return the header in the directory of the including file, otherwise in the original
+     * directory of a shadow directory. The file may not exist
+     */
+    public File resolveInclude(File includingFile, String name) {
+        File dir = includingFile.getAbsoluteFile().getParentFile();
+        File header = new File(dir, name);
+        if (!header.isFile()) {
+            File originalDir = getOriginalDir(dir);
+            if (originalDir != null) {
+                return new File(originalDir, name);
+            }
+        }
+        return header;
+    }
+
+    private boolean hasUnsavedFiles(File dir) {
+        for (String path : mUnsavedFiles.keySet()) {
+            if (dir.equals(new File(path).getParentFile())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private File getShadowDir(File originalDir) {
+        String name = new Hash().update(originalDir.getAbsolutePath()).toHex().substring(0, 8);
+        File shadowDir = new File(mRootDir, name);
+        mOriginalDirs.put(shadowDir.getAbsoluteFile(), originalDir);
+        try {
+            //included files are resolved with canonical paths, the files dir can be a symlink
+            mOriginalDirs.put(shadowDir.getCanonicalFile(), originalDir);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return shadowDir;
+    }
+
+    /**
+     * Copy the unsaved files of a directory
+     *
+     * @return the written copies
+     */
+    private Set<File> writeUnsavedFiles(File originalDir, File shadowDir) throws IOException {
+        if (!shadowDir.exists() && !shadowDir.mkdirs()) {
+            throw new IOException("Can not create " + shadowDir);
+        }
+        Set<File> written = new HashSet<>();
+        for (Map.Entry<String, String> entry : mUnsavedFiles.entrySet()) {
+            File original = new File(entry.getKey());
+            if (originalDir.equals(original.getParentFile())) {
+                File copy = new File(shadowDir, original.getName());
+                writeCopy(copy, original, entry.getValue());
+                written.add(copy);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Delete the copies of files which were saved since the previous build, they must be read
+     * from the original directory again
+     */
+    private static void deleteStaleCopies(File shadowDir, Set<File> written) {
+        File[] files = shadowDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!written.contains(file)) {
+                file.delete();
+            }
+        }
+    }
+
+    private static void writeCopy(File copy, File original, String content) throws IOException {
+        String path = original.getAbsolutePath().replace("\\", "\\\\").replace("\"", "\\\"");
+        //#line keeps the file name and line numbers of the original file in the diagnostics
+        String text = "#line 1 \"" + path + "\"\n" + content;
+        if (copy.isFile() && text.equals(IOUtils.readFile(copy))) {
+            return;
+        }
+        if (!IOUtils.writeFile(copy, text)) {
+            throw new IOException("Can not write " + copy);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.compiler;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import com.duy.ide.compiler.Hash;
+import com.jecelyin.common.utils.IOUtils;
+
+import org.gjt.sp.jedit.Mode;
+import org.gjt.sp.jedit.Segment;
+import org.gjt.sp.jedit.syntax.Token;
+import org.gjt.sp.jedit.syntax.TokenHandler;
+import org.gjt.sp.jedit.syntax.TokenMarker;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Digest of a source which only changes when the code changes. The source is split into tokens
+ * by the syntax highlighter tokenizer, comments are dropped and whitespace outside of literals
+ * is reduced to a single separator, so editing the text of a comment or re-indenting the file
+ * keeps the fingerprint.
+ * <p>
+ * Every line is hashed, also when it is empty or only contains a comment. Line breaks end
+ * preprocessor directives and line numbers are compiled into the binary by __LINE__, assert()
+ * and the debug info of -g. C++ raw strings aren't understood by the tokenizer, such sources are
+ * hashed byte by byte.
+ */
+
+public class SourceFingerprint {
+    private static final int CACHE_SIZE = 128;
+    private static final Map<String, String> sCache = Collections.synchronizedMap(
+            new LinkedHashMap<String, String>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    private final TokenMarker mTokenMarker;
+
+    /**
+     * @param tokenMarker - must not be shared with the editor, a token marker keeps the state of
+     *                    the line it is marking
+     */
+    public SourceFingerprint(TokenMarker tokenMarker) {
+        mTokenMarker = tokenMarker;
+    }
+
+    public static SourceFingerprint create(Context context) {
+        //comments and literals are written the same way in C++
+        Mode mode = new Mode("C", "c.xml", null, null);
+        return new SourceFingerprint(mode.getTokenMarker(context));
+    }
+
+    /**
+     * The fingerprint is cached by the digest of the content. The modification time can't be
+     * used, it has a resolution of one or two seconds and a source can be rewritten faster
+     */
+    public String compute(File file) throws IOException {
+        String content = IOUtils.readFile(file);
+        String digest = new Hash().update(content).toHex();
+        String fingerprint = sCache.get(digest);
+        if (fingerprint == null) {
+            fingerprint = compute(content);
+            sCache.put(digest, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * The token marker is not thread safe
+     */
+    @NonNull
+    synchronized String compute(String content) {
+        if (content.contains("R\"")) {
+            return "bytes:" + new Hash().update(content).toHex();
+        }
+        Hash hash = new Hash();
+        CodeTokenHandler handler = new CodeTokenHandler();
+        TokenMarker.LineContext context = null;
+        char[] chars = content.toCharArray();
+        int start = 0;
+        while (start <= chars.length) {
+            int end = start;
+            while (end < chars.length && chars[end] != '\n') {
+                end++;
+            }
+            char[] line = new char[end - start];
+            System.arraycopy(chars, start, line, 0, line.length);
+            handler.startLine();
+            context = mTokenMarker.markTokens(context, handler, new Segment(line, 0, line.length));
+
+            String code = handler.getCode();
+            if (endsWithBackslash(line) && !code.endsWith("\\")) {
+                //gcc continues a comment ending in a backslash on the next line, the tokenizer
+                //doesn't, so that line may be code for the tokenizer and a comment for gcc
+                code += " \\";
+            }
+            hash.update(code);
+            start = end + 1;
+        }
+        return "tokens:" + hash.toHex();
+    }
+
+    private static boolean endsWithBackslash(char[] line) {
+        int end = line.length;
+        while (end > 0 && Character.isWhitespace(line[end - 1])) {
+            end--;
+        }
+        return end > 0 && line[end - 1] == '\\';
+    }
+
+    /**
+     * Collect the code of a line without comments, whitespace between tokens becomes one space
+     */
+    private static class CodeTokenHandler implements TokenHandler {
+        private final StringBuilder mCode = new StringBuilder();
+        private boolean mSeparator;
+
+        void startLine() {
+            mCode.setLength(0);
+            mSeparator = false;
+        }
+
+        String getCode() {
+            return mCode.toString();
+        }
+
+        @Override
+        public void handleToken(Segment seg, byte id, int offset, int length,
+                                TokenMarker.LineContext context) {
+            if (id == Token.END || length <= 0) {
+                return;
+            }
+            switch (id) {
+                case Token.COMMENT1:
+                case Token.COMMENT2:
+                case Token.COMMENT3:
+                case Token.COMMENT4:
+                    //a comment separates tokens like a space
+                    mSeparator = true;
+                    return;
+                case Token.LITERAL1:
+                case Token.LITERAL2:
+                case Token.LITERAL3:
+                case Token.LITERAL4:
+                    appendSeparator();
+                    mCode.append(seg.array, seg.offset + offset, length);
+                    return;
+            }
+            for (int i = seg.offset + offset; i < seg.offset + offset + length; i++) {
+                char c = seg.array[i];
+                if (Character.isWhitespace(c)) {
+                    mSeparator = true;
+                } else {
+                    appendSeparator();
+                    mCode.append(c);
+                }
+            }
+        }
+
+        private void appendSeparator() {
+            if (mSeparator && mCode.length() > 0) {
+                mCode.append(' ');
+            }
+            mSeparator = false;
+        }
+
+        @Override
+        public void setLineContext(TokenMarker.LineContext lineContext) {
+
+        }
+    }
+}
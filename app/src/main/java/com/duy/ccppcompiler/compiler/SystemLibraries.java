@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.compiler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Libraries shipped with the toolchain which are not linked by default, and the headers which
+ * declare them. A library is only linked when one of its headers is included, linking unused
+ * libraries makes the linker slower and the binary loads them at start up.
+ */
+
+public class SystemLibraries {
+    /**
+     * All libraries in link order
+     */
+    static final String[] LIBRARIES = {"-lz", "-ldl", "-lm", "-llog", "-lncurses"};
+
+    private static final Map<String, String> HEADER_LIBRARIES = new HashMap<>();
+
+    static {
+        HEADER_LIBRARIES.put("zlib.h", "-lz");
+
+        HEADER_LIBRARIES.put("dlfcn.h", "-ldl");
+
+        HEADER_LIBRARIES.put("math.h", "-lm");
+        HEADER_LIBRARIES.put("tgmath.h", "-lm");
+        HEADER_LIBRARIES.put("complex.h", "-lm");
+        HEADER_LIBRARIES.put("fenv.h", "-lm");
+        HEADER_LIBRARIES.put("cmath", "-lm");
+        HEADER_LIBRARIES.put("ccomplex", "-lm");
+        HEADER_LIBRARIES.put("complex", "-lm");
+        HEADER_LIBRARIES.put("cfenv", "-lm");
+        HEADER_LIBRARIES.put("bits/stdc++.h", "-lm");
+
+        HEADER_LIBRARIES.put("android/log.h", "-llog");
+
+        HEADER_LIBRARIES.put("ncurses.h", "-lncurses");
+        HEADER_LIBRARIES.put("curses.h", "-lncurses");
+        HEADER_LIBRARIES.put("ncurses/ncurses.h", "-lncurses");
+        HEADER_LIBRARIES.put("ncurses/curses.h", "-lncurses");
+        HEADER_LIBRARIES.put("term.h", "-lncurses");
+    }
+
+    /**
+     * @param headers - system headers included by the sources
+     * @return link flags of the libraries needed by the headers, in link order
+     */
+    public static List<String> getLinkFlags(Collection<String> headers) {
+        List<String> needed = new ArrayList<>();
+        for (String header : headers) {
+            String library = HEADER_LIBRARIES.get(header);
+            if (library != null && !needed.contains(library)) {
+                needed.add(library);
+            }
+        }
+        List<String> flags = new ArrayList<>();
+        for (String library : LIBRARIES) {
+            if (needed.contains(library)) {
+                flags.add(library);
+            }
+        }
+        return flags;
+    }
+}
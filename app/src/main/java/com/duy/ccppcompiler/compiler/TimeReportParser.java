@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.compiler;
+
+import com.duy.ide.compiler.BuildMetrics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Read the timing lines gcc writes with -time and -ftime-report
+ */
+
+public class TimeReportParser {
+    /**
+     * Written by -time for every program started by the driver, user and system time in seconds
+     * <pre>
+     * # cc1plus 1.52 0.08
+     * </pre>
+     */
+    static final Pattern PROGRAM_TIME_PATTERN = Pattern.compile(
+            "^# (\\S+) (\\d+(?:\\.\\d+)?) (\\d+(?:\\.\\d+)?)\\s*$");
+    /**
+     * Written by -ftime-report for every compiler phase
+     * <pre>
+     *  phase parsing           :   0.50 ( 60%) usr   0.05 ( 40%) sys   0.56 ( 58%) wall   12345 kB (70%) ggc
+     * </pre>
+     */
+    static final Pattern PHASE_TIME_PATTERN = Pattern.compile(
+            "^\\s*phase ([^:]+?)\\s*:.*?(\\d+(?:\\.\\d+)?) \\(\\s*\\d+%\\) wall");
+
+    private TimeReportParser() {
+    }
+
+    /**
+     * Add the time of every program and phase found in the compiler output to the metrics
+     */
+    public static void parse(Reader output, BuildMetrics metrics) throws IOException {
+        BufferedReader reader = new BufferedReader(output);
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                parseLine(line, metrics);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    static void parseLine(String line, BuildMetrics metrics) {
+        //cheap checks first, almost every line is a diagnostic
+        if (line.startsWith("# ")) {
+            Matcher matcher = PROGRAM_TIME_PATTERN.matcher(line);
+            if (matcher.find()) {
+                double seconds = Double.parseDouble(matcher.group(2)) + Double.parseDouble(matcher.group(3));
+                metrics.addPhaseTime(matcher.group(1), Math.round(seconds * 1000));
+            }
+        } else if (line.contains("phase ")) {
+            Matcher matcher = PHASE_TIME_PATTERN.matcher(line);
+            if (matcher.find()) {
+                double seconds = Double.parseDouble(matcher.group(2));
+                metrics.addPhaseTime(matcher.group(1), Math.round(seconds * 1000));
+            }
+        }
+    }
+}
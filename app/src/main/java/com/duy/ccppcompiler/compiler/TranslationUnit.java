@@ -0,0 +1,183 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.compiler;
+
+import android.support.annotation.NonNull;
+
+import com.duy.ide.compiler.Hash;
+import com.jecelyin.common.utils.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One source file compiled with -c into its own object file.
+ * <p>
+ * gcc writes the headers used by the source into a dependency file (-MMD -MF). After a
+ * successful compile, the stamp file records the compile flags and the modification time and
+ * size of every file listed in the dependency file. The object is up to date as long as the
+ * recorded stamp matches the current state of these files.
+ */
+
+public class TranslationUnit {
+    private final File mSource;
+    private final File mObject;
+    private final File mDependencyFile;
+    private final File mStampFile;
+
+    public TranslationUnit(File source, File objectDir) {
+        mSource = source;
+        String name = source.getName() + "-" + new Hash().update(source.getAbsolutePath()).toHex().substring(0, 8);
+        mObject = new File(objectDir, name + ".o");
+        mDependencyFile = new File(objectDir, name + ".d");
+        mStampFile = new File(objectDir, name + ".stamp");
+    }
+
+    /**
+     * Parse make rule generated by -MMD, for example
+     * <pre>
+     * main.o: /sdcard/project/main.c /sdcard/project/util\ 1.h \
+     *  /sdcard/project/list.h
+     * </pre>
+     *
+     * @return all prerequisites of the rule, the first one is the source file
+     */
+    @NonNull
+    static List<String> parseDependencies(String content) {
+        List<String> prerequisites = new ArrayList<>();
+        int length = content.length();
+        int index = 0;
+        //skip target, the first ':' followed by a white space
+        while (index < length) {
+            char c = content.charAt(index);
+            if (c == '\\') {
+                index += 2;
+                continue;
+            }
+            index++;
+            if (c == ':' && (index >= length || Character.isWhitespace(content.charAt(index)))) {
+                break;
+            }
+        }
+
+        StringBuilder path = new StringBuilder();
+        while (index < length) {
+            char c = content.charAt(index);
+            if (c == '\\' && index + 1 < length) {
+                char next = content.charAt(index + 1);
+                if (next == '\n' || next == '\r') {
+                    //line continuation, acts as a separator
+                    if (path.length() > 0) {
+                        prerequisites.add(path.toString());
+                        path.setLength(0);
+                    }
+                    index += 2;
+                    if (next == '\r' && index < length && content.charAt(index) == '\n') {
+                        index++;
+                    }
+                    continue;
+                }
+                path.append(next);
+                index += 2;
+                continue;
+            }
+            if (c == '$' && index + 1 < length && content.charAt(index + 1) == '$') {
+                path.append('$');
+                index += 2;
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                if (path.length() > 0) {
+                    prerequisites.add(path.toString());
+                    path.setLength(0);
+                }
+                if (c == '\n' && !prerequisites.isEmpty()) {
+                    //-MMD writes one rule only
+                    break;
+                }
+                index++;
+                continue;
+            }
+            path.append(c);
+            index++;
+        }
+        if (path.length() > 0) {
+            prerequisites.add(path.toString());
+        }
+        return prerequisites;
+    }
+
+    public File getSource() {
+        return mSource;
+    }
+
+    public File getObject() {
+        return mObject;
+    }
+
+    public File getDependencyFile() {
+        return mDependencyFile;
+    }
+
+    /**
+     * @param flagsHash - digest of the flags used to compile this unit
+     * @return true if the object file was compiled with the same flags from the current content
+     * of the source and all headers it includes
+     */
+    public boolean isUpToDate(String flagsHash) {
+        if (!mObject.isFile() || !mStampFile.isFile() || !mDependencyFile.isFile()) {
+            return false;
+        }
+        try {
+            String oldStamp = IOUtils.readFile(mStampFile);
+            return oldStamp.equals(createStamp(flagsHash));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Must be called after the object was compiled successfully
+     */
+    public void writeStamp(String flagsHash) {
+        try {
+            if (!IOUtils.writeFile(mStampFile, createStamp(flagsHash))) {
+                mStampFile.delete();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            mStampFile.delete();
+        }
+    }
+
+    public void invalidate() {
+        mStampFile.delete();
+    }
+
+    private String createStamp(String flagsHash) throws IOException {
+        StringBuilder stamp = new StringBuilder(flagsHash).append('\n');
+        for (String path : parseDependencies(IOUtils.readFile(mDependencyFile))) {
+            File file = new File(path);
+            stamp.append(file.lastModified()).append(' ')
+                    .append(file.length()).append(' ')
+                    .append(path).append('\n');
+        }
+        return stamp.toString();
+    }
+}
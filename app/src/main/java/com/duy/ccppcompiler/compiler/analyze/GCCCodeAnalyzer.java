@@ -16,15 +16,169 @@
 
 package com.duy.ccppcompiler.compiler.analyze;
 
+import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.Nullable;
+
+import com.duy.ccppcompiler.compiler.GCCCompiler;
+import com.duy.ccppcompiler.compiler.diagnostic.Diagnostic;
+import com.duy.ccppcompiler.compiler.diagnostic.DiagnosticsCollector;
+import com.duy.ccppcompiler.compiler.diagnostic.OutputParser;
+import com.duy.ccppcompiler.diagnostic.DiagnosticPresenter;
+import com.duy.common.DLog;
+import com.duy.ide.compiler.CompileScheduler;
 import com.duy.ide.compiler.analyze.ICodeAnalysis;
+import com.duy.ide.compiler.shell.ProcessSupervisor;
+import com.duy.ide.compiler.shell.ShellResult;
+import com.jecelyin.editor.v2.Preferences;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 
 /**
+ * Runs gcc with -fsyntax-only on the edited content of a source after typing pauses, so errors
+ * are shown without compiling and linking the whole program.
+ * <p>
+ * Only one check runs at a time, a new check cancels the running one. Checks are registered as
+ * background checks of {@link CompileScheduler}, so they never compete with a foreground build.
+ * <p>
  * Created by Duy on 25-Apr-18.
  */
 
 public class GCCCodeAnalyzer implements ICodeAnalysis {
+    private static final String TAG = "GCCCodeAnalyzer";
+    /**
+     * Time without any edit before the check starts
+     */
+    private static final long DEBOUNCE_DELAY = 1500;
+
+    protected final Context mContext;
+    private final File mSourceFile;
+    private final CompileScheduler mScheduler;
+    private final DiagnosticPresenter mDiagnosticPresenter;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    @Nullable
+    private CharSequence mContent;
+    private int mGeneration;
+    @Nullable
+    private CheckTask mRunningTask;
+
+    private final Runnable mCheckRunnable = new Runnable() {
+        @Override
+        public void run() {
+            startCheck();
+        }
+    };
+
+    public GCCCodeAnalyzer(Context context, File sourceFile, CompileScheduler scheduler,
+                           DiagnosticPresenter diagnosticPresenter) {
+        mContext = context;
+        mSourceFile = sourceFile;
+        mScheduler = scheduler;
+        mDiagnosticPresenter = diagnosticPresenter;
+    }
+
+    @Override
+    public void analyze(CharSequence charSequence, int generation) {
+        mContent = charSequence;
+        mGeneration = generation;
+        mHandler.removeCallbacks(mCheckRunnable);
+        mHandler.postDelayed(mCheckRunnable, DEBOUNCE_DELAY);
+    }
+
     @Override
-    public void analyze(String charSequence) {
+    public void cancel() {
+        mHandler.removeCallbacks(mCheckRunnable);
+        mContent = null;
+        if (mRunningTask != null) {
+            mRunningTask.abort();
+            mRunningTask = null;
+        }
+    }
+
+    protected GCCCompiler createCompiler() {
+        return new GCCCompiler(mContext);
+    }
+
+    private void startCheck() {
+        if (mContent == null) {
+            return;
+        }
+        if (mRunningTask != null) {
+            mRunningTask.abort();
+            mRunningTask = null;
+        }
+        Preferences preferences = Preferences.getInstance(mContext);
+        ProcessSupervisor supervisor = mScheduler.startBackgroundCheck(
+                preferences.getCompileTimeout(), preferences.getCompileMemoryLimit());
+        if (supervisor == null) {
+            //a build is running, it reports the diagnostics
+            return;
+        }
+        //take the snapshot on the main thread, the editor can't change while it is copied
+        mRunningTask = new CheckTask(mContent.toString(), mGeneration, supervisor);
+        mContent = null;
+        //don't use the serial executor, a check must not delay the next build
+        mRunningTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    private class CheckTask extends AsyncTask<Void, Void, ArrayList<Diagnostic>> {
+        private final String mSnapshot;
+        private final int mSnapshotGeneration;
+        private final ProcessSupervisor mSupervisor;
+
+        CheckTask(String snapshot, int generation, ProcessSupervisor supervisor) {
+            mSnapshot = snapshot;
+            mSnapshotGeneration = generation;
+            mSupervisor = supervisor;
+        }
+
+        void abort() {
+            mSupervisor.cancel();
+        }
+
+        @Override
+        protected ArrayList<Diagnostic> doInBackground(Void... voids) {
+            ShellResult result = null;
+            try {
+                result = createCompiler().checkSyntax(mSourceFile, mSnapshot, mSupervisor);
+                if (DLog.DEBUG)
+                    DLog.d(TAG, "checkSyntax: " + mSourceFile + " finished in " + result.getTime() + "ms");
+                if (mSupervisor.isAborted()) {
+                    return null;
+                }
+                DiagnosticsCollector diagnosticsCollector = new DiagnosticsCollector();
+                OutputParser parser = new OutputParser(diagnosticsCollector);
+                parser.parse(result.openMessageReader());
+                return diagnosticsCollector.getDiagnostics();
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            } finally {
+                //the output may be spilled to a file
+                if (result != null) {
+                    result.release();
+                }
+                mScheduler.finishBackgroundCheck(mSupervisor);
+            }
+        }
 
+        @Override
+        protected void onPostExecute(ArrayList<Diagnostic> diagnostics) {
+            super.onPostExecute(diagnostics);
+            if (mRunningTask != this) {
+                //outdated, another check was started
+                return;
+            }
+            mRunningTask = null;
+            if (diagnostics != null) {
+                //the check only knows this source, the build errors of other sources are kept.
+                //The presenter drops the result if the content was edited during the check
+                mDiagnosticPresenter.replaceDiagnostics(mSourceFile, diagnostics, mSnapshotGeneration);
+            }
+        }
     }
 }
@@ -16,15 +16,28 @@
 
 package com.duy.ccppcompiler.compiler.analyze;
 
-import com.duy.ide.compiler.analyze.ICodeAnalysis;
+import android.content.Context;
+
+import com.duy.ccppcompiler.compiler.GCCCompiler;
+import com.duy.ccppcompiler.compiler.GPlusPlusCompiler;
+import com.duy.ccppcompiler.diagnostic.DiagnosticPresenter;
+import com.duy.ide.compiler.CompileScheduler;
+
+import java.io.File;
 
 /**
  * Created by Duy on 25-Apr-18.
  */
 
-public class GPlusPlusCodeAnalyzer implements ICodeAnalysis {
-    @Override
-    public void analyze(String charSequence) {
+public class GPlusPlusCodeAnalyzer extends GCCCodeAnalyzer {
 
+    public GPlusPlusCodeAnalyzer(Context context, File sourceFile, CompileScheduler scheduler,
+                                 DiagnosticPresenter diagnosticPresenter) {
+        super(context, sourceFile, scheduler, diagnosticPresenter);
+    }
+
+    @Override
+    protected GCCCompiler createCompiler() {
+        return new GPlusPlusCompiler(mContext);
     }
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.compiler.analyze;
+
+import android.app.Activity;
+import android.app.ProgressDialog;
+import android.content.DialogInterface;
+import android.os.AsyncTask;
+import android.widget.Toast;
+
+import com.duy.ccppcompiler.R;
+import com.duy.ccppcompiler.compiler.GCCCompiler;
+import com.duy.ccppcompiler.compiler.diagnostic.Diagnostic;
+import com.duy.ccppcompiler.compiler.diagnostic.DiagnosticsCollector;
+import com.duy.ccppcompiler.compiler.diagnostic.OptimizationRemarkParser;
+import com.duy.ccppcompiler.compiler.diagnostic.OutputParser;
+import com.duy.ccppcompiler.diagnostic.DiagnosticPresenter;
+import com.duy.ccppcompiler.diagnostic.SnapshotGenerations;
+import com.duy.common.DLog;
+import com.duy.ide.compiler.CompileScheduler;
+import com.duy.ide.compiler.shell.ProcessSupervisor;
+import com.duy.ide.compiler.shell.ShellResult;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Compiles the content of one editor with -fopt-info and shows the optimization remarks in the
+ * diagnostic list, together with the errors if the content does not compile.
+ * <p>
+ * Runs as a background check of {@link CompileScheduler}, a build started meanwhile cancels it.
+ */
+
+public class OptimizationReportTask extends AsyncTask<Void, Void, ArrayList<Diagnostic>> {
+    private static final String TAG = "OptimizationReportTask";
+    private final Activity mActivity;
+    private final GCCCompiler mCompiler;
+    private final File mSourceFile;
+    private final String mSnapshot;
+    private final SnapshotGenerations mGenerations;
+    private final CompileScheduler mScheduler;
+    private final ProcessSupervisor mSupervisor;
+    private final DiagnosticPresenter mDiagnosticPresenter;
+    private ProgressDialog mProgressDialog;
+
+    /**
+     * @param supervisor - registered with {@link CompileScheduler#startBackgroundCheck(long, long)}
+     */
+    public OptimizationReportTask(Activity activity, GCCCompiler compiler, File sourceFile, String snapshot,
+                                  SnapshotGenerations generations, CompileScheduler scheduler,
+                                  ProcessSupervisor supervisor, DiagnosticPresenter diagnosticPresenter) {
+        mActivity = activity;
+        mCompiler = compiler;
+        mSourceFile = sourceFile;
+        mSnapshot = snapshot;
+        mGenerations = generations;
+        mScheduler = scheduler;
+        mSupervisor = supervisor;
+        mDiagnosticPresenter = diagnosticPresenter;
+    }
+
+    @Override
+    protected void onPreExecute() {
+        super.onPreExecute();
+        mProgressDialog = new ProgressDialog(mActivity);
+        mProgressDialog.setTitle(R.string.optimization_report);
+        mProgressDialog.setMessage(mActivity.getString(R.string.title_compiling));
+        mProgressDialog.setCancelable(false);
+        mProgressDialog.setButton(DialogInterface.BUTTON_NEGATIVE, mActivity.getString(R.string.abort),
+                new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        mSupervisor.cancel();
+                    }
+                });
+        mProgressDialog.show();
+    }
+
+    @Override
+    protected ArrayList<Diagnostic> doInBackground(Void... voids) {
+        ShellResult result = null;
+        try {
+            result = mCompiler.generateOptimizationReport(mSourceFile, mSnapshot, mSupervisor);
+            if (DLog.DEBUG)
+                DLog.d(TAG, "generateOptimizationReport: " + mSourceFile + " finished in " + result.getTime() + "ms");
+            if (mSupervisor.isAborted()) {
+                return null;
+            }
+            DiagnosticsCollector diagnosticsCollector = new DiagnosticsCollector();
+            new OutputParser(diagnosticsCollector).parse(result.openMessageReader());
+            if (result.getResultCode() == 0) {
+                for (File remarkFile : mCompiler.getRemarkFiles(mSourceFile)) {
+                    if (remarkFile.isFile()) {
+                        new OptimizationRemarkParser(diagnosticsCollector).parse(new FileReader(remarkFile));
+                    }
+                }
+            }
+            return diagnosticsCollector.getDiagnostics();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            if (result != null) {
+                result.release();
+            }
+            mScheduler.finishBackgroundCheck(mSupervisor);
+        }
+    }
+
+    @Override
+    protected void onPostExecute(ArrayList<Diagnostic> diagnostics) {
+        super.onPostExecute(diagnostics);
+        if (mActivity.isFinishing()) {
+            return;
+        }
+        mProgressDialog.dismiss();
+        if (diagnostics == null) {
+            return;
+        }
+        if (diagnostics.isEmpty()) {
+            Toast.makeText(mActivity, R.string.no_optimization_remarks, Toast.LENGTH_LONG).show();
+        }
+        mDiagnosticPresenter.setDiagnostics(diagnostics, mGenerations);
+        mDiagnosticPresenter.showView();
+    }
+
+    /**
+     * Stop the compiler, called when the activity is destroyed
+     */
+    public void cancel() {
+        mSupervisor.cancel();
+        cancel(false);
+        if (mProgressDialog != null && mProgressDialog.isShowing()) {
+            mProgressDialog.dismiss();
+        }
+    }
+}
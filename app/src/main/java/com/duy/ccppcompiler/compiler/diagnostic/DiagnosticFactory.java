@@ -43,7 +43,7 @@ public class DiagnosticFactory {
 
     public static Kind createType(String type) {
         type = type.trim().toLowerCase();
-        if (type.startsWith("error")) {
+        if (type.startsWith("error") || type.startsWith("fatal error")) {
             return Kind.ERROR;
         } else if (type.startsWith("warn")) {
             return Kind.WARNING;
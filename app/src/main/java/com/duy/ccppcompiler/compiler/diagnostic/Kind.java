@@ -34,6 +34,10 @@ public enum Kind {
      * Informative message from the tool.
      */
     NOTE("note"),
+    /**
+     * Optimization remark, reports whether a transformation was applied (-fopt-info).
+     */
+    REMARK("remark"),
     /**
      * Diagnostic which does not fit within the other kinds.
      */
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.compiler.diagnostic;
+
+import android.support.annotation.Nullable;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Parses the report written by -fopt-info. Every located line is an optimization remark, gcc 7
+ * prints them as notes, newer versions as "optimized:" or "missed:".
+ * <p>
+ * Banners of the analysis passes ("=== vect_analyze_loop ===") are skipped, so are remarks
+ * which are printed again for another vector size.
+ */
+
+public class OptimizationRemarkParser extends OutputParser {
+    private final Set<String> mReported = new HashSet<>();
+
+    public OptimizationRemarkParser(DiagnosticsCollector diagnosticsCollector) {
+        super(diagnosticsCollector);
+    }
+
+    @Nullable
+    @Override
+    protected Diagnostic createDiagnostic(String type, String filePath, int line, int col, String message) {
+        if (message.isEmpty() || message.startsWith("=")) {
+            return null;
+        }
+        if (!type.equals("note")) {
+            message = type + ": " + message;
+        }
+        if (!mReported.add(filePath + ":" + line + ":" + col + ":" + message)) {
+            return null;
+        }
+        return DiagnosticFactory.create(Kind.REMARK, filePath, line, col, message);
+    }
+}
@@ -16,14 +16,13 @@
 
 package com.duy.ccppcompiler.compiler.diagnostic;
 
-import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import com.duy.ccppcompiler.compiler.diagnostic.suggestion.ISuggestion;
 
-import java.io.LineNumberReader;
+import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -31,10 +30,18 @@ import java.util.regex.Pattern;
  * <p>
  * https://gcc.gnu.org/onlinedocs/gcc-7.2.0/gcc/Diagnostic-Message-Formatting-Options.html
  * <p>
+ * Reads the output in chunks and scans every line by hand, each diagnostic is reported to the
+ * listener as soon as its line is read. Lines without a location don't allocate anything, the
+ * output of a failed build of a template heavy source is mostly such lines.
+ * <p>
  * Created by Duy on 28-Apr-18.
  */
 
 public class OutputParser {
+    /**
+     * Format of a diagnostic line, the parser scans it without a regular expression. The first
+     * group is greedy and backtracks a lot on long lines
+     */
     public static final Pattern DIAGNOSTICS_PATTERN = Pattern.compile(
             "(.*):" + /*File path*/
                     "([0-9]+):" + /*Line*/
@@ -53,72 +60,261 @@ public class OutputParser {
             "(.*):" + /*File path*/
                     "(.*)" /*Message*/);
 
-    private DiagnosticsCollector diagnosticsCollector;
+    private static final String FIX_IT_PREFIX = "fix-it:\"";
+    private static final int BUFFER_SIZE = 8192;
+
+    private final DiagnosticListener mListener;
+    /**
+     * The diagnostic of the latest located line, fix-it hints are printed after it. Null if that
+     * line was skipped
+     */
+    @Nullable
+    private Diagnostic mLastDiagnostic;
+    private char[] mLine = new char[256];
+    private int mLineLength;
+    /**
+     * Numbers and positions found by the scanner of the current line
+     */
+    private final int[] mFields = new int[6];
+
+    public OutputParser(DiagnosticListener listener) {
+        mListener = listener;
+    }
 
-    public OutputParser(DiagnosticsCollector diagnosticsCollector) {
-        this.diagnosticsCollector = diagnosticsCollector;
+    /**
+     * Called for every line which has a location
+     *
+     * @param type - the kind written by gcc, for example "error" or "fatal error"
+     * @return the diagnostic to report, null to skip the line
+     */
+    @Nullable
+    protected Diagnostic createDiagnostic(String type, String filePath, int line, int col, String message) {
+        return DiagnosticFactory.create(DiagnosticFactory.createType(type), filePath, line, col, message);
     }
 
-    @SuppressWarnings("unchecked")
     public void parse(String inputData) {
-        try {
-            StringReader stringReader = new StringReader(inputData);
-            LineNumberReader lineReader = new LineNumberReader(stringReader);
+        parse(new StringReader(inputData));
+    }
 
-            String line;
-            while ((line = lineReader.readLine()) != null) {
-                processLine(lineReader, line, lineReader.readLine());
+    /**
+     * Parse the output line by line, the output is never loaded into memory at once
+     */
+    public void parse(Reader input) {
+        mLastDiagnostic = null;
+        mLineLength = 0;
+        char[] buffer = new char[BUFFER_SIZE];
+        try {
+            int count;
+            while ((count = input.read(buffer)) > 0) {
+                for (int i = 0; i < count; i++) {
+                    char c = buffer[i];
+                    if (c == '\n') {
+                        processLine();
+                        mLineLength = 0;
+                    } else {
+                        appendToLine(c);
+                    }
+                }
+            }
+            if (mLineLength > 0) {
+                processLine();
+                mLineLength = 0;
             }
-
         } catch (Exception e) {
             //should not happened
             e.printStackTrace();
+        } finally {
+            try {
+                input.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private void processLine(LineNumberReader lineReader, @NonNull String line, @Nullable String nextLine) {
-        try {
-            line = line.trim();
-            Matcher matcher = DIAGNOSTICS_PATTERN.matcher(line);
-            Diagnostic diagnostic;
-            if (matcher.find()) {
-                String filePath = matcher.group(1);
-                int lineNumber = Integer.parseInt(matcher.group(2));
-                int colNumber = Integer.parseInt(matcher.group(3));
-                Kind type = DiagnosticFactory.createType(matcher.group(4));
-                String message = matcher.group(5);
-
-                diagnostic = DiagnosticFactory.create(type, filePath, lineNumber, colNumber, message);
-                diagnosticsCollector.report(diagnostic);
-            } else {
-                if (nextLine != null) {
-                    processLine(lineReader, nextLine, lineReader.readLine());
+    private void appendToLine(char c) {
+        if (mLineLength == mLine.length) {
+            char[] line = new char[mLine.length * 2];
+            System.arraycopy(mLine, 0, line, 0, mLineLength);
+            mLine = line;
+        }
+        mLine[mLineLength++] = c;
+    }
+
+    private void processLine() {
+        char[] line = mLine;
+        int start = 0;
+        int end = mLineLength;
+        while (start < end && line[start] <= ' ') {
+            start++;
+        }
+        while (end > start && line[end - 1] <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return;
+        }
+        if (startsWith(line, start, end, FIX_IT_PREFIX)) {
+            processFixIt(line, start + FIX_IT_PREFIX.length(), end);
+            return;
+        }
+        //the path may contain ':', the location is the first ":line:col: type:" of the line
+        for (int colon = start + 1; colon < end; colon++) {
+            if (line[colon] == ':' && scanLocation(line, colon, end)) {
+                String filePath = new String(line, start, colon - start);
+                String type = new String(line, mFields[2], mFields[3] - mFields[2]);
+                String message = new String(line, mFields[4], end - mFields[4]);
+                Diagnostic diagnostic = createDiagnostic(type, filePath, mFields[0], mFields[1], message);
+                if (diagnostic != null) {
+                    mListener.report(diagnostic);
                 }
+                mLastDiagnostic = diagnostic;
                 return;
             }
-            if (nextLine == null) {
+        }
+    }
+
+    /**
+     * Scan ":line:col: type: " at the colon, the type contains only letters, spaces and commas
+     * ("sorry, unimplemented"), so a context line like "  required from here" is not matched
+     *
+     * @return true if the location was found, the line, column, start and end of the type and
+     * start of the message are stored in {@link #mFields}
+     */
+    private boolean scanLocation(char[] line, int colon, int end) {
+        int pos = scanNumber(line, colon + 1, end, 0);
+        if (pos < 0 || pos >= end || line[pos] != ':') {
+            return false;
+        }
+        pos = scanNumber(line, pos + 1, end, 1);
+        if (pos < 0 || pos >= end || line[pos] != ':') {
+            return false;
+        }
+        pos++;
+        if (pos >= end || line[pos] > ' ') {
+            return false;
+        }
+        while (pos < end && line[pos] <= ' ') {
+            pos++;
+        }
+        int typeStart = pos;
+        while (pos < end && (Character.isLetter(line[pos]) || line[pos] == ' ' || line[pos] == ',')) {
+            pos++;
+        }
+        if (pos == typeStart || pos >= end || line[pos] != ':') {
+            return false;
+        }
+        int typeEnd = pos;
+        pos++;
+        if (pos < end && line[pos] > ' ') {
+            return false;
+        }
+        while (pos < end && line[pos] <= ' ') {
+            pos++;
+        }
+        mFields[2] = typeStart;
+        mFields[3] = typeEnd;
+        mFields[4] = pos;
+        return true;
+    }
+
+    /**
+     * @return position after the digits, -1 if there is no digit
+     */
+    private int scanNumber(char[] line, int pos, int end, int field) {
+        int start = pos;
+        int value = 0;
+        while (pos < end && line[pos] >= '0' && line[pos] <= '9') {
+            if (value < Integer.MAX_VALUE / 10) {
+                value = value * 10 + (line[pos] - '0');
+            }
+            pos++;
+        }
+        if (pos == start) {
+            return -1;
+        }
+        mFields[field] = value;
+        return pos;
+    }
+
+    /**
+     * fix-it:"file":{lineStart:colStart-lineEnd:colEnd}:"replacement", the prefix is already read
+     */
+    private void processFixIt(char[] line, int pos, int end) {
+        if (mLastDiagnostic == null || mLastDiagnostic.getSuggestion() != null) {
+            return;
+        }
+        StringBuilder filePath = new StringBuilder();
+        pos = readQuoted(line, pos, end, filePath);
+        if (pos < 0 || !startsWith(line, pos, end, ":{")) {
+            return;
+        }
+        int[] range = new int[4];
+        pos += 2;
+        for (int i = 0; i < 4; i++) {
+            pos = scanNumber(line, pos, end, 0);
+            char separator = i == 1 ? '-' : (i == 3 ? '}' : ':');
+            if (pos < 0 || pos >= end || line[pos] != separator) {
                 return;
             }
-            nextLine = nextLine.trim();
-
-            matcher = FIX_IT_PATTERN.matcher(nextLine);
-            if (matcher.find()) {
-                String filePath = matcher.group(2);
-                int lineStart = Integer.parseInt(matcher.group(3));
-                int colStart = Integer.parseInt(matcher.group(4));
-                int lineEnd = Integer.parseInt(matcher.group(5));
-                int colEnd = Integer.parseInt(matcher.group(6));
-                String message = matcher.group(7);
-                ISuggestion suggestion = DiagnosticFactory.createSuggestion(filePath, lineStart, colStart, lineEnd, colEnd, message);
-                diagnostic.setSuggestion(suggestion);
+            range[i] = mFields[0];
+            pos++;
+        }
+        if (!startsWith(line, pos, end, ":\"")) {
+            return;
+        }
+        StringBuilder replacement = new StringBuilder();
+        if (readQuoted(line, pos + 2, end, replacement) < 0) {
+            return;
+        }
+        ISuggestion suggestion = DiagnosticFactory.createSuggestion(filePath.toString(),
+                range[0], range[1], range[2], range[3], replacement.toString());
+        mLastDiagnostic.setSuggestion(suggestion);
+    }
+
+    /**
+     * Read a string escaped by gcc until the closing quote, gcc escapes '\\', '"' and
+     * non-printable characters as octal
+     *
+     * @return position after the closing quote, -1 if there is none
+     */
+    private static int readQuoted(char[] line, int pos, int end, StringBuilder out) {
+        while (pos < end) {
+            char c = line[pos++];
+            if (c == '"') {
+                return pos;
+            }
+            if (c != '\\' || pos >= end) {
+                out.append(c);
+                continue;
+            }
+            c = line[pos++];
+            if (c == 'n') {
+                out.append('\n');
+            } else if (c == 't') {
+                out.append('\t');
+            } else if (c >= '0' && c <= '7') {
+                int value = c - '0';
+                for (int i = 0; i < 2 && pos < end && line[pos] >= '0' && line[pos] <= '7'; i++) {
+                    value = value * 8 + (line[pos++] - '0');
+                }
+                out.append((char) value);
             } else {
-                processLine(lineReader, nextLine, lineReader.readLine());
+                out.append(c);
             }
+        }
+        return -1;
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            //should not happend
+    private static boolean startsWith(char[] line, int pos, int end, String prefix) {
+        if (end - pos < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (line[pos + i] != prefix.charAt(i)) {
+                return false;
+            }
         }
+        return true;
     }
 }
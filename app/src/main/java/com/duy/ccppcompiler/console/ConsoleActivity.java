@@ -41,6 +41,10 @@ import com.termux.view.TerminalView;
 public class ConsoleActivity extends AppCompatActivity implements ServiceConnection {
 
     public static final String EXTRA_BINARY_FILE_PATH = "file_path";
+    /**
+     * Title of the build profile of the binary, shown in the title bar
+     */
+    public static final String EXTRA_BUILD_PROFILE = "build_profile";
     private static final String TAG = "ConsoleActivity";
 
     private static final int MAX_FONTSIZE = 256;
@@ -56,7 +60,12 @@ public class ConsoleActivity extends AppCompatActivity implements ServiceConnect
         setContentView(R.layout.activity_console);
         setSupportActionBar((Toolbar) findViewById(R.id.toolbar));
         getSupportActionBar().setDisplayHomeAsUpEnabled(true);
-        setTitle(R.string.title_activity_console);
+        String buildProfile = getIntent().getStringExtra(EXTRA_BUILD_PROFILE);
+        if (buildProfile != null) {
+            setTitle(getString(R.string.title_activity_console_profile, buildProfile));
+        } else {
+            setTitle(R.string.title_activity_console);
+        }
 
         computeFontSize();
         initView();
@@ -30,12 +30,14 @@ import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A background job launched by Termux.
  */
-final class BackgroundJob {
+public final class BackgroundJob {
 
     private static final String LOG_TAG = "termux-task";
 
@@ -139,6 +141,18 @@ final class BackgroundJob {
         }
     }
 
+    /**
+     * Same as {@link #buildEnvironment(boolean, String, Context)} for {@link ProcessBuilder}
+     */
+    public static Map<String, String> buildEnvironmentMap(boolean failSafe, String cwd, Context context) {
+        Map<String, String> environment = new HashMap<>();
+        for (String variable : buildEnvironment(failSafe, cwd, context)) {
+            int index = variable.indexOf('=');
+            environment.put(variable.substring(0, index), variable.substring(index + 1));
+        }
+        return environment;
+    }
+
     private static int getPid(Process p) {
         try {
             Field f = p.getClass().getDeclaredField("pid");
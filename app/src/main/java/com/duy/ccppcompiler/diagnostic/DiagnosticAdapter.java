@@ -1,7 +1,10 @@
 package com.duy.ccppcompiler.diagnostic;
 
 import android.content.Context;
+import android.os.AsyncTask;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -10,22 +13,57 @@ import android.widget.TextView;
 
 import com.duy.ccppcompiler.R;
 import com.duy.ccppcompiler.compiler.diagnostic.Diagnostic;
+import com.duy.ccppcompiler.compiler.diagnostic.Kind;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 
 /**
+ * A new list of diagnostics is compared with the shown one on a background thread, only the
+ * rows which changed are updated so the scroll position is kept. Rows are formatted when they
+ * are bound.
+ * <p>
  * Created by Duy on 28-Apr-18.
  */
 
 public class DiagnosticAdapter extends RecyclerView.Adapter<DiagnosticAdapter.ViewHolder> {
+    public static final int FILTER_ALL = 0;
+    /**
+     * Errors, warnings and notes
+     */
+    public static final int FILTER_PROBLEMS = 1;
+    /**
+     * Optimization remarks, see {@link Kind#REMARK}
+     */
+    public static final int FILTER_REMARKS = 2;
+
     private List<Diagnostic> mDiagnostics;
+    /**
+     * The diagnostics which pass the filter, in the order of {@link #mDiagnostics}. While a diff
+     * is computed these are still the shown rows of the previous list
+     */
+    private List<Diagnostic> mVisible = new ArrayList<>();
+    private int mFilter = FILTER_ALL;
+    /**
+     * Incremented for every change of the list, a diff computed for an older list is dropped
+     */
+    private int mGeneration = 0;
+    @Nullable
+    private DiffTask mDiffTask;
+    /**
+     * True while the rows were appended from a build whose output is still parsed
+     */
+    private boolean mAppending = false;
     private Context mContext;
     private DiagnosticClickListener mDiagnosticClickListener;
 
     DiagnosticAdapter(List<Diagnostic> diagnostics, Context context) {
         this.mDiagnostics = diagnostics;
         this.mContext = context;
+        applyFilter();
     }
 
 
@@ -33,62 +71,179 @@ public class DiagnosticAdapter extends RecyclerView.Adapter<DiagnosticAdapter.Vi
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.list_item_diagnostic, parent, false);
-        return new ViewHolder(view);
-    }
-
-    @Override
-    public void onBindViewHolder(@NonNull final ViewHolder holder, int position) {
-        final Diagnostic diagnostic = mDiagnostics.get(position);
-        if (diagnostic.getLineNumber() != Diagnostic.NOPOS) {
-            String text = diagnostic.getLineNumber() + ":" + diagnostic.getColumnNumber();
-            holder.txtLineCol.setText(text);
-        } else {
-            holder.txtLineCol.getEditableText().clear();
-        }
-        holder.btnFixIt.setVisibility(diagnostic.getSuggestion() != null ?
-                View.VISIBLE : View.GONE);
+        final ViewHolder holder = new ViewHolder(view);
+        //the listeners look up the row when clicked, binding doesn't allocate them again
         holder.btnFixIt.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                if (mDiagnosticClickListener != null) {
+                Diagnostic diagnostic = getItem(holder);
+                if (diagnostic != null && mDiagnosticClickListener != null) {
                     mDiagnosticClickListener.onSuggestionClick(v, diagnostic, diagnostic.getSuggestion());
                 }
             }
         });
-        File source = diagnostic.getSourceFile();
-        holder.txtFile.setText(source.getName());
-        holder.txtMessage.setText(diagnostic.getMessage(mContext));
         holder.root.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                if (mDiagnosticClickListener != null) {
+                Diagnostic diagnostic = getItem(holder);
+                if (diagnostic != null && mDiagnosticClickListener != null) {
                     mDiagnosticClickListener.onDiagnosisClick(diagnostic, v);
                 }
             }
         });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        Diagnostic diagnostic = mVisible.get(position);
+        if (diagnostic.getLineNumber() != Diagnostic.NOPOS) {
+            String text = diagnostic.getLineNumber() + ":" + diagnostic.getColumnNumber();
+            holder.txtLineCol.setText(text);
+        } else {
+            holder.txtLineCol.setText(null);
+        }
+        holder.btnFixIt.setVisibility(diagnostic.getSuggestion() != null ?
+                View.VISIBLE : View.GONE);
+        File source = diagnostic.getSourceFile();
+        holder.txtFile.setText(source.getName());
+        holder.txtMessage.setText(diagnostic.getMessage(mContext));
+    }
+
+    @Nullable
+    private Diagnostic getItem(ViewHolder holder) {
+        int position = holder.getAdapterPosition();
+        if (position == RecyclerView.NO_POSITION || position >= mVisible.size()) {
+            return null;
+        }
+        return mVisible.get(position);
     }
 
     @Override
     public int getItemCount() {
-        return mDiagnostics.size();
+        return mVisible.size();
     }
 
     public void remove(Diagnostic diagnostic) {
-        int i = mDiagnostics.indexOf(diagnostic);
+        mDiagnostics.remove(diagnostic);
+        if (mDiffTask != null) {
+            //the shown rows are still the previous list, compare them with the changed list
+            startDiff();
+            return;
+        }
+        int i = mVisible.indexOf(diagnostic);
         if (i >= 0) {
-            mDiagnostics.remove(i);
+            mVisible.remove(i);
             notifyItemRemoved(i);
         }
     }
 
     public void add(Diagnostic diagnostic) {
         mDiagnostics.add(diagnostic);
-        notifyItemInserted(mDiagnostics.size() - 1);
+        if (mDiffTask != null) {
+            startDiff();
+            return;
+        }
+        if (accept(diagnostic, mFilter)) {
+            mVisible.add(diagnostic);
+            notifyItemInserted(mVisible.size() - 1);
+        }
     }
 
     public void clear() {
+        cancelDiff();
+        mAppending = false;
+        int count = mVisible.size();
         mDiagnostics.clear();
-        notifyItemRangeRemoved(0, mDiagnostics.size() - 1);
+        mVisible.clear();
+        notifyItemRangeRemoved(0, count);
+    }
+
+    /**
+     * @param filter - {@link #FILTER_ALL}, {@link #FILTER_PROBLEMS} or {@link #FILTER_REMARKS}
+     */
+    public void setFilter(int filter) {
+        if (mFilter != filter) {
+            mFilter = filter;
+            //a pending diff is outdated, the shown rows are compared with the new filter
+            startDiff();
+        }
+    }
+
+    public int getFilter() {
+        return mFilter;
+    }
+
+    /**
+     * Remove all diagnostics with one pass over the list, each run of adjacent rows is removed
+     * with one notification
+     */
+    public void removeAll(Collection<Diagnostic> diagnostics) {
+        HashSet<Diagnostic> removed = new HashSet<>(diagnostics);
+        mDiagnostics.removeAll(removed);
+        if (mDiffTask != null) {
+            startDiff();
+            return;
+        }
+        ArrayList<Diagnostic> visible = new ArrayList<>(mVisible.size());
+        int rangeCount = 0;
+        for (Diagnostic diagnostic : mVisible) {
+            if (removed.contains(diagnostic)) {
+                rangeCount++;
+                continue;
+            }
+            if (rangeCount > 0) {
+                //the rows before the range are already updated
+                notifyItemRangeRemoved(visible.size(), rangeCount);
+                rangeCount = 0;
+            }
+            visible.add(diagnostic);
+        }
+        if (rangeCount > 0) {
+            notifyItemRangeRemoved(visible.size(), rangeCount);
+        }
+        mVisible = visible;
+    }
+
+    public boolean hasSuggestions() {
+        for (Diagnostic diagnostic : mDiagnostics) {
+            if (diagnostic.getSuggestion() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the list contains optimization remarks, the filter is only useful then
+     */
+    public boolean hasRemarks() {
+        for (Diagnostic diagnostic : mDiagnostics) {
+            if (diagnostic.getKind() == Kind.REMARK) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean accept(Diagnostic diagnostic, int filter) {
+        switch (filter) {
+            case FILTER_PROBLEMS:
+                return diagnostic.getKind() != Kind.REMARK;
+            case FILTER_REMARKS:
+                return diagnostic.getKind() == Kind.REMARK;
+            default:
+                return true;
+        }
+    }
+
+    private void applyFilter() {
+        mVisible.clear();
+        for (Diagnostic diagnostic : mDiagnostics) {
+            if (accept(diagnostic, mFilter)) {
+                mVisible.add(diagnostic);
+            }
+        }
     }
 
     public void setDiagnosticClickListener(DiagnosticClickListener diagnosticClickListener) {
@@ -99,10 +254,87 @@ public class DiagnosticAdapter extends RecyclerView.Adapter<DiagnosticAdapter.Vi
         return mDiagnostics;
     }
 
+    /**
+     * Replace the list, the shown rows are updated when the diff with the new list is computed
+     */
     public void setData(List<Diagnostic> diagnostics) {
-        mDiagnostics.clear();
+        mDiagnostics = new ArrayList<>(diagnostics);
+        mAppending = false;
+        startDiff();
+    }
+
+    /**
+     * Show diagnostics of a build whose output is still parsed. They are only appended while the
+     * list is empty or contains the earlier pages of the same build, a list of a previous build
+     * stays until {@link #setData(List)} replaces it with a diff
+     */
+    public void append(List<Diagnostic> diagnostics) {
+        if (mDiffTask != null || !(mAppending || mDiagnostics.isEmpty())) {
+            return;
+        }
+        mAppending = true;
         mDiagnostics.addAll(diagnostics);
-        notifyDataSetChanged();
+        int start = mVisible.size();
+        for (Diagnostic diagnostic : diagnostics) {
+            if (accept(diagnostic, mFilter)) {
+                mVisible.add(diagnostic);
+            }
+        }
+        if (mVisible.size() > start) {
+            notifyItemRangeInserted(start, mVisible.size() - start);
+        }
+    }
+
+    private void startDiff() {
+        cancelDiff();
+        mDiffTask = new DiffTask(mGeneration, new ArrayList<>(mVisible), new ArrayList<>(mDiagnostics), mFilter);
+        //don't use the serial executor, the diff must not wait for a running build
+        mDiffTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    private void cancelDiff() {
+        if (mDiffTask != null) {
+            mDiffTask.cancel(false);
+            mDiffTask = null;
+        }
+        mGeneration++;
+    }
+
+    private class DiffTask extends AsyncTask<Void, Void, DiffUtil.DiffResult> {
+        private final int mTaskGeneration;
+        private final List<Diagnostic> mOldVisible;
+        private final List<Diagnostic> mNewDiagnostics;
+        private final int mTaskFilter;
+        private final List<Diagnostic> mNewVisible = new ArrayList<>();
+
+        DiffTask(int generation, List<Diagnostic> oldVisible, List<Diagnostic> newDiagnostics, int filter) {
+            mTaskGeneration = generation;
+            mOldVisible = oldVisible;
+            mNewDiagnostics = newDiagnostics;
+            mTaskFilter = filter;
+        }
+
+        @Override
+        protected DiffUtil.DiffResult doInBackground(Void... voids) {
+            for (Diagnostic diagnostic : mNewDiagnostics) {
+                if (accept(diagnostic, mTaskFilter)) {
+                    mNewVisible.add(diagnostic);
+                }
+            }
+            //diagnostics are in the order of the compiler output, they never move
+            return DiffUtil.calculateDiff(new DiagnosticDiffCallback(mOldVisible, mNewVisible, mContext), false);
+        }
+
+        @Override
+        protected void onPostExecute(DiffUtil.DiffResult result) {
+            super.onPostExecute(result);
+            if (mTaskGeneration != mGeneration) {
+                return;
+            }
+            mDiffTask = null;
+            mVisible = mNewVisible;
+            result.dispatchUpdatesTo(DiagnosticAdapter.this);
+        }
     }
 
     static class ViewHolder extends RecyclerView.ViewHolder {
@@ -22,6 +22,7 @@ import com.duy.ccppcompiler.compiler.diagnostic.Diagnostic;
 import com.duy.ccppcompiler.compiler.diagnostic.suggestion.ISuggestion;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -34,8 +35,15 @@ public class DiagnosticContract {
 
         void remove(Diagnostic diagnostic);
 
+        void removeAll(Collection<Diagnostic> diagnostics);
+
         void add(Diagnostic diagnostic);
 
+        /**
+         * Add a page of diagnostics of a build whose output is still parsed
+         */
+        void append(List<Diagnostic> diagnostics);
+
         void clear();
 
         void setPresenter(Presenter presenter);
@@ -48,11 +56,24 @@ public class DiagnosticContract {
         @MainThread
         void onSuggestionClick(Diagnostic diagnostic, ISuggestion suggestion);
 
+        /**
+         * Apply the suggestions of all diagnostics, one edit for each source
+         */
+        @MainThread
+        void onApplyAllSuggestions();
+
         void showView();
 
         void hideView();
 
         @MainThread
         void setDiagnostics(ArrayList<Diagnostic> diagnostics);
+
+        /**
+         * Show a page of diagnostics before the output of the build is parsed completely,
+         * {@link #setDiagnostics(ArrayList)} is called with the complete list at the end
+         */
+        @MainThread
+        void appendDiagnostics(List<Diagnostic> diagnostics);
     }
 }
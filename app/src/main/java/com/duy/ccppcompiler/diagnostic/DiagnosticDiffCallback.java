@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.duy.ccppcompiler.diagnostic;
+
+import android.content.Context;
+import android.support.v7.util.DiffUtil;
+
+import com.duy.ccppcompiler.compiler.diagnostic.Diagnostic;
+
+import java.util.List;
+
+/**
+ * Compares the diagnostics of two builds. A diagnostic with the same message in the same file is
+ * the same row even if the code above it was edited, only its position is updated then.
+ */
+
+class DiagnosticDiffCallback extends DiffUtil.Callback {
+    private final List<Diagnostic> mOldList;
+    private final List<Diagnostic> mNewList;
+    private final Context mContext;
+
+    DiagnosticDiffCallback(List<Diagnostic> oldList, List<Diagnostic> newList, Context context) {
+        mContext = context;
+        mOldList = oldList;
+        mNewList = newList;
+    }
+
+    @Override
+    public int getOldListSize() {
+        return mOldList.size();
+    }
+
+    @Override
+    public int getNewListSize() {
+        return mNewList.size();
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+        Diagnostic oldItem = mOldList.get(oldItemPosition);
+        Diagnostic newItem = mNewList.get(newItemPosition);
+        return oldItem.getKind() == newItem.getKind()
+                && oldItem.getSourceFile().equals(newItem.getSourceFile())
+                && equals(oldItem.getMessage(mContext), newItem.getMessage(mContext));
+    }
+
+    /**
+     * Only what a row shows is compared, see {@link DiagnosticAdapter#onBindViewHolder}
+     */
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+        Diagnostic oldItem = mOldList.get(oldItemPosition);
+        Diagnostic newItem = mNewList.get(newItemPosition);
+        return oldItem.getLineNumber() == newItem.getLineNumber()
+                && oldItem.getColumnNumber() == newItem.getColumnNumber()
+                && (oldItem.getSuggestion() == null) == (newItem.getSuggestion() == null);
+    }
+
+    private static boolean equals(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -26,12 +26,14 @@ import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.RadioGroup;
 
 import com.duy.ccppcompiler.R;
 import com.duy.ccppcompiler.compiler.diagnostic.Diagnostic;
 import com.duy.ccppcompiler.compiler.diagnostic.suggestion.ISuggestion;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -40,7 +42,10 @@ import java.util.List;
 
 public class DiagnosticFragment extends Fragment implements DiagnosticContract.View, DiagnosticClickListener {
     private static final String KEY_DATA = "data";
+    private static final String KEY_FILTER = "filter";
     private RecyclerView mRecyclerView;
+    private RadioGroup mFilterGroup;
+    private View mApplyAllButton;
     private DiagnosticContract.Presenter mPresenter;
     private DiagnosticAdapter mAdapter;
 
@@ -64,20 +69,65 @@ public class DiagnosticFragment extends Fragment implements DiagnosticContract.V
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
         ArrayList<Diagnostic> diagnostics;
+        int filter = DiagnosticAdapter.FILTER_ALL;
         if (savedInstanceState != null) {
             diagnostics = savedInstanceState.getParcelableArrayList(KEY_DATA);
+            filter = savedInstanceState.getInt(KEY_FILTER, DiagnosticAdapter.FILTER_ALL);
         } else {
             diagnostics = new ArrayList<>();
         }
 
         mRecyclerView = view.findViewById(R.id.diagnostic_list_view);
         mRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        //the size of the list view doesn't depend on its rows, inserting rows doesn't relayout the panel
+        mRecyclerView.setHasFixedSize(true);
         mRecyclerView.addItemDecoration(new DividerItemDecoration(getContext(),
                 DividerItemDecoration.VERTICAL));
 
         mAdapter = new DiagnosticAdapter(diagnostics, getContext());
         mAdapter.setDiagnosticClickListener(this);
+        mAdapter.setFilter(filter);
         mRecyclerView.setAdapter(mAdapter);
+
+        mFilterGroup = view.findViewById(R.id.diagnostic_filter);
+        mFilterGroup.check(filter == DiagnosticAdapter.FILTER_PROBLEMS ? R.id.filter_problems :
+                filter == DiagnosticAdapter.FILTER_REMARKS ? R.id.filter_remarks : R.id.filter_all);
+        mFilterGroup.setOnCheckedChangeListener(new RadioGroup.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(RadioGroup group, int checkedId) {
+                if (checkedId == R.id.filter_problems) {
+                    mAdapter.setFilter(DiagnosticAdapter.FILTER_PROBLEMS);
+                } else if (checkedId == R.id.filter_remarks) {
+                    mAdapter.setFilter(DiagnosticAdapter.FILTER_REMARKS);
+                } else {
+                    mAdapter.setFilter(DiagnosticAdapter.FILTER_ALL);
+                }
+            }
+        });
+        mApplyAllButton = view.findViewById(R.id.btn_apply_all_fixes);
+        mApplyAllButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                if (mPresenter != null) {
+                    mPresenter.onApplyAllSuggestions();
+                }
+            }
+        });
+        updateFilterVisibility();
+    }
+
+    /**
+     * The filter is only shown for an optimization report, other lists have no remarks
+     */
+    private void updateFilterVisibility() {
+        if (mAdapter.hasRemarks()) {
+            mFilterGroup.setVisibility(View.VISIBLE);
+        } else {
+            //a hidden filter must not hide the errors of the next build
+            mFilterGroup.check(R.id.filter_all);
+            mFilterGroup.setVisibility(View.GONE);
+        }
+        mApplyAllButton.setVisibility(mAdapter.hasSuggestions() ? View.VISIBLE : View.GONE);
     }
 
     @Override
@@ -85,26 +135,43 @@ public class DiagnosticFragment extends Fragment implements DiagnosticContract.V
         super.onSaveInstanceState(outState);
         ArrayList<Diagnostic> diagnostics = new ArrayList<>(mAdapter.getDiagnostics());
         outState.putParcelableArrayList(KEY_DATA, diagnostics);
+        outState.putInt(KEY_FILTER, mAdapter.getFilter());
     }
 
     @Override
     public void show(List<Diagnostic> diagnostics) {
         mAdapter.setData(diagnostics);
+        updateFilterVisibility();
     }
 
     @Override
     public void remove(Diagnostic diagnostic) {
         mAdapter.remove(diagnostic);
+        updateFilterVisibility();
+    }
+
+    @Override
+    public void removeAll(Collection<Diagnostic> diagnostics) {
+        mAdapter.removeAll(diagnostics);
+        updateFilterVisibility();
     }
 
     @Override
     public void add(Diagnostic diagnostic) {
         mAdapter.add(diagnostic);
+        updateFilterVisibility();
+    }
+
+    @Override
+    public void append(List<Diagnostic> diagnostics) {
+        mAdapter.append(diagnostics);
+        updateFilterVisibility();
     }
 
     @Override
     public void clear() {
         mAdapter.clear();
+        updateFilterVisibility();
     }
 
     @Override
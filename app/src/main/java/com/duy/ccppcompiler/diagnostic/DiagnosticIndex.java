@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.diagnostic;
+
+import android.support.annotation.NonNull;
+
+import com.duy.ccppcompiler.compiler.diagnostic.Diagnostic;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Diagnostics of one build grouped by source file. Paths are canonical, so an editor opened
+ * through a symbolic link (/sdcard, /storage/emulated/0) finds the diagnostics of its file.
+ * The diagnostics of each file are sorted by line and column.
+ */
+
+public class DiagnosticIndex {
+    private static final Comparator<Diagnostic> LINE_ORDER = new Comparator<Diagnostic>() {
+        @Override
+        public int compare(Diagnostic o1, Diagnostic o2) {
+            if (o1.getLineNumber() != o2.getLineNumber()) {
+                return o1.getLineNumber() < o2.getLineNumber() ? -1 : 1;
+            }
+            if (o1.getColumnNumber() != o2.getColumnNumber()) {
+                return o1.getColumnNumber() < o2.getColumnNumber() ? -1 : 1;
+            }
+            return 0;
+        }
+    };
+
+    private final HashMap<String, List<Diagnostic>> mFiles = new HashMap<>();
+    /**
+     * Canonical path of every path seen, resolving a path is a system call
+     */
+    private final HashMap<String, String> mKeys = new HashMap<>();
+    private final int mSize;
+
+    public DiagnosticIndex(List<Diagnostic> diagnostics) {
+        for (Diagnostic diagnostic : diagnostics) {
+            String key = getKey(diagnostic.getSourceFile());
+            List<Diagnostic> list = mFiles.get(key);
+            if (list == null) {
+                list = new ArrayList<>();
+                mFiles.put(key, list);
+            }
+            list.add(diagnostic);
+        }
+        for (List<Diagnostic> list : mFiles.values()) {
+            //stable, a note stays after the error it belongs to
+            Collections.sort(list, LINE_ORDER);
+        }
+        mSize = diagnostics.size();
+    }
+
+    /**
+     * @return diagnostics of the file sorted by line, empty if it has none
+     */
+    @NonNull
+    public List<Diagnostic> get(File file) {
+        List<Diagnostic> list = mFiles.get(getKey(file));
+        if (list == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return true if both paths name the same file
+     */
+    public boolean isSameFile(File file1, File file2) {
+        return getKey(file1).equals(getKey(file2));
+    }
+
+    private String getKey(File file) {
+        String path = file.getPath();
+        String key = mKeys.get(path);
+        if (key == null) {
+            try {
+                key = file.getCanonicalPath();
+            } catch (IOException e) {
+                key = file.getAbsolutePath();
+            }
+            mKeys.put(path, key);
+        }
+        return key;
+    }
+}
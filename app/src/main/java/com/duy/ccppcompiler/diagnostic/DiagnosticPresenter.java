@@ -22,18 +22,26 @@ import android.support.v4.util.Pair;
 import android.view.View;
 
 import com.duy.ccppcompiler.compiler.diagnostic.Diagnostic;
+import com.duy.ccppcompiler.compiler.diagnostic.Kind;
 import com.duy.ccppcompiler.compiler.diagnostic.suggestion.ISuggestion;
 import com.duy.common.DLog;
 import com.jecelyin.editor.v2.common.Command;
 import com.jecelyin.editor.v2.ui.activities.EditorActivity;
+import com.jecelyin.editor.v2.ui.editor.BatchEdit;
+import com.jecelyin.editor.v2.ui.editor.Document;
 import com.jecelyin.editor.v2.ui.editor.EditorDelegate;
+import com.jecelyin.editor.v2.ui.editor.TextAnchors;
 import com.jecelyin.editor.v2.ui.manager.TabManager;
 import com.sothree.slidinguppanel.SlidingUpPanelLayout;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * Created by Duy on 28-Apr-18.
@@ -43,9 +51,22 @@ public class DiagnosticPresenter implements DiagnosticContract.Presenter {
     private static final String TAG = "DiagnosticPresenter";
     private final EditorActivity mActivity;
     private final TabManager mTabManager;
-    private ArrayList<Diagnostic> mDiagnostics;
     private DiagnosticContract.View mView;
-    private HashMap<File, byte[]> mHashCode = new HashMap<>();
+    private DiagnosticIndex mIndex = new DiagnosticIndex(Collections.<Diagnostic>emptyList());
+    /**
+     * The diagnostics in the list, without the ones which were fixed
+     */
+    private ArrayList<Diagnostic> mDiagnostics = new ArrayList<>();
+    /**
+     * The generations of the documents the diagnostics were found in
+     */
+    private SnapshotGenerations mGenerations = new SnapshotGenerations();
+    /**
+     * Editors which show the error spans of {@link #mIndex}, with the anchor of each diagnostic
+     * and suggestion in the document. The anchors are created from the text the spans are set
+     * for, then they follow the edits. The other editors are attached when they become visible
+     */
+    private final WeakHashMap<EditorDelegate, Map<Object, Integer>> mAttachedEditors = new WeakHashMap<>();
 
     public DiagnosticPresenter(DiagnosticContract.View view, EditorActivity activity, TabManager tabManager) {
         mActivity = activity;
@@ -63,11 +84,17 @@ public class DiagnosticPresenter implements DiagnosticContract.Presenter {
         if (DLog.DEBUG)
             DLog.d(TAG, "onDiagnosticClick() called diagnostic = [" + diagnostic + "]");
         File source = diagnostic.getSourceFile();
-        EditorDelegate editorDelegate = moveToEditor(source, mHashCode.get(source));
+        EditorDelegate editorDelegate = moveToEditor(source);
         if (editorDelegate != null) {
             Command command = new Command(Command.CommandEnum.GOTO_INDEX);
-            command.args.putInt("line", (int) diagnostic.getLineNumber());
-            command.args.putInt("col", (int) diagnostic.getColumnNumber());
+            Integer anchor = getAnchor(editorDelegate, diagnostic);
+            if (anchor != null) {
+                command.args.putInt("offset", editorDelegate.getDocument().getAnchors().getStart(anchor));
+            } else {
+                //the file is still loading, or it was edited after the build
+                command.args.putInt("line", (int) diagnostic.getLineNumber());
+                command.args.putInt("col", (int) diagnostic.getColumnNumber());
+            }
             editorDelegate.doCommand(command);
         }
 
@@ -77,51 +104,105 @@ public class DiagnosticPresenter implements DiagnosticContract.Presenter {
     @Override
     public void onSuggestionClick(Diagnostic diagnostic, ISuggestion suggestion) {
         File source = suggestion.getSourceFile();
-        EditorDelegate delegate = moveToEditor(source, mHashCode.get(source));
+        EditorDelegate delegate = moveToEditor(source);
+        if (delegate == null) {
+            return;
+        }
+        Integer anchor = getAnchor(delegate, suggestion);
+        if (anchor == null) {
+            return;
+        }
+        TextAnchors anchors = delegate.getDocument().getAnchors();
+        int start = anchors.getStart(anchor);
+        if (anchors.isTouched(anchor)) {
+            //the replaced text was edited, the suggestion may be wrong now, only show the place
+            Command command = new Command(Command.CommandEnum.GOTO_INDEX);
+            command.args.putInt("offset", start);
+            delegate.doCommand(command);
+            return;
+        }
+        delegate.getEditableText().replace(start, anchors.getEnd(anchor), suggestion.getMessage());
+        delegate.getEditText().setSelection(start + suggestion.getMessage().length());
+        mDiagnostics.remove(diagnostic);
+        mView.remove(diagnostic);
+    }
 
-        if (delegate != null) {
-            int start = delegate.getEditText()
-                    .getCursorIndex(suggestion.getLineStart(), suggestion.getColStart()).offset;
-            int end = delegate.getEditText()
-                    .getCursorIndex(suggestion.getLineEnd(), suggestion.getColEnd()).offset;
-            if (start >= 0 && start <= end) {
-                delegate.getEditableText().replace(start, end, suggestion.getMessage());
-                delegate.getEditText().setSelection(start + suggestion.getMessage().length());
+    /**
+     * The suggestions of each editor are applied as one edit. Only editors which were shown since
+     * the build have anchors, the suggestions of other sources stay in the list
+     */
+    @MainThread
+    @Override
+    public void onApplyAllSuggestions() {
+        onEditorVisible(mTabManager.getEditorPagerAdapter().getCurrentEditorDelegate());
+        ArrayList<Diagnostic> applied = new ArrayList<>();
+        for (Map.Entry<EditorDelegate, Map<Object, Integer>> entry : mAttachedEditors.entrySet()) {
+            EditorDelegate delegate = entry.getKey();
+            TextAnchors anchors = delegate.getDocument().getAnchors();
+            BatchEdit edit = new BatchEdit();
+            ArrayList<Diagnostic> fixed = new ArrayList<>();
+            for (Diagnostic diagnostic : mIndex.get(new File(delegate.getPath()))) {
+                ISuggestion suggestion = diagnostic.getSuggestion();
+                Integer anchor = suggestion == null ? null : entry.getValue().get(suggestion);
+                if (anchor == null || anchors.isTouched(anchor)) {
+                    continue;
+                }
+                //gcc may suggest two fixes for one place, only the first is applied
+                if (edit.add(anchors.getStart(anchor), anchors.getEnd(anchor), suggestion.getMessage())) {
+                    fixed.add(diagnostic);
+                }
+            }
+            if (!edit.isEmpty()) {
+                if (DLog.DEBUG) DLog.d(TAG, "apply " + edit.size() + " suggestions to " + delegate.getPath());
+                delegate.applyEdit(edit);
+                applied.addAll(fixed);
+            }
+        }
+        if (!applied.isEmpty()) {
+            mDiagnostics.removeAll(new HashSet<>(applied));
+            if (mView != null) {
+                mView.removeAll(applied);
             }
-            mView.remove(diagnostic);
         }
     }
 
     @Nullable
-    @SuppressWarnings("ConstantConditions")
+    private Integer getAnchor(EditorDelegate delegate, Object diagnosticOrSuggestion) {
+        Map<Object, Integer> anchors = mAttachedEditors.get(delegate);
+        return anchors == null ? null : anchors.get(diagnosticOrSuggestion);
+    }
+
+    /**
+     * Open the source and move the cursor to the line. Unlike diagnostics, the line is not
+     * anchored, it is used even if the source was edited
+     */
     @MainThread
-    private EditorDelegate moveToEditor(File source, byte[] md5) {
-        Pair<Integer, EditorDelegate> pair = mTabManager.getEditorDelegate(source);
-        if (pair != null) {
-            int index = pair.first;
-            EditorDelegate editorDelegate = pair.second;
-            if (editorDelegate.isChanged()) {
-                return null;
-            }
+    public void gotoLine(File source, int line) {
+        EditorDelegate editorDelegate = moveToEditor(source);
+        if (editorDelegate == null) {
+            return;
+        }
+        Command command = new Command(Command.CommandEnum.GOTO_INDEX);
+        command.args.putInt("line", line);
+        command.args.putInt("col", -1);
+        editorDelegate.doCommand(command);
+    }
 
-            if (editorDelegate.isChanged()) {
+    @Nullable
+    @MainThread
+    private EditorDelegate moveToEditor(File source) {
+        Pair<Integer, EditorDelegate> pair = mTabManager.getEditorDelegate(source);
+        if (pair == null) {
+            mTabManager.newTab(source);
+            pair = mTabManager.getEditorDelegate(source);
+            if (pair == null) {
                 return null;
             }
-            byte[] otherMd5 = editorDelegate.getDocument().getMd5();
-            if (md5 != null) {
-                if (!Arrays.equals(md5, otherMd5)) {
-                    return null;
-                }
-            }
-            mHashCode.put(source, otherMd5);
-
-            mTabManager.setCurrentTab(index);
-            editorDelegate.doCommand(new Command(Command.CommandEnum.REQUEST_FOCUS));
-            return editorDelegate;
-        } else {
-            mTabManager.newTab(source);
-            return moveToEditor(source, md5);
         }
+        mTabManager.setCurrentTab(pair.first);
+        EditorDelegate editorDelegate = pair.second;
+        editorDelegate.doCommand(new Command(Command.CommandEnum.REQUEST_FOCUS));
+        return editorDelegate;
     }
 
     @Override
@@ -134,39 +215,183 @@ public class DiagnosticPresenter implements DiagnosticContract.Presenter {
         mActivity.mSlidingUpPanelLayout.setPanelState(SlidingUpPanelLayout.PanelState.COLLAPSED);
     }
 
+    /**
+     * @return the generation of every open document, taken with the content of a build
+     */
+    @MainThread
+    public SnapshotGenerations snapshotGenerations() {
+        SnapshotGenerations generations = new SnapshotGenerations();
+        for (EditorDelegate delegate : mTabManager.getEditorPagerAdapter().getAllEditor()) {
+            Document document = delegate.getDocument();
+            if (document != null) {
+                generations.put(new File(delegate.getPath()), document.getGeneration());
+            }
+        }
+        return generations;
+    }
+
+    /**
+     * The diagnostics are taken as found in the current content of the editors
+     */
     @MainThread
     @Override
     public void setDiagnostics(ArrayList<Diagnostic> diagnostics) {
-        mDiagnostics = diagnostics;
-        mHashCode.clear();
+        setDiagnostics(diagnostics, new SnapshotGenerations());
+    }
+
+    /**
+     * @param generations - the generations of the documents when the content was copied, the
+     *                    error spans are not set in editors which were edited since then
+     */
+    @MainThread
+    public void setDiagnostics(ArrayList<Diagnostic> diagnostics, SnapshotGenerations generations) {
+        mGenerations = generations;
+        showDiagnostics(diagnostics);
+    }
+
+    private void showDiagnostics(ArrayList<Diagnostic> diagnostics) {
+        mDiagnostics = new ArrayList<>(diagnostics);
+        mIndex = new DiagnosticIndex(diagnostics);
+        for (EditorDelegate delegate : mAttachedEditors.keySet()) {
+            if (delegate.getDocument() != null) {
+                delegate.getDocument().getAnchors().clear();
+            }
+        }
+        mAttachedEditors.clear();
         if (mView != null) {
             mView.show(diagnostics);
         }
-        highlightErrorCurrentEditor();
-    }
-
-    private void highlightErrorCurrentEditor() {
         EditorDelegate delegate = mTabManager.getEditorPagerAdapter().getCurrentEditorDelegate();
         if (delegate != null) {
             delegate.doCommand(new Command(Command.CommandEnum.REQUEST_FOCUS));
-            delegate.doCommand(new Command(Command.CommandEnum.CLEAR_ERROR_SPAN));
-            for (Diagnostic diagnostic : mDiagnostics) {
-                File sourceFile = diagnostic.getSourceFile();
-                if (sourceFile.getPath().equals(delegate.getPath())) {
-                    Command command = new Command(Command.CommandEnum.HIGHLIGHT_ERROR);
-                    if (diagnostic.getSuggestion() != null) {
-                        ISuggestion suggestion = diagnostic.getSuggestion();
-                        command.args.putInt("line", suggestion.getLineStart());
-                        command.args.putInt("col", suggestion.getColStart());
-                        command.args.putInt("lineEnd", suggestion.getLineEnd());
-                        command.args.putInt("colEnd", suggestion.getColEnd());
-                    } else {
-                        command.args.putInt("line", (int) diagnostic.getLineNumber());
-                        command.args.putInt("col", (int) diagnostic.getColumnNumber());
-                    }
-                    delegate.doCommand(command);
+            onEditorVisible(delegate);
+        }
+    }
+
+    /**
+     * Replace the diagnostics of one source with the result of a check of its unsaved content.
+     * The diagnostics of other sources are kept, and so are the optimization remarks, they are
+     * only replaced by the next optimization report
+     *
+     * @param generation - the generation of the document when the content was copied, the
+     *                   result is dropped if the document was edited since then
+     */
+    @MainThread
+    public void replaceDiagnostics(File source, ArrayList<Diagnostic> diagnostics, int generation) {
+        Pair<Integer, EditorDelegate> pair = mTabManager.getEditorDelegate(source);
+        Document document = pair == null ? null : pair.second.getDocument();
+        if (document != null && document.getGeneration() != generation) {
+            //the lines are outdated, the check of the edited content follows
+            return;
+        }
+        mGenerations.put(source, generation);
+        ArrayList<Diagnostic> merged = new ArrayList<>();
+        for (Diagnostic diagnostic : mDiagnostics) {
+            if (diagnostic.getKind() == Kind.REMARK || !mIndex.isSameFile(diagnostic.getSourceFile(), source)) {
+                merged.add(diagnostic);
+            }
+        }
+        merged.addAll(diagnostics);
+        showDiagnostics(merged);
+    }
+
+    /**
+     * The editors are only highlighted when the complete list is set
+     */
+    @MainThread
+    @Override
+    public void appendDiagnostics(List<Diagnostic> diagnostics) {
+        if (mView != null) {
+            mView.append(diagnostics);
+        }
+    }
+
+    /**
+     * Set the error spans of the editor if they are outdated. An editor which was edited after
+     * its content was copied gets no error spans, the lines of the diagnostics may be wrong
+     */
+    @MainThread
+    public void onEditorVisible(@Nullable EditorDelegate delegate) {
+        if (delegate == null || mAttachedEditors.containsKey(delegate)) {
+            return;
+        }
+        File source = new File(delegate.getPath());
+        List<Diagnostic> diagnostics = mIndex.get(source);
+        Document document = delegate.getDocument();
+        if (document != null && !mGenerations.isCurrent(source, document.getGeneration())) {
+            //clear the old spans, the diagnostics stay in the list
+            diagnostics = Collections.emptyList();
+        }
+        int size = 0;
+        for (Diagnostic diagnostic : diagnostics) {
+            //remarks are not problems, they are only shown in the list
+            if (diagnostic.getKind() != Kind.REMARK) {
+                size++;
+            }
+        }
+        int[] lines = new int[size];
+        int[] cols = new int[size];
+        int[] lineEnds = new int[size];
+        int[] colEnds = new int[size];
+        int i = 0;
+        for (Diagnostic diagnostic : diagnostics) {
+            if (diagnostic.getKind() == Kind.REMARK) {
+                continue;
+            }
+            ISuggestion suggestion = diagnostic.getSuggestion();
+            if (suggestion != null) {
+                lines[i] = suggestion.getLineStart();
+                cols[i] = suggestion.getColStart();
+                lineEnds[i] = suggestion.getLineEnd();
+                colEnds[i] = suggestion.getColEnd();
+            } else {
+                lines[i] = (int) diagnostic.getLineNumber();
+                cols[i] = (int) diagnostic.getColumnNumber();
+                lineEnds[i] = -1;
+                colEnds[i] = -1;
+            }
+            i++;
+        }
+        Command command = new Command(Command.CommandEnum.HIGHLIGHT_ERRORS);
+        command.args.putIntArray("line", lines);
+        command.args.putIntArray("col", cols);
+        command.args.putIntArray("lineEnd", lineEnds);
+        command.args.putIntArray("colEnd", colEnds);
+        if (delegate.doCommand(command)) {
+            mAttachedEditors.put(delegate, createAnchors(delegate, diagnostics));
+        }
+    }
+
+    private Map<Object, Integer> createAnchors(EditorDelegate delegate, List<Diagnostic> diagnostics) {
+        Document document = delegate.getDocument();
+        TextAnchors anchors = document.getAnchors();
+        Map<Object, Integer> ids = new IdentityHashMap<>();
+        for (Diagnostic diagnostic : diagnostics) {
+            int offset = document.getOffset((int) diagnostic.getLineNumber(), (int) diagnostic.getColumnNumber());
+            if (offset >= 0) {
+                ids.put(diagnostic, anchors.add(offset, offset));
+            }
+            ISuggestion suggestion = diagnostic.getSuggestion();
+            if (suggestion != null) {
+                int start = document.getOffset(suggestion.getLineStart(), suggestion.getColStart());
+                int end = document.getOffset(suggestion.getLineEnd(), suggestion.getColEnd());
+                if (start >= 0 && start <= end) {
+                    ids.put(suggestion, anchors.add(start, end));
                 }
             }
         }
+        return ids;
+    }
+
+    /**
+     * The content of the editor was replaced, its error spans are gone
+     */
+    @MainThread
+    public void onEditorLoaded(EditorDelegate delegate) {
+        //the document cleared its anchors
+        mAttachedEditors.remove(delegate);
+        if (delegate == mTabManager.getEditorPagerAdapter().getCurrentEditorDelegate()) {
+            onEditorVisible(delegate);
+        }
     }
 }
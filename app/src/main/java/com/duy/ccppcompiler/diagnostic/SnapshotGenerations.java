@@ -0,0 +1,46 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.duy.ccppcompiler.diagnostic;
+
+import java.io.File;
+import java.util.HashMap;
+
+/**
+ * The generation of each document when its content was copied for a build or a check, see
+ * {@link com.jecelyin.editor.v2.ui.editor.Document#getGeneration()}. The lines and columns of
+ * the diagnostics only match the text of an editor if its document has the same generation.
+ * <p>
+ * A source without a recorded generation wasn't open, its diagnostics are taken as current.
+ */
+
+public class SnapshotGenerations {
+    private final HashMap<File, Integer> mGenerations = new HashMap<>();
+
+    public void put(File source, int generation) {
+        mGenerations.put(source, generation);
+    }
+
+    /**
+     * @param generation - the generation of the document now
+     * @return false if the document was changed after the snapshot
+     */
+    public boolean isCurrent(File source, int generation) {
+        Integer snapshot = mGenerations.get(source);
+        return snapshot == null || snapshot == generation;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.profiler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Read the brief report of gprof (-b) into a list of {@link Hotspot}
+ */
+
+public class GprofParser {
+    /**
+     * A function of the flat profile (-p), the call columns are empty if the function was not
+     * compiled with -pg
+     * <pre>
+     *  60.00      0.06     0.06        1    60.00    60.00  slow
+     * </pre>
+     */
+    static final Pattern FLAT_PATTERN = Pattern.compile(
+            "^\\s*(\\d+(?:\\.\\d+)?)\\s+(\\d+(?:\\.\\d+)?)\\s+(\\d+(?:\\.\\d+)?)\\s+" +
+                    "(?:(\\d+)\\s+(\\d+(?:\\.\\d+)?)\\s+(\\d+(?:\\.\\d+)?)\\s+)?(\\S.*?)\\s*$");
+    /**
+     * The primary line of a function in the call graph (-q), self and children time in seconds.
+     * Recursive calls are counted after '+'
+     * <pre>
+     * [1]    100.0    0.00    0.10       1         main [1]
+     * </pre>
+     */
+    static final Pattern CALL_GRAPH_PATTERN = Pattern.compile(
+            "^\\[(\\d+)\\]\\s+(\\d+(?:\\.\\d+)?)\\s+(\\d+(?:\\.\\d+)?)\\s+(\\d+(?:\\.\\d+)?)\\s+" +
+                    "(?:(\\d+)(?:\\+\\d+)?\\s+)?(\\S.*?)\\s+\\[\\d+\\]\\s*$");
+    /**
+     * The name of a line in the line by line flat profile (-l)
+     * <pre>
+     * slow (/sdcard/main.c:5 @ 10500)
+     * </pre>
+     */
+    static final Pattern LINE_PATTERN = Pattern.compile("^(.+) \\((.+):(\\d+) @ [0-9a-fA-F]+\\)$");
+    private static final Pattern CYCLE_PATTERN = Pattern.compile("\\s*<cycle \\d+>$");
+
+    private static final int SECTION_NONE = 0;
+    private static final int SECTION_FLAT = 1;
+    private static final int SECTION_CALL_GRAPH = 2;
+
+    private GprofParser() {
+    }
+
+    /**
+     * @param report - output of gprof -b -p -q
+     * @return every function of the flat profile, in the order of the report
+     */
+    public static ArrayList<Hotspot> parse(Reader report) throws IOException {
+        Map<String, Hotspot> hotspots = new LinkedHashMap<>();
+        BufferedReader reader = new BufferedReader(report);
+        try {
+            int section = SECTION_NONE;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("Flat profile")) {
+                    section = SECTION_FLAT;
+                } else if (line.trim().startsWith("Call graph")) {
+                    section = SECTION_CALL_GRAPH;
+                } else if (line.startsWith("Index by function name")) {
+                    section = SECTION_NONE;
+                } else if (section == SECTION_FLAT) {
+                    parseFlatLine(line, hotspots);
+                } else if (section == SECTION_CALL_GRAPH && line.startsWith("[")) {
+                    parseCallGraphLine(line, hotspots);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return new ArrayList<>(hotspots.values());
+    }
+
+    /**
+     * Find the hottest source line of every function
+     *
+     * @param report - output of gprof -b -l -L -p
+     */
+    public static void parseLines(Reader report, List<Hotspot> hotspots) throws IOException {
+        Map<String, Hotspot> byName = new LinkedHashMap<>();
+        for (Hotspot hotspot : hotspots) {
+            byName.put(hotspot.getName(), hotspot);
+        }
+        BufferedReader reader = new BufferedReader(report);
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Matcher matcher = FLAT_PATTERN.matcher(line);
+                if (!matcher.find()) {
+                    continue;
+                }
+                Matcher lineMatcher = LINE_PATTERN.matcher(matcher.group(7));
+                if (!lineMatcher.find()) {
+                    continue;
+                }
+                Hotspot hotspot = byName.get(lineMatcher.group(1));
+                if (hotspot != null) {
+                    hotspot.offerLine(lineMatcher.group(2), Integer.parseInt(lineMatcher.group(3)),
+                            Double.parseDouble(matcher.group(3)));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void parseFlatLine(String line, Map<String, Hotspot> hotspots) {
+        Matcher matcher = FLAT_PATTERN.matcher(line);
+        if (!matcher.find()) {
+            return;
+        }
+        Hotspot hotspot = new Hotspot(matcher.group(7));
+        hotspot.setPercent(Double.parseDouble(matcher.group(1)));
+        hotspot.setSelfSeconds(Double.parseDouble(matcher.group(3)));
+        //updated by the call graph, which comes after the flat profile
+        hotspot.setTotalSeconds(hotspot.getSelfSeconds());
+        if (matcher.group(4) != null) {
+            hotspot.setCalls(Long.parseLong(matcher.group(4)));
+        }
+        hotspots.put(hotspot.getName(), hotspot);
+    }
+
+    private static void parseCallGraphLine(String line, Map<String, Hotspot> hotspots) {
+        Matcher matcher = CALL_GRAPH_PATTERN.matcher(line);
+        if (!matcher.find()) {
+            return;
+        }
+        String name = CYCLE_PATTERN.matcher(matcher.group(6)).replaceFirst("");
+        if (name.startsWith("<cycle")) {
+            //the cycle as a whole, its members have their own lines
+            return;
+        }
+        Hotspot hotspot = hotspots.get(name);
+        if (hotspot == null) {
+            hotspot = new Hotspot(name);
+            hotspots.put(name, hotspot);
+        }
+        double self = Double.parseDouble(matcher.group(3));
+        double children = Double.parseDouble(matcher.group(4));
+        hotspot.setTotalSeconds(self + children);
+        if (hotspot.getCalls() == Hotspot.UNKNOWN_CALLS && matcher.group(5) != null) {
+            hotspot.setCalls(Long.parseLong(matcher.group(5)));
+        }
+    }
+}
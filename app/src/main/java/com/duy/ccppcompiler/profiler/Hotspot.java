@@ -0,0 +1,155 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.profiler;
+
+import android.support.annotation.Nullable;
+
+import java.util.Comparator;
+
+/**
+ * Time spent in one function of a profiled run, read from the report of gprof.
+ */
+
+public class Hotspot {
+    public static final int SORT_SELF = 0;
+    public static final int SORT_TOTAL = 1;
+    public static final int SORT_CALLS = 2;
+    public static final int SORT_NAME = 3;
+
+    /**
+     * Used when gprof doesn't know how often the function was called, it was not compiled with -pg
+     */
+    public static final long UNKNOWN_CALLS = -1;
+    public static final int NO_LINE = -1;
+
+    private final String mName;
+    private double mPercent;
+    private double mSelfSeconds;
+    private double mTotalSeconds;
+    private long mCalls = UNKNOWN_CALLS;
+    @Nullable
+    private String mFile;
+    private int mLine = NO_LINE;
+    private double mLineSeconds = -1;
+
+    public Hotspot(String name) {
+        mName = name;
+    }
+
+    /**
+     * Ascending order of the key, except {@link #SORT_NAME} the largest values are usually wanted
+     * first, the caller reverses it
+     */
+    public static Comparator<Hotspot> getComparator(final int sortBy) {
+        return new Comparator<Hotspot>() {
+            @Override
+            public int compare(Hotspot o1, Hotspot o2) {
+                switch (sortBy) {
+                    case SORT_TOTAL:
+                        return Double.compare(o1.mTotalSeconds, o2.mTotalSeconds);
+                    case SORT_CALLS:
+                        return o1.mCalls < o2.mCalls ? -1 : (o1.mCalls == o2.mCalls ? 0 : 1);
+                    case SORT_NAME:
+                        return o1.mName.compareTo(o2.mName);
+                    default:
+                        return Double.compare(o1.mSelfSeconds, o2.mSelfSeconds);
+                }
+            }
+        };
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * @return share of the self time in the whole run
+     */
+    public double getPercent() {
+        return mPercent;
+    }
+
+    void setPercent(double percent) {
+        mPercent = percent;
+    }
+
+    /**
+     * @return time spent in the function itself
+     */
+    public double getSelfSeconds() {
+        return mSelfSeconds;
+    }
+
+    void setSelfSeconds(double selfSeconds) {
+        mSelfSeconds = selfSeconds;
+    }
+
+    /**
+     * @return time spent in the function and the functions it called
+     */
+    public double getTotalSeconds() {
+        return mTotalSeconds;
+    }
+
+    void setTotalSeconds(double totalSeconds) {
+        mTotalSeconds = totalSeconds;
+    }
+
+    public long getCalls() {
+        return mCalls;
+    }
+
+    void setCalls(long calls) {
+        mCalls = calls;
+    }
+
+    /**
+     * @return path of the source which contains the hottest line of the function, null if no line
+     * of the function was sampled
+     */
+    @Nullable
+    public String getFile() {
+        return mFile;
+    }
+
+    public int getLine() {
+        return mLine;
+    }
+
+    /**
+     * Keep the line if more time was spent in it than in the current one
+     */
+    void offerLine(String file, int line, double seconds) {
+        if (seconds > mLineSeconds) {
+            mFile = file;
+            mLine = line;
+            mLineSeconds = seconds;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Hotspot{" +
+                "name='" + mName + '\'' +
+                ", self=" + mSelfSeconds +
+                ", total=" + mTotalSeconds +
+                ", calls=" + mCalls +
+                ", file='" + mFile + '\'' +
+                ", line=" + mLine +
+                '}';
+    }
+}
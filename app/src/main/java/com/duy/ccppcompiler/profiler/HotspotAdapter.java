@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.profiler;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.duy.ccppcompiler.R;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+public class HotspotAdapter extends RecyclerView.Adapter<HotspotAdapter.ViewHolder> {
+    private final List<Hotspot> mHotspots;
+    private int mSortBy = Hotspot.SORT_SELF;
+    private boolean mDescending = true;
+    private OnHotspotClickListener mListener;
+
+    HotspotAdapter(List<Hotspot> hotspots) {
+        mHotspots = hotspots;
+        sort();
+    }
+
+    void setOnHotspotClickListener(OnHotspotClickListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Sort by the key, or reverse the order if the list is already sorted by it. Times and calls
+     * are sorted from the largest, names alphabetically
+     */
+    void sortBy(int sortBy) {
+        if (mSortBy == sortBy) {
+            mDescending = !mDescending;
+        } else {
+            mSortBy = sortBy;
+            mDescending = sortBy != Hotspot.SORT_NAME;
+        }
+        sort();
+        notifyDataSetChanged();
+    }
+
+    private void sort() {
+        Comparator<Hotspot> comparator = Hotspot.getComparator(mSortBy);
+        Collections.sort(mHotspots, mDescending ? Collections.reverseOrder(comparator) : comparator);
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.list_item_hotspot, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        final Hotspot hotspot = mHotspots.get(position);
+        holder.txtName.setText(hotspot.getName());
+        if (hotspot.getFile() != null) {
+            holder.txtLocation.setVisibility(View.VISIBLE);
+            holder.txtLocation.setText(new File(hotspot.getFile()).getName() + ":" + hotspot.getLine());
+        } else {
+            holder.txtLocation.setVisibility(View.GONE);
+        }
+        holder.txtSelf.setText(String.format(Locale.US, "%.2f", hotspot.getSelfSeconds()));
+        holder.txtTotal.setText(String.format(Locale.US, "%.2f", hotspot.getTotalSeconds()));
+        holder.txtCalls.setText(hotspot.getCalls() != Hotspot.UNKNOWN_CALLS ? String.valueOf(hotspot.getCalls()) : "");
+        holder.itemView.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                if (mListener != null) {
+                    mListener.onHotspotClick(hotspot);
+                }
+            }
+        });
+    }
+
+    @Override
+    public int getItemCount() {
+        return mHotspots.size();
+    }
+
+    public interface OnHotspotClickListener {
+        void onHotspotClick(Hotspot hotspot);
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        TextView txtName, txtLocation, txtSelf, txtTotal, txtCalls;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            txtName = itemView.findViewById(R.id.txt_name);
+            txtLocation = itemView.findViewById(R.id.txt_location);
+            txtSelf = itemView.findViewById(R.id.txt_self);
+            txtTotal = itemView.findViewById(R.id.txt_total);
+            txtCalls = itemView.findViewById(R.id.txt_calls);
+        }
+    }
+}
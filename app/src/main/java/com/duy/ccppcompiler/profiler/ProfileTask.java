@@ -0,0 +1,190 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.profiler;
+
+import android.app.Activity;
+import android.app.ProgressDialog;
+import android.content.DialogInterface;
+import android.os.AsyncTask;
+import android.support.v7.app.AlertDialog;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.widget.Toast;
+
+import com.duy.ccppcompiler.R;
+import com.duy.ccppcompiler.compiler.GCCCompiler;
+import com.duy.ccppcompiler.diagnostic.DiagnosticPresenter;
+import com.duy.common.DLog;
+import com.duy.ide.compiler.shell.ProcessSupervisor;
+import com.duy.ide.compiler.shell.ShellResult;
+import com.jecelyin.editor.v2.Preferences;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Run gprof on the gmon.out written by a profiled run and show the functions in a list which
+ * can be sorted by self time, total time, calls or name. Tapping a function opens its hottest
+ * line in the editor.
+ * <p>
+ * gprof runs twice, the function report has the calls and the call graph, the line by line
+ * report has the source locations.
+ */
+
+public class ProfileTask extends AsyncTask<Void, Void, Object> {
+    private static final String TAG = "ProfileTask";
+    private final Activity mActivity;
+    private final GCCCompiler mCompiler;
+    private final File mBinary;
+    private final File mGmon;
+    private final DiagnosticPresenter mDiagnosticPresenter;
+    private final ProcessSupervisor mSupervisor;
+    private ProgressDialog mProgressDialog;
+
+    public ProfileTask(Activity activity, GCCCompiler compiler, File binary, File gmon,
+                       DiagnosticPresenter diagnosticPresenter) {
+        mActivity = activity;
+        mCompiler = compiler;
+        mBinary = binary;
+        mGmon = gmon;
+        mDiagnosticPresenter = diagnosticPresenter;
+        Preferences preferences = Preferences.getInstance(activity);
+        mSupervisor = new ProcessSupervisor(preferences.getCompileTimeout(), preferences.getCompileMemoryLimit());
+    }
+
+    @Override
+    protected void onPreExecute() {
+        super.onPreExecute();
+        mProgressDialog = new ProgressDialog(mActivity);
+        mProgressDialog.setTitle(R.string.profile);
+        mProgressDialog.setMessage(mActivity.getString(R.string.profile_progress));
+        mProgressDialog.setCancelable(false);
+        mProgressDialog.setButton(DialogInterface.BUTTON_NEGATIVE, mActivity.getString(R.string.abort),
+                new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        mSupervisor.cancel();
+                    }
+                });
+        mProgressDialog.show();
+    }
+
+    /**
+     * @return the hotspots, or the output of gprof if it failed
+     */
+    @Override
+    protected Object doInBackground(Void... voids) {
+        ShellResult result = null;
+        try {
+            result = mCompiler.runGprof(mBinary, mGmon, false, mSupervisor);
+            if (DLog.DEBUG) DLog.d(TAG, "gprof finished in " + result.getTime() + "ms");
+            if (mSupervisor.isAborted()) {
+                return null;
+            }
+            if (result.getResultCode() != 0) {
+                return result.getMessage();
+            }
+            ArrayList<Hotspot> hotspots = GprofParser.parse(result.openMessageReader());
+            result.release();
+
+            result = mCompiler.runGprof(mBinary, mGmon, true, mSupervisor);
+            if (result.getResultCode() == 0) {
+                GprofParser.parseLines(result.openMessageReader(), hotspots);
+            }
+            return hotspots;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return e.getMessage();
+        } finally {
+            //the output may be spilled to a file
+            if (result != null) {
+                result.release();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected void onPostExecute(Object result) {
+        super.onPostExecute(result);
+        if (mActivity.isFinishing()) {
+            return;
+        }
+        mProgressDialog.dismiss();
+        if (result instanceof ArrayList) {
+            showHotspots((ArrayList<Hotspot>) result);
+        } else if (result != null) {
+            Toast.makeText(mActivity, mActivity.getString(R.string.profile_failed, result),
+                    Toast.LENGTH_LONG).show();
+        }
+    }
+
+    private void showHotspots(ArrayList<Hotspot> hotspots) {
+        if (hotspots.isEmpty()) {
+            Toast.makeText(mActivity, R.string.profile_empty, Toast.LENGTH_LONG).show();
+            return;
+        }
+        View view = View.inflate(mActivity, R.layout.dialog_hotspots, null);
+        final HotspotAdapter adapter = new HotspotAdapter(hotspots);
+        RecyclerView recyclerView = view.findViewById(R.id.hotspot_list_view);
+        recyclerView.setLayoutManager(new LinearLayoutManager(mActivity));
+        recyclerView.setAdapter(adapter);
+        bindSortColumn(view, R.id.txt_sort_name, Hotspot.SORT_NAME, adapter);
+        bindSortColumn(view, R.id.txt_sort_self, Hotspot.SORT_SELF, adapter);
+        bindSortColumn(view, R.id.txt_sort_total, Hotspot.SORT_TOTAL, adapter);
+        bindSortColumn(view, R.id.txt_sort_calls, Hotspot.SORT_CALLS, adapter);
+
+        final AlertDialog dialog = new AlertDialog.Builder(mActivity)
+                .setTitle(R.string.profile)
+                .setView(view)
+                .setPositiveButton(R.string.close, null)
+                .show();
+        adapter.setOnHotspotClickListener(new HotspotAdapter.OnHotspotClickListener() {
+            @Override
+            public void onHotspotClick(Hotspot hotspot) {
+                if (hotspot.getFile() == null) {
+                    //no line of the function was sampled
+                    return;
+                }
+                dialog.dismiss();
+                mDiagnosticPresenter.gotoLine(new File(hotspot.getFile()), hotspot.getLine());
+            }
+        });
+    }
+
+    private static void bindSortColumn(View view, int id, final int sortBy, final HotspotAdapter adapter) {
+        view.findViewById(id).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                adapter.sortBy(sortBy);
+            }
+        });
+    }
+
+    /**
+     * Stop gprof, called when the activity is destroyed
+     */
+    public void cancel() {
+        mSupervisor.cancel();
+        cancel(false);
+        if (mProgressDialog != null && mProgressDialog.isShowing()) {
+            mProgressDialog.dismiss();
+        }
+    }
+}
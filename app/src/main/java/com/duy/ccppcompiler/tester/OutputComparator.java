@@ -0,0 +1,137 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.tester;
+
+import android.support.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Compare the output of a program with the expected output line by line. Like most judges,
+ * whitespace at the end of lines and empty lines at the end of the output are ignored.
+ */
+
+public class OutputComparator {
+    /**
+     * Lines in a mismatch are cut to this length, they are only shown to the user
+     */
+    private static final int MAX_LINE_LENGTH = 80;
+
+    private OutputComparator() {
+    }
+
+    /**
+     * Both readers are closed
+     *
+     * @return the first different line, null if the outputs are equal
+     */
+    @Nullable
+    public static Mismatch compare(Reader expected, Reader actual) throws IOException {
+        BufferedReader expectedReader = new BufferedReader(expected);
+        BufferedReader actualReader = new BufferedReader(actual);
+        try {
+            int lineNumber = 0;
+            while (true) {
+                lineNumber++;
+                String expectedLine = expectedReader.readLine();
+                String actualLine = actualReader.readLine();
+                if (expectedLine == null || actualLine == null) {
+                    //only empty lines may remain in the longer output
+                    BufferedReader longer = expectedLine == null ? actualReader : expectedReader;
+                    String line = expectedLine == null ? actualLine : expectedLine;
+                    while (line != null && trimEnd(line).isEmpty()) {
+                        lineNumber++;
+                        line = longer.readLine();
+                    }
+                    if (line == null) {
+                        return null;
+                    }
+                    return expectedLine == null
+                            ? new Mismatch(lineNumber, null, cut(line))
+                            : new Mismatch(lineNumber, cut(line), null);
+                }
+                if (!trimEnd(expectedLine).equals(trimEnd(actualLine))) {
+                    return new Mismatch(lineNumber, cut(expectedLine), cut(actualLine));
+                }
+            }
+        } finally {
+            expectedReader.close();
+            actualReader.close();
+        }
+    }
+
+    static String trimEnd(String line) {
+        int end = line.length();
+        while (end > 0 && Character.isWhitespace(line.charAt(end - 1))) {
+            end--;
+        }
+        return line.substring(0, end);
+    }
+
+    @Nullable
+    private static String cut(@Nullable String line) {
+        if (line == null || line.length() <= MAX_LINE_LENGTH) {
+            return line;
+        }
+        return line.substring(0, MAX_LINE_LENGTH) + "...";
+    }
+
+    public static class Mismatch {
+        private final int mLine;
+        @Nullable
+        private final String mExpected;
+        @Nullable
+        private final String mActual;
+
+        Mismatch(int line, @Nullable String expected, @Nullable String actual) {
+            mLine = line;
+            mExpected = expected;
+            mActual = actual;
+        }
+
+        public int getLine() {
+            return mLine;
+        }
+
+        /**
+         * @return expected line, null if the output is longer than expected
+         */
+        @Nullable
+        public String getExpected() {
+            return mExpected;
+        }
+
+        /**
+         * @return line written by the program, null if the output is shorter than expected
+         */
+        @Nullable
+        public String getActual() {
+            return mActual;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + mLine + ": expected " + quote(mExpected) + ", found " + quote(mActual);
+        }
+
+        private static String quote(@Nullable String line) {
+            return line == null ? "end of output" : "\"" + line + "\"";
+        }
+    }
+}
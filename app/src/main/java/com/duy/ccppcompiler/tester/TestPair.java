@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.tester;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An input file and the file with its expected output, they have the same name with the
+ * extensions .in and .out
+ */
+
+public class TestPair {
+    public static final String INPUT_EXTENSION = ".in";
+    public static final String OUTPUT_EXTENSION = ".out";
+
+    private final String mName;
+    private final File mInput;
+    private final File mExpectedOutput;
+
+    public TestPair(String name, File input, File expectedOutput) {
+        mName = name;
+        mInput = input;
+        mExpectedOutput = expectedOutput;
+    }
+
+    /**
+     * @return all pairs in the directory sorted by name, inputs without an output file are
+     * ignored
+     */
+    public static List<TestPair> findAll(File directory) {
+        List<TestPair> pairs = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return pairs;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            String fileName = file.getName();
+            if (!file.isFile() || !fileName.endsWith(INPUT_EXTENSION)) {
+                continue;
+            }
+            String name = fileName.substring(0, fileName.length() - INPUT_EXTENSION.length());
+            File output = new File(directory, name + OUTPUT_EXTENSION);
+            if (output.isFile()) {
+                pairs.add(new TestPair(name, file, output));
+            }
+        }
+        return pairs;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public File getInput() {
+        return mInput;
+    }
+
+    public File getExpectedOutput() {
+        return mExpectedOutput;
+    }
+}
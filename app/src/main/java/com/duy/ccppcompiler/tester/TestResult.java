@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.tester;
+
+import android.support.annotation.Nullable;
+
+import java.util.Locale;
+
+public class TestResult {
+    private final TestPair mTestPair;
+    private final Verdict mVerdict;
+    private final long mTime;
+    private final long mPeakMemory;
+    @Nullable
+    private final String mDetail;
+
+    /**
+     * @param time       - wall time in milliseconds
+     * @param peakMemory - sampled peak memory in bytes, 0 if the program exited before the
+     *                   first sample
+     * @param detail     - first mismatch of a wrong answer or the exit code of a runtime error
+     */
+    public TestResult(TestPair testPair, Verdict verdict, long time, long peakMemory, @Nullable String detail) {
+        mTestPair = testPair;
+        mVerdict = verdict;
+        mTime = time;
+        mPeakMemory = peakMemory;
+        mDetail = detail;
+    }
+
+    public TestPair getTestPair() {
+        return mTestPair;
+    }
+
+    public Verdict getVerdict() {
+        return mVerdict;
+    }
+
+    public long getTime() {
+        return mTime;
+    }
+
+    public long getPeakMemory() {
+        return mPeakMemory;
+    }
+
+    @Nullable
+    public String getDetail() {
+        return mDetail;
+    }
+
+    /**
+     * @return one line summary, followed by the detail on the next line if there is one
+     */
+    public String format() {
+        String line = String.format(Locale.US, "%-4s %-16s %6d ms %7d KB", mVerdict.getShortName(),
+                mTestPair.getName(), mTime, mPeakMemory / 1024);
+        return mDetail == null ? line : line + "\n     " + mDetail;
+    }
+
+    @Override
+    public String toString() {
+        return "TestResult{" +
+                "name=" + mTestPair.getName() +
+                ", verdict=" + mVerdict +
+                ", time=" + mTime +
+                ", peakMemory=" + mPeakMemory +
+                ", detail='" + mDetail + '\'' +
+                '}';
+    }
+}
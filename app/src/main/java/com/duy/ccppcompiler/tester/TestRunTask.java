@@ -0,0 +1,152 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.tester;
+
+import android.app.Activity;
+import android.app.ProgressDialog;
+import android.content.DialogInterface;
+import android.graphics.Typeface;
+import android.os.AsyncTask;
+import android.support.v7.app.AlertDialog;
+import android.widget.ScrollView;
+import android.widget.TextView;
+
+import com.duy.ccppcompiler.R;
+import com.duy.ccppcompiler.compiler.GCCConstants;
+import com.duy.ccppcompiler.console.services.BackgroundJob;
+import com.duy.ccppcompiler.console.services.EnvironmentVariable;
+import com.duy.common.DLog;
+import com.duy.ide.compiler.BuildScheduler;
+import com.jecelyin.editor.v2.Preferences;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Judge the compiled binary on the test cases of a directory and show the verdict of every case.
+ * The limits of each case are read from settings.
+ */
+
+public class TestRunTask extends AsyncTask<Void, Integer, List<TestResult>> {
+    private static final String TAG = "TestRunTask";
+    private final Activity mActivity;
+    private final File mTestDirectory;
+    private final TestRunner mRunner;
+    private ProgressDialog mProgressDialog;
+
+    public TestRunTask(Activity activity, File binary, File testDirectory) {
+        mActivity = activity;
+        mTestDirectory = testDirectory;
+        Preferences preferences = Preferences.getInstance(activity);
+        String workingDir = EnvironmentVariable.getHomePath(activity);
+        File spillDir = new File(activity.getCacheDir(), GCCConstants.OUTPUT_DIR);
+        mRunner = new TestRunner(binary, BackgroundJob.buildEnvironmentMap(false, workingDir, activity),
+                new File(workingDir), preferences.getTestTimeLimit(), preferences.getTestMemoryLimit(), spillDir);
+    }
+
+    @Override
+    protected void onPreExecute() {
+        super.onPreExecute();
+        mProgressDialog = new ProgressDialog(mActivity);
+        mProgressDialog.setTitle(R.string.run_tests);
+        //the total is published when the directory was listed
+        mProgressDialog.setMessage("");
+        mProgressDialog.setCancelable(false);
+        mProgressDialog.setButton(DialogInterface.BUTTON_NEGATIVE, mActivity.getString(R.string.abort),
+                new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        mRunner.cancel();
+                    }
+                });
+        mProgressDialog.show();
+    }
+
+    @Override
+    protected List<TestResult> doInBackground(Void... voids) {
+        //a directory on external storage can be slow to list
+        List<TestPair> testPairs = TestPair.findAll(mTestDirectory);
+        publishProgress(0, testPairs.size());
+        try {
+            return mRunner.runAll(testPairs, BuildScheduler.create(mActivity), new TestRunner.Listener() {
+                @Override
+                public void onCaseFinished(TestResult result, int finished, int total) {
+                    if (DLog.DEBUG) DLog.d(TAG, "onCaseFinished: " + result);
+                    publishProgress(finished, total);
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    @Override
+    protected void onProgressUpdate(Integer... values) {
+        super.onProgressUpdate(values);
+        mProgressDialog.setMessage(mActivity.getString(R.string.tests_progress, values[0], values[1]));
+    }
+
+    @Override
+    protected void onPostExecute(List<TestResult> results) {
+        super.onPostExecute(results);
+        if (mActivity.isFinishing()) {
+            return;
+        }
+        mProgressDialog.dismiss();
+        if (results == null) {
+            return;
+        }
+
+        int accepted = 0;
+        StringBuilder report = new StringBuilder();
+        for (TestResult result : results) {
+            if (result.getVerdict() == Verdict.ACCEPTED) {
+                accepted++;
+            }
+            report.append(result.format()).append('\n');
+        }
+
+        TextView textView = new TextView(mActivity);
+        int padding = (int) (16 * mActivity.getResources().getDisplayMetrics().density);
+        textView.setPadding(padding, padding, padding, padding);
+        textView.setTypeface(Typeface.MONOSPACE);
+        textView.setTextIsSelectable(true);
+        textView.setHorizontallyScrolling(true);
+        textView.setText(results.isEmpty()
+                ? mActivity.getString(R.string.no_test_cases, mTestDirectory.getPath())
+                : report);
+        ScrollView scrollView = new ScrollView(mActivity);
+        scrollView.addView(textView);
+        new AlertDialog.Builder(mActivity)
+                .setTitle(mActivity.getString(R.string.tests_passed, accepted, results.size()))
+                .setView(scrollView)
+                .setPositiveButton(R.string.close, null)
+                .show();
+    }
+
+    /**
+     * Stop testing, called when the activity is destroyed
+     */
+    public void cancel() {
+        mRunner.cancel();
+        cancel(false);
+        if (mProgressDialog != null && mProgressDialog.isShowing()) {
+            mProgressDialog.dismiss();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.tester;
+
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import com.duy.ide.compiler.BuildScheduler;
+import com.duy.ide.compiler.shell.OutputBuffer;
+import com.duy.ide.compiler.shell.ProcessSupervisor;
+import com.duy.ide.compiler.shell.ShellResult;
+import com.duy.ide.compiler.shell.ShellUtils;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Run a binary on all test cases of a directory in parallel and judge its output. Each case
+ * runs without a terminal in its own process watched by a {@link ProcessSupervisor}, which
+ * enforces the time and memory limit of the case.
+ */
+
+public class TestRunner {
+    private static final String SHELL = "/system/bin/sh";
+    /**
+     * The shell only redirects the streams, exec replaces it by the binary so the supervisor
+     * measures the binary itself. Standard error is not part of the judged output
+     */
+    private static final String RUN_SCRIPT = "cd \"$2\" && exec \"$0\" < \"$1\" 2>/dev/null";
+
+    private final File mBinary;
+    private final Map<String, String> mEnvironment;
+    private final File mWorkingDir;
+    private final long mTimeLimit;
+    private final long mMemoryLimit;
+    private final File mSpillDir;
+    private final Set<ProcessSupervisor> mRunning = new HashSet<>();
+    private volatile boolean mCancelled = false;
+
+    /**
+     * @param timeLimit   - wall time limit of each case in milliseconds
+     * @param memoryLimit - memory limit of each case in bytes
+     * @param spillDir    - directory for outputs which are too large to keep in memory
+     */
+    public TestRunner(File binary, Map<String, String> environment, File workingDir,
+                      long timeLimit, long memoryLimit, File spillDir) {
+        mBinary = binary;
+        mEnvironment = environment;
+        mWorkingDir = workingDir;
+        mTimeLimit = timeLimit;
+        mMemoryLimit = memoryLimit;
+        mSpillDir = spillDir;
+    }
+
+    /**
+     * Kill the running cases, the remaining cases are skipped
+     */
+    public void cancel() {
+        synchronized (mRunning) {
+            mCancelled = true;
+            for (ProcessSupervisor supervisor : mRunning) {
+                supervisor.cancel();
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * @param listener - called from worker threads when a case is judged, may be null
+     * @return results in the order of the cases
+     */
+    @WorkerThread
+    public List<TestResult> runAll(final List<TestPair> cases, BuildScheduler scheduler,
+                                   @Nullable final Listener listener) throws InterruptedException {
+        final TestResult[] results = new TestResult[cases.size()];
+        final AtomicInteger finished = new AtomicInteger(0);
+        List<Callable<ShellResult>> jobs = new ArrayList<>();
+        for (int i = 0; i < cases.size(); i++) {
+            final int index = i;
+            jobs.add(new Callable<ShellResult>() {
+                @Override
+                public ShellResult call() {
+                    results[index] = run(cases.get(index));
+                    if (listener != null) {
+                        listener.onCaseFinished(results[index], finished.incrementAndGet(), cases.size());
+                    }
+                    //results are collected above, the scheduler only provides the worker pool
+                    return new ShellResult(0);
+                }
+            });
+        }
+        scheduler.runAll(jobs);
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = new TestResult(cases.get(i), Verdict.SKIPPED, 0, 0, null);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private TestResult run(TestPair testPair) {
+        ProcessSupervisor supervisor = new ProcessSupervisor(mTimeLimit, mMemoryLimit);
+        synchronized (mRunning) {
+            if (mCancelled) {
+                return new TestResult(testPair, Verdict.SKIPPED, 0, 0, null);
+            }
+            mRunning.add(supervisor);
+        }
+        ShellResult result = null;
+        try {
+            List<String> args = new ArrayList<>();
+            args.add("-c");
+            args.add(RUN_SCRIPT);
+            args.add(mBinary.getAbsolutePath());
+            args.add(testPair.getInput().getAbsolutePath());
+            args.add(mWorkingDir.getAbsolutePath());
+            result = ShellUtils.execCommand(SHELL, args, mEnvironment, null, supervisor,
+                    new OutputBuffer(mSpillDir, OutputBuffer.DEFAULT_MEMORY_LIMIT));
+            return judge(testPair, result, supervisor);
+        } finally {
+            synchronized (mRunning) {
+                mRunning.remove(supervisor);
+            }
+            if (result != null) {
+                result.release();
+            }
+        }
+    }
+
+    private TestResult judge(TestPair testPair, ShellResult result, ProcessSupervisor supervisor) {
+        long time = result.getTime();
+        long memory = supervisor.getPeakMemory();
+        switch (supervisor.getAbortReason()) {
+            case ProcessSupervisor.REASON_CANCELLED:
+                return new TestResult(testPair, Verdict.SKIPPED, time, memory, null);
+            case ProcessSupervisor.REASON_TIMEOUT:
+                return new TestResult(testPair, Verdict.TIME_LIMIT_EXCEEDED, time, memory, null);
+            case ProcessSupervisor.REASON_OUT_OF_MEMORY:
+                return new TestResult(testPair, Verdict.MEMORY_LIMIT_EXCEEDED, time, memory, null);
+        }
+        if (result.getResultCode() != 0) {
+            return new TestResult(testPair, Verdict.RUNTIME_ERROR, time, memory,
+                    "exit code " + result.getResultCode());
+        }
+        try {
+            OutputComparator.Mismatch mismatch = OutputComparator.compare(
+                    new FileReader(testPair.getExpectedOutput()), result.openMessageReader());
+            if (mismatch == null) {
+                return new TestResult(testPair, Verdict.ACCEPTED, time, memory, null);
+            }
+            return new TestResult(testPair, Verdict.WRONG_ANSWER, time, memory, mismatch.toString());
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new TestResult(testPair, Verdict.RUNTIME_ERROR, time, memory, e.toString());
+        }
+    }
+
+    public interface Listener {
+        void onCaseFinished(TestResult result, int finished, int total);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.tester;
+
+/**
+ * Result of running the program on one test case
+ */
+public enum Verdict {
+    /**
+     * The output matches the expected output
+     */
+    ACCEPTED("AC"),
+    /**
+     * The program exited normally but its output is different
+     */
+    WRONG_ANSWER("WA"),
+    /**
+     * Killed because it ran longer than the time limit
+     */
+    TIME_LIMIT_EXCEEDED("TLE"),
+    /**
+     * Killed because it used more memory than the memory limit
+     */
+    MEMORY_LIMIT_EXCEEDED("MLE"),
+    /**
+     * Crashed or exited with a non zero code
+     */
+    RUNTIME_ERROR("RE"),
+    /**
+     * Not run because testing was cancelled
+     */
+    SKIPPED("-"),;
+
+    private String shortName;
+
+    Verdict(String shortName) {
+        this.shortName = shortName;
+    }
+
+    public String getShortName() {
+        return shortName;
+    }
+}
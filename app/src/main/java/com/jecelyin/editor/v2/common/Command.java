@@ -60,6 +60,6 @@ public class Command {
         INSERT_TEXT,
         RELOAD_WITH_ENCODING,
         FULL_SCREEN,
-        THEME, REQUEST_FOCUS, DELETE, HIGHLIGHT_ERROR, CLEAR_ERROR_SPAN,
+        THEME, REQUEST_FOCUS, DELETE, HIGHLIGHT_ERRORS, CLEAR_ERROR_SPAN,
     }
 }
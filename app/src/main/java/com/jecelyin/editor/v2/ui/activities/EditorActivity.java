@@ -26,6 +26,8 @@ import android.net.Uri;
 import android.os.Bundle;
 import android.support.annotation.IdRes;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentManager;
 import android.support.v4.view.GravityCompat;
 import android.support.v4.view.ViewPager;
@@ -42,14 +44,19 @@ import android.widget.TextView;
 
 import com.afollestad.materialdialogs.folderselector.FolderChooserDialog;
 import com.duy.ccppcompiler.R;
+import com.duy.ccppcompiler.assembly.AssemblyFragment;
+import com.duy.ccppcompiler.assembly.AssemblyPresenter;
 import com.duy.ccppcompiler.compiler.CompileManager;
 import com.duy.ccppcompiler.compiler.CompilerFactory;
+import com.duy.ccppcompiler.compiler.GCCCompiler;
+import com.duy.ccppcompiler.compiler.analyze.GCCCodeAnalyzer;
+import com.duy.ccppcompiler.compiler.analyze.GPlusPlusCodeAnalyzer;
 import com.duy.ccppcompiler.diagnostic.DiagnosticFragment;
 import com.duy.ccppcompiler.diagnostic.DiagnosticPresenter;
 import com.duy.ccppcompiler.filemanager.SrcFileManager;
 import com.duy.ccppcompiler.ui.dialogs.DialogNewFile;
-import com.duy.ide.compiler.CompileTask;
 import com.duy.ide.compiler.INativeCompiler;
+import com.duy.ide.compiler.analyze.ICodeAnalysis;
 import com.duy.ide.filemanager.FileManager;
 import com.jecelyin.android.file_explorer.FileExplorerActivity;
 import com.jecelyin.common.utils.DLog;
@@ -81,7 +88,9 @@ import com.sothree.slidinguppanel.SlidingUpPanelLayout;
 import java.io.File;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author Jecelyin Peng <jecelyin@gmail.com>
@@ -95,6 +104,10 @@ public class EditorActivity extends FullScreenActivity
     private static final int RC_OPEN_FILE = 1;
     private final static int RC_SAVE = 3;
     private static final int RC_SETTINGS = 5;
+    /**
+     * The console of a profiled run, see {@link CompileManager#RUN_MODE_PROFILE}
+     */
+    public static final int RC_PROFILE = 6;
 
     public Toolbar mToolbar;
     public ViewPager mEditorPager;
@@ -109,11 +122,21 @@ public class EditorActivity extends FullScreenActivity
     private MenuManager mMenuManager;
     private long mExitTime;
     private DiagnosticPresenter mDiagnosticPresenter;
+    /**
+     * Not null while the assembly view is shown
+     */
+    @Nullable
+    private AssemblyPresenter mAssemblyPresenter;
+    /**
+     * One manager for the whole activity, it serializes all builds of the shared output binary
+     */
+    private CompileManager mCompileManager;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         mPreferences = Preferences.getInstance(this);
+        mCompileManager = new CompileManager(this);
         MenuManager.init(this);
 
         setContentView(R.layout.activity_main);
@@ -224,6 +247,7 @@ public class EditorActivity extends FullScreenActivity
         fm.beginTransaction().replace(R.id.container_diagnostic_list_view, diagnosticFragment, tag)
                 .commit();
         mDiagnosticPresenter = new DiagnosticPresenter(diagnosticFragment, this, mTabManager);
+        mCompileManager.setDiagnosticPresenter(mDiagnosticPresenter);
     }
 
     private void initToolbar() {
@@ -412,7 +436,22 @@ public class EditorActivity extends FullScreenActivity
                 new CharsetsDialog(this).show();
                 break;
             case R.id.action_run:
-                compileAndRun();
+                compileAndRun(CompileManager.RUN_MODE_CONSOLE);
+                break;
+            case R.id.action_benchmark:
+                compileAndRun(CompileManager.RUN_MODE_BENCHMARK);
+                break;
+            case R.id.action_run_tests:
+                chooseTestDirectory();
+                break;
+            case R.id.action_profile:
+                compileAndRun(CompileManager.RUN_MODE_PROFILE);
+                break;
+            case R.id.action_assembly:
+                toggleAssemblyView();
+                break;
+            case R.id.action_optimization_report:
+                showOptimizationReport();
                 break;
             case R.id.m_settings:
                 SettingsActivity.startActivity(this, RC_SETTINGS);
@@ -447,8 +486,28 @@ public class EditorActivity extends FullScreenActivity
         }
     }
 
-    private void compileAndRun() {
-        saveAll(false);
+    /**
+     * @return analyzer which checks the syntax of the file while it is edited, null if the file
+     * is not a C/C++ source
+     */
+    @Nullable
+    public ICodeAnalysis createCodeAnalyzer(File file) {
+        if (mDiagnosticPresenter == null) {
+            return null;
+        }
+        String name = file.getName().toLowerCase();
+        if (name.endsWith(".c")) {
+            return new GCCCodeAnalyzer(this, file, mCompileManager.getScheduler(), mDiagnosticPresenter);
+        } else if (name.endsWith(".cpp") || name.endsWith(".cc") || name.endsWith(".cxx")) {
+            return new GPlusPlusCodeAnalyzer(this, file, mCompileManager.getScheduler(), mDiagnosticPresenter);
+        }
+        return null;
+    }
+
+    /**
+     * Build from the content of the editors, the files are not saved before running
+     */
+    private void compileAndRun(int runMode) {
         EditorDelegate currentEditor = getCurrentEditorDelegate();
         File[] srcFiles = new File[1];
         if (currentEditor != null) {
@@ -462,11 +521,21 @@ public class EditorActivity extends FullScreenActivity
             compileType = CompilerFactory.CompileType.GCC;
         }
         INativeCompiler compiler = CompilerFactory.createCompiler(EditorActivity.this, compileType);
-        CompileManager compileManager = new CompileManager(EditorActivity.this);
-        compileManager.setDiagnosticPresenter(mDiagnosticPresenter);
+        compiler.setUnsavedFiles(getUnsavedFiles());
+        mCompileManager.compile(compiler, srcFiles, runMode);
+    }
 
-        CompileTask compileTask = new CompileTask(compiler, srcFiles, compileManager);
-        compileTask.execute();
+    /**
+     * @return a snapshot of every changed editor, copying the text is much faster than saving it
+     */
+    private Map<File, String> getUnsavedFiles() {
+        Map<File, String> unsavedFiles = new HashMap<>();
+        for (EditorDelegate editorDelegate : mTabManager.getEditorPagerAdapter().getAllEditor()) {
+            if (editorDelegate.isChanged()) {
+                unsavedFiles.put(new File(editorDelegate.getPath()), editorDelegate.getText());
+            }
+        }
+        return unsavedFiles;
     }
 
     @Override
@@ -484,9 +553,101 @@ public class EditorActivity extends FullScreenActivity
         }
     }
 
+    /**
+     * Ask for the directory with the test cases, tests are usually stored next to the source
+     */
+    private void chooseTestDirectory() {
+        EditorDelegate currentEditor = getCurrentEditorDelegate();
+        if (currentEditor == null) {
+            return;
+        }
+        File parent = new File(currentEditor.getPath()).getParentFile();
+        new FolderChooserDialog.Builder(this)
+                .chooseButton(R.string.run_tests)
+                .initialPath(parent != null ? parent.getAbsolutePath() : null)
+                .show();
+    }
+
     @Override
     public void onFolderSelection(@NonNull FolderChooserDialog dialog, @NonNull File file) {
+        //the folder chooser is only used to choose test cases
+        mCompileManager.setTestDirectory(file);
+        compileAndRun(CompileManager.RUN_MODE_TESTS);
+    }
 
+    /**
+     * Show the optimization remarks of the current source in the diagnostic list
+     */
+    private void showOptimizationReport() {
+        EditorDelegate currentEditor = getCurrentEditorDelegate();
+        if (currentEditor == null) {
+            return;
+        }
+        File sourceFile = new File(currentEditor.getPath());
+        CompilerFactory.CompileType compileType;
+        if (sourceFile.getName().toLowerCase().endsWith(".cpp")) {
+            compileType = CompilerFactory.CompileType.G_PLUS_PLUS;
+        } else {
+            compileType = CompilerFactory.CompileType.GCC;
+        }
+        if (mAssemblyPresenter != null) {
+            //the remarks are shown in the diagnostic list
+            toggleAssemblyView();
+        }
+        GCCCompiler compiler = (GCCCompiler) CompilerFactory.createCompiler(this, compileType);
+        mCompileManager.showOptimizationReport(compiler, sourceFile, currentEditor.getText());
+    }
+
+    /**
+     * Show the assembly of the current source in place of the diagnostics, or switch back
+     */
+    private void toggleAssemblyView() {
+        FragmentManager fm = getSupportFragmentManager();
+        Fragment diagnosticFragment = fm.findFragmentByTag(DiagnosticFragment.class.getSimpleName());
+        String tag = AssemblyFragment.class.getSimpleName();
+        AssemblyFragment assemblyFragment = (AssemblyFragment) fm.findFragmentByTag(tag);
+        if (diagnosticFragment == null) {
+            return;
+        }
+        if (mAssemblyPresenter != null) {
+            mAssemblyPresenter.detach();
+            mAssemblyPresenter = null;
+            if (assemblyFragment != null) {
+                fm.beginTransaction().hide(assemblyFragment).show(diagnosticFragment).commit();
+            }
+            return;
+        }
+        if (assemblyFragment == null) {
+            assemblyFragment = AssemblyFragment.newInstance();
+            fm.beginTransaction().hide(diagnosticFragment)
+                    .add(R.id.container_diagnostic_list_view, assemblyFragment, tag).commit();
+        } else {
+            fm.beginTransaction().hide(diagnosticFragment).show(assemblyFragment).commit();
+        }
+        mAssemblyPresenter = new AssemblyPresenter(assemblyFragment, this, mCompileManager.getScheduler());
+        mAssemblyPresenter.attach(getCurrentEditorDelegate());
+        mDiagnosticPresenter.showView();
+    }
+
+    /**
+     * Called by {@link TabManager} when another tab is selected
+     */
+    public void onCurrentTabChanged() {
+        if (mAssemblyPresenter != null) {
+            mAssemblyPresenter.attach(getCurrentEditorDelegate());
+        }
+        if (mDiagnosticPresenter != null) {
+            mDiagnosticPresenter.onEditorVisible(getCurrentEditorDelegate());
+        }
+    }
+
+    /**
+     * Called by {@link EditorDelegate} when its file was loaded, spans set before are gone
+     */
+    public void onEditorLoaded(EditorDelegate delegate) {
+        if (mDiagnosticPresenter != null) {
+            mDiagnosticPresenter.onEditorLoaded(delegate);
+        }
     }
 
     private void hideSoftInput() {
@@ -526,6 +687,11 @@ public class EditorActivity extends FullScreenActivity
     @Override
     protected void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode == RC_PROFILE) {
+            //the console has no result, it is closed with back
+            mCompileManager.onProfiledRunFinished();
+            return;
+        }
 
         if (resultCode != RESULT_OK)
             return;
@@ -598,6 +764,14 @@ public class EditorActivity extends FullScreenActivity
         return mTabManager;
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mCompileManager.cancel();
+        if (mAssemblyPresenter != null) {
+            mAssemblyPresenter.detach();
+        }
+    }
 
     @Override
     public void onBackPressed() {
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jecelyin.editor.v2.ui.editor;
+
+import java.util.ArrayList;
+
+/**
+ * Replacements of a text which are applied together. The edits are kept sorted by offset and
+ * are given in offsets of the original text, so no edit has to be remapped after another one.
+ * They are merged into one replacement of the region from the first to the last edit.
+ */
+
+public class BatchEdit {
+    private final ArrayList<Edit> mEdits = new ArrayList<>();
+
+    /**
+     * Replace [start, end) of the original text
+     *
+     * @return false if the edit overlaps an edit added before, it is not added
+     */
+    public boolean add(int start, int end, CharSequence text) {
+        if (start < 0 || end < start) {
+            return false;
+        }
+        //index of the first edit which starts after this one
+        int low = 0;
+        int high = mEdits.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mEdits.get(mid).start <= start) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low > 0) {
+            Edit previous = mEdits.get(low - 1);
+            //two insertions at one offset have no defined order
+            if (previous.end > start || previous.start == start) {
+                return false;
+            }
+        }
+        if (low < mEdits.size() && mEdits.get(low).start < end) {
+            return false;
+        }
+        mEdits.add(low, new Edit(start, end, text));
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return mEdits.isEmpty();
+    }
+
+    public int size() {
+        return mEdits.size();
+    }
+
+    /**
+     * @return start of the replaced region
+     */
+    public int getStart() {
+        return mEdits.get(0).start;
+    }
+
+    /**
+     * @return end of the replaced region in the original text
+     */
+    public int getEnd() {
+        return mEdits.get(mEdits.size() - 1).end;
+    }
+
+    int getStart(int index) {
+        return mEdits.get(index).start;
+    }
+
+    int getEnd(int index) {
+        return mEdits.get(index).end;
+    }
+
+    int getLength(int index) {
+        return mEdits.get(index).text.length();
+    }
+
+    /**
+     * @return the text which replaces [{@link #getStart()}, {@link #getEnd()}) of the original
+     */
+    public CharSequence build(CharSequence original) {
+        StringBuilder result = new StringBuilder();
+        int offset = getStart();
+        for (Edit edit : mEdits) {
+            result.append(original, offset, edit.start);
+            result.append(edit.text);
+            offset = edit.end;
+        }
+        return result;
+    }
+
+    private static class Edit {
+        final int start;
+        final int end;
+        final CharSequence text;
+
+        Edit(int start, int end, CharSequence text) {
+            this.start = start;
+            this.end = end;
+            this.text = text;
+        }
+    }
+}
@@ -67,6 +67,11 @@ public class Document implements ReadFileListener, TextWatcher {
     private final Buffer mBuffer;
     @SuppressLint("UseSparseArrays")
     private final HashMap<Integer, ArrayList<ForegroundColorSpan>> mColorSpanMap = new HashMap<>();
+    private final TextAnchors mAnchors = new TextAnchors();
+    /**
+     * Incremented by every change of the content
+     */
+    private int mGeneration;
 
     private int mLineCount;
     private String mEncoding = "UTF-8";
@@ -188,6 +193,8 @@ public class Document implements ReadFileListener, TextWatcher {
 
         mEditorDelegate.mEditText.setLineNumber(mLineCount);
         mEditorDelegate.mEditText.setText(spannableStringBuilder);
+        //the anchors belong to the old content
+        mAnchors.clear();
         mEditorDelegate.onLoadFinish();
 
     }
@@ -199,6 +206,8 @@ public class Document implements ReadFileListener, TextWatcher {
 
     @Override
     public void onTextChanged(CharSequence s, int start, int before, int count) {
+        mGeneration++;
+        mAnchors.onTextChanged(start, before, count);
 
         Editable editableText = mEditorDelegate.getEditableText();
         mBuffer.setEditable(editableText);
@@ -256,6 +265,50 @@ public class Document implements ReadFileListener, TextWatcher {
 
     }
 
+    /**
+     * @return a number which changes with the content, a copy of the text tagged with it is
+     * outdated when the generation of the document is different
+     */
+    public int getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * Ranges which follow the edits of this document
+     */
+    public TextAnchors getAnchors() {
+        return mAnchors;
+    }
+
+    /**
+     * @param realLine - the line, start at 1
+     * @param column   - the column, start at 1. A column after the end of the line is the end of
+     *                 the line
+     * @return offset of realLine:column, -1 if the line doesn't exist
+     */
+    public int getOffset(int realLine, int column) {
+        LineManager lineManager = mBuffer.getLineManager();
+        if (realLine < 1 || realLine > lineManager.getLineCount()) {
+            return -1;
+        }
+        int offset = lineManager.getLineStartOffset(realLine - 1);
+        if (column > 1) {
+            //the end offset is after the line terminator
+            int terminator = lineManager.getLineEndOffset(realLine - 1) - 1;
+            offset = column - 1 < terminator - offset ? offset + column - 1 : terminator;
+        }
+        return Math.min(offset, mEditorDelegate.getEditableText().length());
+    }
+
+    /**
+     * @return the line of the offset, start at 1
+     */
+    public int getRealLine(int offset) {
+        LineManager lineManager = mBuffer.getLineManager();
+        int length = mEditorDelegate.getEditableText().length();
+        return lineManager.getLineOfOffset(Math.max(0, Math.min(offset, length))) + 1;
+    }
+
     void setMode(String name) {
         mModeName = name;
 
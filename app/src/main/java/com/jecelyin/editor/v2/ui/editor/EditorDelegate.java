@@ -39,6 +39,7 @@ import android.view.Menu;
 import android.view.MenuItem;
 
 import com.duy.ccppcompiler.R;
+import com.duy.ide.compiler.analyze.ICodeAnalysis;
 import com.duy.ide.editor.span.ErrorSpan;
 import com.duy.ide.filemanager.SaveListener;
 import com.jecelyin.common.utils.DLog;
@@ -74,6 +75,10 @@ public class EditorDelegate implements TextWatcher {
     private int mOrientation;
     private boolean loaded = true;
     private int findResultsKeywordColor;
+    @Nullable
+    private ICodeAnalysis mCodeAnalyzer;
+    @Nullable
+    private String mAnalyzedPath;
 
     public EditorDelegate(@NonNull SavedState ss) {
         savedState = ss;
@@ -110,6 +115,7 @@ public class EditorDelegate implements TextWatcher {
 
         noticeDocumentChanged();
         loaded = true;
+        getMainActivity().onEditorLoaded(this);
     }
 
     public Context getContext() {
@@ -172,6 +178,9 @@ public class EditorDelegate implements TextWatcher {
     public void onDestroy() {
         mEditText.removeTextChangedListener(mDocument);
         mEditText.removeTextChangedListener(this);
+        if (mCodeAnalyzer != null) {
+            mCodeAnalyzer.cancel();
+        }
     }
 
 
@@ -224,6 +233,22 @@ public class EditorDelegate implements TextWatcher {
         mEditText.setSelection(end, end);
     }
 
+    /**
+     * Apply all edits with one replacement of their region, so the undo history gets one step
+     * and the highlighter and line numbers are updated once
+     */
+    @MainThread
+    public void applyEdit(BatchEdit edit) {
+        if (mEditText == null || edit.isEmpty()) {
+            return;
+        }
+        Editable editableText = getEditableText();
+        CharSequence replacement = edit.build(editableText);
+        mDocument.getAnchors().expectBatchEdit(edit);
+        editableText.replace(edit.getStart(), edit.getEnd(), replacement);
+        mEditText.setSelection(edit.getStart() + replacement.length());
+    }
+
     public int getCursorOffset() {
         if (mEditText == null)
             return -1;
@@ -268,9 +293,13 @@ public class EditorDelegate implements TextWatcher {
                     mEditText.convertWrapCharTo((String) command.object);
                 break;
             case GOTO_INDEX:
+                mEditText.requestFocus();
+                if (command.args.containsKey("offset")) {
+                    mEditText.gotoOffset(command.args.getInt("offset"));
+                    break;
+                }
                 int col = command.args.getInt("col", -1);
                 int line = command.args.getInt("line", -1);
-                mEditText.requestFocus();
                 mEditText.gotoLine(line, col);
                 break;
             case GOTO_TOP:
@@ -343,8 +372,12 @@ public class EditorDelegate implements TextWatcher {
             case REQUEST_FOCUS:
                 mEditText.requestFocus();
                 break;
-            case HIGHLIGHT_ERROR:
-                highlightError(command.args);
+            case HIGHLIGHT_ERRORS:
+                if (!loaded) {
+                    //the spans would be lost when the content is set
+                    return false;
+                }
+                highlightErrors(command.args);
                 break;
             case CLEAR_ERROR_SPAN:
                 clearErrorSpan();
@@ -362,29 +395,43 @@ public class EditorDelegate implements TextWatcher {
     }
 
     /**
-     * Set {@link com.duy.ide.editor.span.ErrorSpan} from line:col to lineEnd:colEnd
-     * If it hasn't end index, this method will be set span for all line
+     * Replace all {@link com.duy.ide.editor.span.ErrorSpan}s. The offsets are taken from the line
+     * index of the document, the errors must be sorted by line. Overlapping errors share one
+     * span. If an error hasn't an end index, the span is set for the whole line
      *
-     * @param args - contains four key
+     * @param args - int arrays "line", "col", "lineEnd" and "colEnd", lineEnd is -1 if there is
+     *             no end index
      */
-    private void highlightError(Bundle args) {
-        if (DLog.DEBUG) DLog.d(TAG, "highlightError() called with: args = [" + args + "]");
-        int realLine = args.getInt("line", -1);
-        int virtualLine = mEditText.realLineToVirtualLine(realLine);
-        if (virtualLine != -1) { //found
-            Editable editableText = mEditText.getEditableText();
+    private void highlightErrors(Bundle args) {
+        clearErrorSpan();
+        int[] lines = args.getIntArray("line");
+        int[] cols = args.getIntArray("col");
+        int[] lineEnds = args.getIntArray("lineEnd");
+        int[] colEnds = args.getIntArray("colEnd");
+        if (lines == null || cols == null || lineEnds == null || colEnds == null) {
+            return;
+        }
+        if (DLog.DEBUG) DLog.d(TAG, "highlightErrors() called with " + lines.length + " errors");
+        Editable editableText = mEditText.getEditableText();
+        int spanStart = -1;
+        int spanEnd = -1;
+        for (int i = 0; i < lines.length; i++) {
+            int lineStart = mDocument.getOffset(lines[i], 1);
+            if (lineStart < 0) {
+                continue;
+            }
             int startIndex;
             int endIndex;
-            if (args.containsKey("lineEnd")) {
-                int lineEnd = args.getInt("lineEnd");
-                int colEnd = args.getInt("colEnd", 1);
-                int colStart = args.getInt("col", 1);
-                startIndex = mEditText.getCursorIndex(realLine, colStart).offset;
-                endIndex = mEditText.getCursorIndex(lineEnd, colEnd).offset;
-
+            if (lineEnds[i] >= 0) {
+                startIndex = mDocument.getOffset(lines[i], cols[i]);
+                endIndex = mDocument.getOffset(lineEnds[i], colEnds[i]);
+                if (endIndex < 0) {
+                    continue;
+                }
             } else {
-                startIndex = mEditText.getLayout().getLineStart(virtualLine);
-                endIndex = mEditText.getLayout().getLineEnd(virtualLine);
+                startIndex = lineStart;
+                //the offset of the line terminator
+                endIndex = mDocument.getOffset(lines[i], Integer.MAX_VALUE);
                 //remove white space, tab or line terminate
                 while (startIndex < endIndex) {
                     if (Character.isWhitespace(editableText.charAt(startIndex))) {
@@ -398,13 +445,21 @@ public class EditorDelegate implements TextWatcher {
                     break;
                 }
             }
-            ErrorSpan[] spans = editableText.getSpans(startIndex, endIndex, ErrorSpan.class);
-            for (ErrorSpan span : spans) {
-                editableText.removeSpan(span);
+            if (startIndex >= endIndex) {
+                continue;
             }
-            if (startIndex < endIndex) {
-                editableText.setSpan(new ErrorSpan(Color.RED), startIndex, endIndex, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            if (startIndex >= spanStart && startIndex <= spanEnd) {
+                spanEnd = Math.max(spanEnd, endIndex);
+                continue;
             }
+            if (spanStart < spanEnd) {
+                editableText.setSpan(new ErrorSpan(Color.RED), spanStart, spanEnd, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            }
+            spanStart = startIndex;
+            spanEnd = endIndex;
+        }
+        if (spanStart < spanEnd) {
+            editableText.setSpan(new ErrorSpan(Color.RED), spanStart, spanEnd, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
         }
     }
 
@@ -466,6 +521,25 @@ public class EditorDelegate implements TextWatcher {
     public void afterTextChanged(Editable s) {
         if (loaded) {
             noticeMenuChanged();
+            analyzeCode(s);
+        }
+    }
+
+    /**
+     * Check the syntax of the edited content in background, the analyzer is created again when
+     * the file was saved to another path
+     */
+    private void analyzeCode(Editable s) {
+        String path = getPath();
+        if (mAnalyzedPath == null || !mAnalyzedPath.equals(path)) {
+            if (mCodeAnalyzer != null) {
+                mCodeAnalyzer.cancel();
+            }
+            mCodeAnalyzer = getMainActivity().createCodeAnalyzer(new File(path));
+            mAnalyzedPath = path;
+        }
+        if (mCodeAnalyzer != null) {
+            mCodeAnalyzer.analyze(s, mDocument.getGeneration());
         }
     }
 
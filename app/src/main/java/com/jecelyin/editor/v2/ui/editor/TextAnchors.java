@@ -0,0 +1,131 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jecelyin.editor.v2.ui.editor;
+
+/**
+ * Ranges of a document which move with the text. The document reports every change, a range
+ * after the change is shifted, a range which overlaps the change is resized and marked as
+ * touched.
+ * <p>
+ * An empty range is a position, it is touched by an insertion at the position. An insertion at
+ * the start of a non empty range moves the range, an insertion at its end doesn't change it.
+ */
+
+public class TextAnchors {
+    private int[] mStarts = new int[16];
+    private int[] mEnds = new int[16];
+    private boolean[] mTouched = new boolean[16];
+    private int mCount = 0;
+    /**
+     * The edits of the next change, if it is a batch edit
+     */
+    private BatchEdit mBatchEdit;
+
+    /**
+     * @return id of the anchor
+     */
+    public int add(int start, int end) {
+        if (mCount == mStarts.length) {
+            int capacity = mCount * 2;
+            int[] starts = new int[capacity];
+            int[] ends = new int[capacity];
+            boolean[] touched = new boolean[capacity];
+            System.arraycopy(mStarts, 0, starts, 0, mCount);
+            System.arraycopy(mEnds, 0, ends, 0, mCount);
+            System.arraycopy(mTouched, 0, touched, 0, mCount);
+            mStarts = starts;
+            mEnds = ends;
+            mTouched = touched;
+        }
+        mStarts[mCount] = start;
+        mEnds[mCount] = Math.max(start, end);
+        mTouched[mCount] = false;
+        return mCount++;
+    }
+
+    public int getStart(int id) {
+        return mStarts[id];
+    }
+
+    public int getEnd(int id) {
+        return mEnds[id];
+    }
+
+    /**
+     * @return true if the text of the range was edited
+     */
+    public boolean isTouched(int id) {
+        return mTouched[id];
+    }
+
+    public int size() {
+        return mCount;
+    }
+
+    /**
+     * Remove all anchors, ids returned before are invalid
+     */
+    public void clear() {
+        mCount = 0;
+    }
+
+    /**
+     * The next change applies the batch edit with one replacement of its region. The anchors are
+     * moved by each edit of the batch instead of the whole region, so anchors between the edits
+     * are not touched
+     */
+    public void expectBatchEdit(BatchEdit edit) {
+        mBatchEdit = edit;
+    }
+
+    /**
+     * The text in [start, start + before) was replaced by count characters
+     */
+    public void onTextChanged(int start, int before, int count) {
+        BatchEdit edit = mBatchEdit;
+        mBatchEdit = null;
+        if (edit != null && !edit.isEmpty()
+                && start == edit.getStart() && before == edit.getEnd() - edit.getStart()) {
+            //from the last edit, the offsets before an edit are not changed by it
+            for (int i = edit.size() - 1; i >= 0; i--) {
+                move(edit.getStart(i), edit.getEnd(i) - edit.getStart(i), edit.getLength(i));
+            }
+        } else {
+            move(start, before, count);
+        }
+    }
+
+    private void move(int start, int before, int count) {
+        int oldEnd = start + before;
+        int delta = count - before;
+        for (int i = 0; i < mCount; i++) {
+            int anchorStart = mStarts[i];
+            int anchorEnd = mEnds[i];
+            boolean empty = anchorStart == anchorEnd;
+            if (empty ? oldEnd < anchorStart : oldEnd <= anchorStart) {
+                mStarts[i] = anchorStart + delta;
+                mEnds[i] = anchorEnd + delta;
+            } else if (empty ? start > anchorEnd : start >= anchorEnd) {
+                //after the range
+            } else {
+                mTouched[i] = true;
+                mStarts[i] = Math.min(anchorStart, start);
+                mEnds[i] = anchorEnd >= oldEnd ? anchorEnd + delta : start + count;
+            }
+        }
+    }
+}
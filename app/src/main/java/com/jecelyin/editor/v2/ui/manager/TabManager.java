@@ -186,6 +186,7 @@ public class TabManager implements ViewPager.OnPageChangeListener {
     public void onPageSelected(int position) {
         mTabAdapter.setCurrentTab(position);
         updateToolbar();
+        mActivity.onCurrentTabChanged();
     }
 
     @Override
@@ -99,6 +99,11 @@ public class MenuFactory {
 
     private void initAllMenuItem() {
         menuItemInfos.add(new MenuItemInfo(MenuGroup.TOP, R.id.action_run, Command.CommandEnum.NONE, R.drawable.ic_play_arrow_white_24dp, R.string.run));
+        menuItemInfos.add(new MenuItemInfo(MenuGroup.RUN, R.id.action_benchmark, Command.CommandEnum.NONE, R.drawable.ic_timer_white_24dp, R.string.benchmark));
+        menuItemInfos.add(new MenuItemInfo(MenuGroup.RUN, R.id.action_run_tests, Command.CommandEnum.NONE, R.drawable.ic_playlist_check_white_24dp, R.string.run_tests));
+        menuItemInfos.add(new MenuItemInfo(MenuGroup.RUN, R.id.action_profile, Command.CommandEnum.NONE, R.drawable.ic_equalizer_white_24dp, R.string.profile));
+        menuItemInfos.add(new MenuItemInfo(MenuGroup.RUN, R.id.action_assembly, Command.CommandEnum.NONE, R.drawable.ic_memory_white_24dp, R.string.assembly));
+        menuItemInfos.add(new MenuItemInfo(MenuGroup.RUN, R.id.action_optimization_report, Command.CommandEnum.NONE, R.drawable.ic_flash_on_white_24dp, R.string.optimization_report));
 
         menuItemInfos.add(new MenuItemInfo(MenuGroup.FILE, R.id.action_new_file, Command.CommandEnum.NONE, R.drawable.ic_add_white_24dp, R.string.new_file));
         menuItemInfos.add(new MenuItemInfo(MenuGroup.FILE, R.id.action_open, Command.CommandEnum.OPEN, R.drawable.ic_folder_open_white_24dp, R.string.open));
@@ -26,6 +26,7 @@ import com.duy.ccppcompiler.R;
  */
 public enum MenuGroup {
     TOP(0),
+    RUN(R.string.run),
     FILE(R.string.file),
     EDIT(R.string.edit),
     FIND(R.string.find),
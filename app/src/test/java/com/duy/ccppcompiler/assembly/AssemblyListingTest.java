@@ -0,0 +1,69 @@
+package com.duy.ccppcompiler.assembly;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+public class AssemblyListingTest extends TestCase {
+    private static final String ASSEMBLY = ""
+            + "\t.arch armv7-a\n"
+            + "@ GNU C99 (GCC) version 7.2.0 (arm-linux-androideabi)\n"
+            + "\t.text\n"
+            + ".Ltext0:\n"
+            + "\t.file 1 \"/sdcard/main.c\"\n"
+            + "\t.file 2 \"/gcc/include/stdio.h\"\n"
+            + "\t.align\t2\n"
+            + "\t.global\tsquare\n"
+            + "square:\n"
+            + ".LFB0:\n"
+            + "\t.loc 1 3 0\n"
+            + "\t.cfi_startproc\n"
+            + "\tmul\tr0, r0, r0\t@ tmp112, x, x\n"
+            + ".L2:\n"
+            + "\t.loc 2 10 0\n"
+            + "\tbx\tlr\t@\n"
+            + "\t.loc 1 5 0 is_stmt 0\n"
+            + "\tmov\tr0, #0\n"
+            + ".LC0:\n"
+            + "\t.ascii\t\"hi\\000\"\n"
+            + "\t.section\t.debug_info,\"\",%progbits\n"
+            + ".Ldebug_info0:\n"
+            + "\t.4byte\t0x8a\n"
+            + "\t.text\n"
+            + "\tnop\n";
+
+    public void testParse() throws IOException {
+        AssemblyListing listing = AssemblyListing.parse(new StringReader(ASSEMBLY), "/sdcard/main.c");
+        assertEquals(8, listing.size());
+        assertEquals("square:", listing.getLine(0));
+        assertEquals(AssemblyListing.NO_SOURCE_LINE, listing.getSourceLine(0));
+        assertEquals("  mul r0, r0, r0 @ tmp112, x, x", listing.getLine(1));
+        assertEquals(3, listing.getSourceLine(1));
+        assertEquals(".L2:", listing.getLine(2));
+        //inlined from another file
+        assertEquals(AssemblyListing.NO_SOURCE_LINE, listing.getSourceLine(3));
+        assertEquals(5, listing.getSourceLine(4));
+        assertEquals(".LC0:", listing.getLine(5));
+        assertEquals("  .ascii \"hi\\000\"", listing.getLine(6));
+        //the debug section is skipped, code continues after .text
+        assertEquals("  nop", listing.getLine(7));
+    }
+
+    public void testIndexOfSourceLine() throws IOException {
+        AssemblyListing listing = AssemblyListing.parse(new StringReader(ASSEMBLY), "/sdcard/main.c");
+        assertEquals(1, listing.indexOfSourceLine(3));
+        assertEquals(4, listing.indexOfSourceLine(5));
+        assertEquals(-1, listing.indexOfSourceLine(4));
+    }
+
+    public void testMainFileDeclaredWithOtherNumber() throws IOException {
+        String assembly = "\t.file 1 \"/gcc/include/math.h\"\n"
+                + "\t.file 2 \"/sdcard/main.c\"\n"
+                + "f:\n"
+                + "\t.loc 2 7 0\n"
+                + "\tnop\n";
+        AssemblyListing listing = AssemblyListing.parse(new StringReader(assembly), "/sdcard/main.c");
+        assertEquals(7, listing.getSourceLine(1));
+    }
+}
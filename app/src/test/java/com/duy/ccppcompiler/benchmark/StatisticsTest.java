@@ -0,0 +1,31 @@
+package com.duy.ccppcompiler.benchmark;
+
+import junit.framework.TestCase;
+
+public class StatisticsTest extends TestCase {
+
+    public void testMedian() {
+        assertEquals(3.0, new Statistics(new double[]{5, 1, 3}).getMedian(), 1e-9);
+        assertEquals(2.5, new Statistics(new double[]{4, 1, 3, 2}).getMedian(), 1e-9);
+        assertEquals(0.0, new Statistics(new double[0]).getMedian(), 1e-9);
+    }
+
+    public void testPercentile() {
+        double[] values = new double[20];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 20 - i;
+        }
+        Statistics statistics = new Statistics(values);
+        assertEquals(1.0, statistics.getMin(), 1e-9);
+        assertEquals(19.0, statistics.getPercentile(95), 1e-9);
+        assertEquals(20.0, statistics.getPercentile(100), 1e-9);
+        assertEquals(7.0, new Statistics(new double[]{7}).getPercentile(95), 1e-9);
+    }
+
+    public void testStandardDeviation() {
+        Statistics statistics = new Statistics(new double[]{2, 4, 4, 4, 5, 5, 7, 9});
+        assertEquals(5.0, statistics.getMean(), 1e-9);
+        assertEquals(Math.sqrt(32.0 / 7), statistics.getStandardDeviation(), 1e-9);
+        assertEquals(0.0, new Statistics(new double[]{3}).getStandardDeviation(), 1e-9);
+    }
+}
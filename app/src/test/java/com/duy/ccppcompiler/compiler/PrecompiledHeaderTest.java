@@ -0,0 +1,50 @@
+package com.duy.ccppcompiler.compiler;
+
+import com.duy.utils.IOUtils;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+
+public class PrecompiledHeaderTest extends TestCase {
+    private File mRootDir;
+
+    @Override
+    protected void setUp() throws IOException {
+        mRootDir = File.createTempFile("pch", "");
+        mRootDir.delete();
+        mRootDir.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() {
+        IOUtils.delete(mRootDir);
+    }
+
+    public void testTrimKeepsRecentFlagSets() {
+        int count = PrecompiledHeader.MAX_FLAG_SETS + 2;
+        for (int i = 0; i < count; i++) {
+            File dir = new File(mRootDir, "flags" + i);
+            dir.mkdirs();
+            dir.setLastModified(1000000L * (i + 1));
+        }
+        //the oldest flag set is in use and must be kept
+        PrecompiledHeader.trim(mRootDir, "flags0");
+
+        assertTrue(new File(mRootDir, "flags0").isDirectory());
+        assertFalse(new File(mRootDir, "flags1").exists());
+        assertFalse(new File(mRootDir, "flags2").exists());
+        for (int i = 3; i < count; i++) {
+            assertTrue(new File(mRootDir, "flags" + i).isDirectory());
+        }
+        assertEquals(PrecompiledHeader.MAX_FLAG_SETS, mRootDir.listFiles().length);
+    }
+
+    public void testTrimBelowLimit() {
+        new File(mRootDir, "a").mkdirs();
+        new File(mRootDir, "b").mkdirs();
+        PrecompiledHeader.trim(mRootDir, "a");
+        assertEquals(2, mRootDir.listFiles().length);
+    }
+}
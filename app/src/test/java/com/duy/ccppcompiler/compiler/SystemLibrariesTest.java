@@ -0,0 +1,21 @@
+package com.duy.ccppcompiler.compiler;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class SystemLibrariesTest extends TestCase {
+
+    public void testNoLibraries() {
+        assertTrue(SystemLibraries.getLinkFlags(Arrays.asList("stdio.h", "vector")).isEmpty());
+        assertTrue(SystemLibraries.getLinkFlags(Collections.<String>emptyList()).isEmpty());
+    }
+
+    public void testLinkOrder() {
+        assertEquals(Arrays.asList("-lm", "-lncurses"),
+                SystemLibraries.getLinkFlags(Arrays.asList("curses.h", "math.h", "cmath")));
+        assertEquals(Arrays.asList("-lz", "-ldl", "-llog"),
+                SystemLibraries.getLinkFlags(Arrays.asList("android/log.h", "dlfcn.h", "zlib.h")));
+    }
+}
@@ -0,0 +1,34 @@
+package com.duy.ccppcompiler.compiler;
+
+import com.duy.ide.compiler.BuildMetrics;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+public class TimeReportParserTest extends TestCase {
+
+    public void testParseProgramTime() throws IOException {
+        BuildMetrics metrics = new BuildMetrics();
+        TimeReportParser.parse(new StringReader("# cc1plus 1.52 0.08\n" +
+                "/sdcard/main.cpp:3:5: error: 'x' was not declared in this scope\n" +
+                "# cc1plus 0.50 0.00\n" +
+                "# collect2 0.20 0.01\n"), metrics);
+        assertEquals(2, metrics.getPhaseTimes().size());
+        assertEquals(Long.valueOf(2100), metrics.getPhaseTimes().get("cc1plus"));
+        assertEquals(Long.valueOf(210), metrics.getPhaseTimes().get("collect2"));
+    }
+
+    public void testParsePhaseTime() throws IOException {
+        BuildMetrics metrics = new BuildMetrics();
+        TimeReportParser.parse(new StringReader("Execution times (seconds)\n" +
+                " phase setup             :   0.01 ( 2%) usr   0.00 ( 0%) sys   0.02 ( 3%) wall    1204 kB (10%) ggc\n" +
+                " phase parsing           :   0.50 (60%) usr   0.05 (40%) sys   0.56 (58%) wall   12345 kB (70%) ggc\n" +
+                " phase opt and generate  :   0.30 (38%) usr   0.02 (20%) sys   0.33 (39%) wall    4321 kB (20%) ggc\n" +
+                " TOTAL                 :   0.81             0.07             0.91              17870 kB\n"), metrics);
+        assertEquals(3, metrics.getPhaseTimes().size());
+        assertEquals(Long.valueOf(560), metrics.getPhaseTimes().get("parsing"));
+        assertEquals(Long.valueOf(330), metrics.getPhaseTimes().get("opt and generate"));
+    }
+}
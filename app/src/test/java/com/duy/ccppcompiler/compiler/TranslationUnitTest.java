@@ -0,0 +1,30 @@
+package com.duy.ccppcompiler.compiler;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+public class TranslationUnitTest extends TestCase {
+
+    public void testParseDependencies() {
+        List<String> dependencies = TranslationUnit.parseDependencies(
+                "/data/obj/main.c-1a2b3c4d.o: /sdcard/project/main.c /sdcard/project/list.h \\\n" +
+                        " /sdcard/project/util.h\n");
+        assertEquals(3, dependencies.size());
+        assertEquals("/sdcard/project/main.c", dependencies.get(0));
+        assertEquals("/sdcard/project/util.h", dependencies.get(2));
+    }
+
+    public void testParseEscapedPath() {
+        List<String> dependencies = TranslationUnit.parseDependencies(
+                "main.o: /sdcard/my\\ project/main.c /sdcard/my\\ project/a$$b.h");
+        assertEquals(2, dependencies.size());
+        assertEquals("/sdcard/my project/main.c", dependencies.get(0));
+        assertEquals("/sdcard/my project/a$b.h", dependencies.get(1));
+    }
+
+    public void testParseEmptyRule() {
+        assertTrue(TranslationUnit.parseDependencies("").isEmpty());
+        assertEquals(1, TranslationUnit.parseDependencies("main.o: main.c").size());
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.compiler.diagnostic.parser;
+
+import com.duy.ccppcompiler.compiler.diagnostic.Diagnostic;
+import com.duy.ccppcompiler.compiler.diagnostic.DiagnosticsCollector;
+import com.duy.ccppcompiler.compiler.diagnostic.Kind;
+import com.duy.ccppcompiler.compiler.diagnostic.OptimizationRemarkParser;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+
+public class OptimizationRemarkParserTest extends TestCase {
+
+    public void testNotesAreRemarks() {
+        DiagnosticsCollector diagnosticsCollector = new DiagnosticsCollector();
+        new OptimizationRemarkParser(diagnosticsCollector).parse(
+                "/sdcard/sum.c:5:3: note: loop vectorized\n" +
+                        "/sdcard/sum.c:12:5: note: not inlinable: main/3 -> sum/2, function body not available\n");
+        ArrayList<Diagnostic> diagnostics = diagnosticsCollector.getDiagnostics();
+        assertEquals(2, diagnostics.size());
+        assertEquals(Kind.REMARK, diagnostics.get(0).getKind());
+        assertEquals(5, diagnostics.get(0).getLineNumber());
+        assertEquals("loop vectorized", diagnostics.get(0).getMessage(null));
+        assertEquals(12, diagnostics.get(1).getLineNumber());
+    }
+
+    public void testKeepsTypeOfNewerGcc() {
+        DiagnosticsCollector diagnosticsCollector = new DiagnosticsCollector();
+        new OptimizationRemarkParser(diagnosticsCollector).parse(
+                "/sdcard/sum.c:5:3: missed: couldn't vectorize loop\n");
+        ArrayList<Diagnostic> diagnostics = diagnosticsCollector.getDiagnostics();
+        assertEquals(1, diagnostics.size());
+        assertEquals("missed: couldn't vectorize loop", diagnostics.get(0).getMessage(null));
+    }
+
+    public void testSkipsBannersAndDuplicates() {
+        DiagnosticsCollector diagnosticsCollector = new DiagnosticsCollector();
+        new OptimizationRemarkParser(diagnosticsCollector).parse(
+                "/sdcard/sum.c:5:3: note: === vect_analyze_loop_form ===\n" +
+                        "/sdcard/sum.c:5:3: note: not vectorized: unsupported data-type\n" +
+                        "/sdcard/sum.c:5:3: note: not vectorized: unsupported data-type\n" +
+                        "/sdcard/sum.c:3:6: note: vectorized 0 loops in function.\n");
+        ArrayList<Diagnostic> diagnostics = diagnosticsCollector.getDiagnostics();
+        assertEquals(2, diagnostics.size());
+        assertEquals("not vectorized: unsupported data-type", diagnostics.get(0).getMessage(null));
+        assertEquals(3, diagnostics.get(1).getLineNumber());
+    }
+}
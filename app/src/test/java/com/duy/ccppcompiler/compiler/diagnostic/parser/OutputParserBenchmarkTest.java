@@ -0,0 +1,171 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.compiler.diagnostic.parser;
+
+import com.duy.ccppcompiler.compiler.diagnostic.Diagnostic;
+import com.duy.ccppcompiler.compiler.diagnostic.DiagnosticListener;
+import com.duy.ccppcompiler.compiler.diagnostic.DiagnosticsCollector;
+import com.duy.ccppcompiler.compiler.diagnostic.Kind;
+import com.duy.ccppcompiler.compiler.diagnostic.OutputParser;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+
+/**
+ * Parses output recorded from gcc and g++ with -fdiagnostics-parseable-fixits, the logs are
+ * repeated to get the size of a failed build of a large project.
+ */
+public class OutputParserBenchmarkTest extends TestCase {
+    private static final int REPEAT = 2000;
+
+    private static String readLog(String name) throws IOException {
+        InputStream input = OutputParserBenchmarkTest.class.getResourceAsStream("/diagnostics/" + name);
+        assertNotNull(name, input);
+        Reader reader = new InputStreamReader(input, "UTF-8");
+        StringBuilder content = new StringBuilder();
+        char[] buffer = new char[4096];
+        int count;
+        while ((count = reader.read(buffer)) > 0) {
+            content.append(buffer, 0, count);
+        }
+        reader.close();
+        return content.toString();
+    }
+
+    public void testGccLog() throws IOException {
+        DiagnosticsCollector diagnosticsCollector = new DiagnosticsCollector();
+        new OutputParser(diagnosticsCollector).parse(readLog("gcc_errors.log"));
+        ArrayList<Diagnostic> diagnostics = diagnosticsCollector.getDiagnostics();
+        assertEquals(17, diagnostics.size());
+        assertEquals(3, countErrors(diagnostics));
+
+        Diagnostic first = diagnostics.get(0);
+        assertEquals(Kind.ERROR, first.getKind());
+        assertEquals(9, first.getLineNumber());
+        assertEquals(13, first.getColumnNumber());
+        assertEquals("expected ';' before '}' token", first.getMessage(null));
+        assertNotNull(first.getSuggestion());
+
+        int suggestions = 0;
+        Diagnostic include = null;
+        for (Diagnostic diagnostic : diagnostics) {
+            if (diagnostic.getSuggestion() != null) {
+                suggestions++;
+                include = diagnostic;
+            }
+        }
+        assertEquals(4, suggestions);
+        assertEquals(Kind.NOTE, include.getKind());
+        assertEquals("#include <math.h>\n", include.getSuggestion().getMessage());
+    }
+
+    public void testGppLog() throws IOException {
+        DiagnosticsCollector diagnosticsCollector = new DiagnosticsCollector();
+        new OutputParser(diagnosticsCollector).parse(readLog("gpp_errors.log"));
+        ArrayList<Diagnostic> diagnostics = diagnosticsCollector.getDiagnostics();
+        assertEquals(104, diagnostics.size());
+        assertEquals(10, countErrors(diagnostics));
+        for (Diagnostic diagnostic : diagnostics) {
+            //"required from here" and "In file included from" lines are context, not diagnostics
+            assertFalse(diagnostic.getMessage(null).isEmpty());
+            assertTrue(diagnostic.getSourceFile().getPath().startsWith("/"));
+        }
+    }
+
+    public void testMessageWithColon() {
+        DiagnosticsCollector diagnosticsCollector = new DiagnosticsCollector();
+        new OutputParser(diagnosticsCollector).parse(
+                "C:/sdcard/a b/main.cpp:7:12: note: candidate: 'void f(int)'\n" +
+                        "/sdcard/main.cpp:9:1: sorry, unimplemented: non-trivial designated initializers\n" +
+                        "/sdcard/main.cpp:10:1: fatal error: vector: No such file or directory\r\n");
+        ArrayList<Diagnostic> diagnostics = diagnosticsCollector.getDiagnostics();
+        assertEquals(3, diagnostics.size());
+        assertEquals("C:/sdcard/a b/main.cpp", diagnostics.get(0).getSourceFile().getPath());
+        assertEquals("candidate: 'void f(int)'", diagnostics.get(0).getMessage(null));
+        assertEquals("non-trivial designated initializers", diagnostics.get(1).getMessage(null));
+        assertEquals(Kind.ERROR, diagnostics.get(2).getKind());
+        assertEquals("vector: No such file or directory", diagnostics.get(2).getMessage(null));
+    }
+
+    public void testLargeOutput() throws IOException {
+        final String gcc = readLog("gcc_errors.log");
+        final String gpp = readLog("gpp_errors.log");
+        final int[] count = new int[1];
+        DiagnosticListener listener = new DiagnosticListener() {
+            @Override
+            public void report(Diagnostic diagnostic) {
+                count[0]++;
+            }
+        };
+        Reader input = new Reader() {
+            private int mIndex = 0;
+            private StringReader mLog = new StringReader(gcc);
+
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                while (true) {
+                    int read = mLog.read(buffer, offset, length);
+                    if (read > 0) {
+                        return read;
+                    }
+                    if (++mIndex >= REPEAT * 2) {
+                        return -1;
+                    }
+                    mLog = new StringReader(mIndex % 2 == 0 ? gcc : gpp);
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        long start = System.nanoTime();
+        new OutputParser(listener).parse(input);
+        long time = System.nanoTime() - start;
+
+        assertEquals((17 + 104) * REPEAT, count[0]);
+        int lines = (countLines(gcc) + countLines(gpp)) * REPEAT;
+        System.out.println("OutputParser: " + lines + " lines in " + time / 1000000 + "ms, "
+                + (long) (lines / (time / 1e9)) + " lines/s");
+    }
+
+    private static int countErrors(ArrayList<Diagnostic> diagnostics) {
+        int errors = 0;
+        for (Diagnostic diagnostic : diagnostics) {
+            if (diagnostic.getKind() == Kind.ERROR) {
+                errors++;
+            }
+        }
+        return errors;
+    }
+
+    private static int countLines(String text) {
+        int lines = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+}
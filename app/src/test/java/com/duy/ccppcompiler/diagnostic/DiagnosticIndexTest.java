@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.diagnostic;
+
+import com.duy.ccppcompiler.compiler.diagnostic.Diagnostic;
+import com.duy.ccppcompiler.compiler.diagnostic.DiagnosticFactory;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DiagnosticIndexTest extends TestCase {
+
+    public void testSortedByLine() {
+        ArrayList<Diagnostic> diagnostics = new ArrayList<>();
+        diagnostics.add(DiagnosticFactory.warn("/sdcard/main.c", 20, 5, "unused variable"));
+        diagnostics.add(DiagnosticFactory.error("/sdcard/util.c", 3, 1, "expected ';'"));
+        diagnostics.add(DiagnosticFactory.error("/sdcard/main.c", 7, 9, "undeclared"));
+        diagnostics.add(DiagnosticFactory.note("/sdcard/main.c", 7, 9, "reported only once"));
+        diagnostics.add(DiagnosticFactory.warn("/sdcard/main.c", 7, 2, "implicit declaration"));
+        DiagnosticIndex index = new DiagnosticIndex(diagnostics);
+        assertEquals(5, index.size());
+
+        List<Diagnostic> main = index.get(new File("/sdcard/main.c"));
+        assertEquals(4, main.size());
+        assertEquals("implicit declaration", main.get(0).getMessage(null));
+        assertEquals("undeclared", main.get(1).getMessage(null));
+        assertEquals("reported only once", main.get(2).getMessage(null));
+        assertEquals(20, main.get(3).getLineNumber());
+
+        assertEquals(1, index.get(new File("/sdcard/util.c")).size());
+        assertTrue(index.get(new File("/sdcard/other.c")).isEmpty());
+    }
+
+    public void testSamePathsMatch() {
+        ArrayList<Diagnostic> diagnostics = new ArrayList<>();
+        diagnostics.add(DiagnosticFactory.error("/sdcard/project/../main.c", 1, 1, "error"));
+        DiagnosticIndex index = new DiagnosticIndex(diagnostics);
+        assertEquals(1, index.get(new File("/sdcard/main.c")).size());
+        assertEquals(1, index.get(new File("/sdcard/./main.c")).size());
+    }
+
+    public void testIsSameFile() {
+        DiagnosticIndex index = new DiagnosticIndex(new ArrayList<Diagnostic>());
+        assertTrue(index.isSameFile(new File("/sdcard/project/../main.c"), new File("/sdcard/main.c")));
+        assertFalse(index.isSameFile(new File("/sdcard/main.c"), new File("/sdcard/util.c")));
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.duy.ccppcompiler.diagnostic;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+
+public class SnapshotGenerationsTest extends TestCase {
+
+    public void testEditAfterSnapshot() {
+        File main = new File("/sdcard/main.c");
+        File util = new File("/sdcard/util.c");
+        SnapshotGenerations generations = new SnapshotGenerations();
+        generations.put(main, 7);
+        generations.put(util, 2);
+
+        //main.c was edited while the build was running
+        assertFalse(generations.isCurrent(main, 8));
+        assertTrue(generations.isCurrent(util, 2));
+    }
+
+    public void testResultOfLatestCheck() {
+        File main = new File("/sdcard/main.c");
+        SnapshotGenerations generations = new SnapshotGenerations();
+        generations.put(main, 3);
+        assertFalse(generations.isCurrent(main, 5));
+        //the check of the edited content replaces the result
+        generations.put(main, 5);
+        assertTrue(generations.isCurrent(main, 5));
+    }
+
+    public void testSourceNotOpen() {
+        SnapshotGenerations generations = new SnapshotGenerations();
+        assertTrue(generations.isCurrent(new File("/sdcard/main.c"), 1));
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ccppcompiler.profiler;
+
+import junit.framework.TestCase;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+
+public class GprofParserTest extends TestCase {
+    private static final String REPORT = "Flat profile:\n" +
+            "\n" +
+            "Each sample counts as 0.01 seconds.\n" +
+            "  %   cumulative   self              self     total           \n" +
+            " time   seconds   seconds    calls  ms/call  ms/call  name    \n" +
+            " 60.00      0.06     0.06        1    60.00    60.00  slow\n" +
+            " 30.00      0.09     0.03   100000     0.00     0.00  fast(int, char)\n" +
+            " 10.00      0.10     0.01                             memcpy\n" +
+            "  0.00      0.10     0.00        1     0.00   100.00  main\n" +
+            "\n" +
+            "\t\t\tCall graph\n" +
+            "\n" +
+            "\n" +
+            "granularity: each sample hit covers 2 byte(s) for 10.00% of 0.10 seconds\n" +
+            "\n" +
+            "index % time    self  children    called     name\n" +
+            "                0.00    0.09       1/1           <spontaneous>\n" +
+            "[1]     90.0    0.00    0.09       1         main [1]\n" +
+            "                0.06    0.00       1/1           slow [2]\n" +
+            "                0.03    0.00  100000/100000      fast(int, char) [3]\n" +
+            "-----------------------------------------------\n" +
+            "                0.06    0.00       1/1           main [1]\n" +
+            "[2]     60.0    0.06    0.00       1         slow [2]\n" +
+            "-----------------------------------------------\n" +
+            "                              100000             fast(int, char) [3]\n" +
+            "[3]     30.0    0.03    0.00  100000+5      fast(int, char) <cycle 1> [3]\n" +
+            "-----------------------------------------------\n" +
+            "\n" +
+            "Index by function name\n" +
+            "\n" +
+            "   [3] fast(int, char)         [1] main                    [2] slow\n";
+
+    private static final String LINE_REPORT = "Flat profile:\n" +
+            "\n" +
+            "Each sample counts as 0.01 seconds.\n" +
+            "  %   cumulative   self              self     total           \n" +
+            " time   seconds   seconds    calls  Ts/call  Ts/call  name    \n" +
+            " 40.00      0.04     0.04                             slow (/sdcard/main.c:7 @ 10520)\n" +
+            " 20.00      0.06     0.02                             slow (/sdcard/main.c:6 @ 10510)\n" +
+            " 30.00      0.09     0.03                             fast(int, char) (/sdcard/main.c:12 @ 10600)\n" +
+            "  0.00      0.09     0.00        1     0.00     0.00  slow (/sdcard/main.c:4 @ 10500)\n";
+
+    public void testFlatProfile() throws Exception {
+        ArrayList<Hotspot> hotspots = GprofParser.parse(new StringReader(REPORT));
+        assertEquals(4, hotspots.size());
+        Hotspot slow = hotspots.get(0);
+        assertEquals("slow", slow.getName());
+        assertEquals(0.06, slow.getSelfSeconds(), 1e-9);
+        assertEquals(1, slow.getCalls());
+        assertEquals("fast(int, char)", hotspots.get(1).getName());
+        assertEquals(100000, hotspots.get(1).getCalls());
+        assertEquals(Hotspot.UNKNOWN_CALLS, hotspots.get(2).getCalls());
+    }
+
+    public void testCallGraphTotal() throws Exception {
+        ArrayList<Hotspot> hotspots = GprofParser.parse(new StringReader(REPORT));
+        Hotspot main = hotspots.get(3);
+        assertEquals("main", main.getName());
+        assertEquals(0.0, main.getSelfSeconds(), 1e-9);
+        assertEquals(0.09, main.getTotalSeconds(), 1e-9);
+        //not in the call graph, the total is the self time
+        assertEquals(0.01, hotspots.get(2).getTotalSeconds(), 1e-9);
+    }
+
+    public void testHottestLine() throws Exception {
+        ArrayList<Hotspot> hotspots = GprofParser.parse(new StringReader(REPORT));
+        GprofParser.parseLines(new StringReader(LINE_REPORT), hotspots);
+        assertEquals("/sdcard/main.c", hotspots.get(0).getFile());
+        assertEquals(7, hotspots.get(0).getLine());
+        assertEquals(12, hotspots.get(1).getLine());
+        assertNull(hotspots.get(3).getFile());
+    }
+
+    public void testSort() throws Exception {
+        ArrayList<Hotspot> hotspots = GprofParser.parse(new StringReader(REPORT));
+        Collections.sort(hotspots, Collections.reverseOrder(Hotspot.getComparator(Hotspot.SORT_TOTAL)));
+        assertEquals("main", hotspots.get(0).getName());
+        Collections.sort(hotspots, Hotspot.getComparator(Hotspot.SORT_NAME));
+        assertEquals("fast(int, char)", hotspots.get(0).getName());
+    }
+}
@@ -0,0 +1,47 @@
+package com.duy.ccppcompiler.tester;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+public class OutputComparatorTest extends TestCase {
+
+    private static OutputComparator.Mismatch compare(String expected, String actual) throws IOException {
+        return OutputComparator.compare(new StringReader(expected), new StringReader(actual));
+    }
+
+    public void testIgnoreTrailingWhitespace() throws IOException {
+        assertNull(compare("1 2\n3\n", "1 2  \n3\t\n\n\n"));
+        assertNull(compare("1 2\n3\n\n", "1 2\n3"));
+        assertNull(compare("", "\n \n"));
+    }
+
+    public void testDifferentLine() throws IOException {
+        OutputComparator.Mismatch mismatch = compare("1\n2\n3\n", "1\n2\n4\n");
+        assertNotNull(mismatch);
+        assertEquals(3, mismatch.getLine());
+        assertEquals("3", mismatch.getExpected());
+        assertEquals("4", mismatch.getActual());
+    }
+
+    public void testLeadingWhitespaceMatters() throws IOException {
+        assertNotNull(compare("1 2\n", " 1 2\n"));
+    }
+
+    public void testShorterOutput() throws IOException {
+        OutputComparator.Mismatch mismatch = compare("1\n\n2\n", "1\n");
+        assertNotNull(mismatch);
+        assertEquals(3, mismatch.getLine());
+        assertEquals("2", mismatch.getExpected());
+        assertNull(mismatch.getActual());
+    }
+
+    public void testLongerOutput() throws IOException {
+        OutputComparator.Mismatch mismatch = compare("1\n", "1\n\nextra\n");
+        assertNotNull(mismatch);
+        assertEquals(3, mismatch.getLine());
+        assertNull(mismatch.getExpected());
+        assertEquals("extra", mismatch.getActual());
+    }
+}
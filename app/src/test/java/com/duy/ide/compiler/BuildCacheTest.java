@@ -0,0 +1,60 @@
+package com.duy.ide.compiler;
+
+import com.duy.utils.IOUtils;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+
+public class BuildCacheTest extends TestCase {
+    private File mRootDir;
+
+    @Override
+    protected void setUp() throws IOException {
+        mRootDir = File.createTempFile("cache", "");
+        mRootDir.delete();
+        mRootDir.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() {
+        IOUtils.delete(mRootDir);
+    }
+
+    private File createBinary(String name, int size) {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            content.append('x');
+        }
+        File binary = new File(mRootDir, name);
+        assertTrue(com.jecelyin.common.utils.IOUtils.writeFile(binary, content.toString()));
+        return binary;
+    }
+
+    public void testPutDeletesLeastRecentlyUsed() {
+        File cacheDir = new File(mRootDir, "cache");
+        BuildCache cache = new BuildCache(cacheDir, 250);
+        assertTrue(cache.put("a", createBinary("a.out", 100)));
+        assertTrue(cache.put("b", createBinary("b.out", 100)));
+        new File(cacheDir, "a").setLastModified(1000000L);
+        new File(cacheDir, "b").setLastModified(2000000L);
+
+        //restoring marks the binary as used
+        assertTrue(cache.restore("a", new File(mRootDir, "run")));
+        assertTrue(cache.put("c", createBinary("c.out", 100)));
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    public void testLatestBinaryIsKept() {
+        BuildCache cache = new BuildCache(new File(mRootDir, "cache"), 50);
+        assertTrue(cache.put("a", createBinary("a.out", 100)));
+        assertNotNull(cache.get("a"));
+        assertTrue(cache.put("b", createBinary("b.out", 100)));
+        assertNull(cache.get("a"));
+        assertNotNull(cache.get("b"));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jecelyin.editor.v2.ui.editor;
+
+import junit.framework.TestCase;
+
+public class BatchEditTest extends TestCase {
+
+    public void testBuild() {
+        String text = "int main() {\n    pinf(\"%d\", x)\n    return 0\n}\n";
+        BatchEdit edit = new BatchEdit();
+        //added out of order, offsets of the original text
+        int semicolon = text.indexOf("\n    return");
+        assertTrue(edit.add(text.indexOf("return 0") + 8, text.indexOf("return 0") + 8, ";"));
+        assertTrue(edit.add(semicolon, semicolon, ";"));
+        assertTrue(edit.add(text.indexOf("pinf"), text.indexOf("pinf") + 4, "printf"));
+        assertEquals(3, edit.size());
+        assertEquals(text.indexOf("pinf"), edit.getStart());
+
+        String result = text.substring(0, edit.getStart()) + edit.build(text) + text.substring(edit.getEnd());
+        assertEquals("int main() {\n    printf(\"%d\", x);\n    return 0;\n}\n", result);
+    }
+
+    public void testOverlapIsRejected() {
+        BatchEdit edit = new BatchEdit();
+        assertTrue(edit.add(10, 20, "a"));
+        assertFalse(edit.add(15, 25, "b"));
+        assertFalse(edit.add(5, 11, "c"));
+        assertFalse(edit.add(12, 12, "d"));
+        assertTrue(edit.add(20, 20, "e"));
+        assertFalse(edit.add(20, 20, "f"));
+        assertTrue(edit.add(5, 10, "g"));
+        assertEquals(3, edit.size());
+    }
+
+    public void testAnchorsFollowEachEdit() {
+        String text = "aaaa bbbb cccc dddd";
+        TextAnchors anchors = new TextAnchors();
+        int b = anchors.add(5, 9);
+        int c = anchors.add(10, 14);
+        int d = anchors.add(15, 19);
+
+        BatchEdit edit = new BatchEdit();
+        edit.add(0, 4, "x");
+        edit.add(10, 14, "yyyyyy");
+        anchors.expectBatchEdit(edit);
+        //the editor replaces the region once
+        anchors.onTextChanged(edit.getStart(), edit.getEnd() - edit.getStart(), edit.build(text).length());
+
+        assertFalse(anchors.isTouched(b));
+        assertEquals(2, anchors.getStart(b));
+        assertEquals(6, anchors.getEnd(b));
+        assertTrue(anchors.isTouched(c));
+        assertFalse(anchors.isTouched(d));
+        assertEquals(14, anchors.getStart(d));
+    }
+}
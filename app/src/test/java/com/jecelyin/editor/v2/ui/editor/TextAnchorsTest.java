@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jecelyin.editor.v2.ui.editor;
+
+import junit.framework.TestCase;
+
+public class TextAnchorsTest extends TestCase {
+
+    public void testEditBeforeMovesRange() {
+        TextAnchors anchors = new TextAnchors();
+        int id = anchors.add(10, 15);
+        //insert 3 characters at 2
+        anchors.onTextChanged(2, 0, 3);
+        assertEquals(13, anchors.getStart(id));
+        assertEquals(18, anchors.getEnd(id));
+        //delete 5 characters at 0
+        anchors.onTextChanged(0, 5, 0);
+        assertEquals(8, anchors.getStart(id));
+        assertEquals(13, anchors.getEnd(id));
+        //insert at the start of the range
+        anchors.onTextChanged(8, 0, 1);
+        assertEquals(9, anchors.getStart(id));
+        assertFalse(anchors.isTouched(id));
+    }
+
+    public void testEditAfterKeepsRange() {
+        TextAnchors anchors = new TextAnchors();
+        int id = anchors.add(10, 15);
+        anchors.onTextChanged(15, 0, 4);
+        anchors.onTextChanged(20, 3, 0);
+        assertEquals(10, anchors.getStart(id));
+        assertEquals(15, anchors.getEnd(id));
+        assertFalse(anchors.isTouched(id));
+    }
+
+    public void testEditInsideTouchesRange() {
+        TextAnchors anchors = new TextAnchors();
+        int inside = anchors.add(10, 15);
+        int overlap = anchors.add(20, 30);
+        anchors.onTextChanged(12, 1, 3);
+        assertTrue(anchors.isTouched(inside));
+        assertEquals(10, anchors.getStart(inside));
+        assertEquals(17, anchors.getEnd(inside));
+        assertFalse(anchors.isTouched(overlap));
+        assertEquals(22, anchors.getStart(overlap));
+
+        //delete [18, 27), the range starts at the deletion and keeps its tail
+        anchors.onTextChanged(18, 9, 0);
+        assertTrue(anchors.isTouched(overlap));
+        assertEquals(18, anchors.getStart(overlap));
+        assertEquals(23, anchors.getEnd(overlap));
+    }
+
+    public void testPosition() {
+        TextAnchors anchors = new TextAnchors();
+        int id = anchors.add(5, 5);
+        anchors.onTextChanged(0, 0, 2);
+        anchors.onTextChanged(8, 0, 2);
+        assertEquals(7, anchors.getStart(id));
+        assertFalse(anchors.isTouched(id));
+        anchors.onTextChanged(7, 0, 1);
+        assertTrue(anchors.isTouched(id));
+        assertEquals(7, anchors.getStart(id));
+    }
+
+    public void testGrow() {
+        TextAnchors anchors = new TextAnchors();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, anchors.add(i * 10, i * 10 + 5));
+        }
+        anchors.onTextChanged(0, 0, 1);
+        assertEquals(991, anchors.getStart(99));
+        anchors.clear();
+        assertEquals(0, anchors.size());
+    }
+}
@@ -113,6 +113,7 @@ public class EditAreaView extends BaseEditorView {
      */
     int mMotionCorrection;
     private OnEditorSizeChangedListener onEditorSizeChangedListener;
+    private OnSelectionChangedListener onSelectionChangedListener;
     private UndoManager undoManager;
     private EditorHelper editorHelper;
     private ScaleGestureDetector mScaleDetector;
@@ -229,6 +230,17 @@ public class EditAreaView extends BaseEditorView {
         this.onEditorSizeChangedListener = onEditorSizeChangedListener;
     }
 
+    public void setOnSelectionChangedListener(OnSelectionChangedListener onSelectionChangedListener) {
+        this.onSelectionChangedListener = onSelectionChangedListener;
+    }
+
+    @Override
+    protected void onSelectionChanged(int selStart, int selEnd) {
+        super.onSelectionChanged(selStart, selEnd);
+        if (onSelectionChangedListener != null)
+            onSelectionChangedListener.onSelectionChanged(selStart, selEnd);
+    }
+
     public void hideSoftInput() {
         InputMethodManager imm = InputMethodManagerCompat.peekInstance(getContext());
         if (imm != null) {
@@ -375,6 +387,18 @@ public class EditAreaView extends BaseEditorView {
         }
     }
 
+    /**
+     * Move cursor to the offset
+     */
+    @MainThread
+    public void gotoOffset(int offset) {
+        if (getLayout() == null || offset < 0 || offset > length()) {
+            return;
+        }
+        setSelection(offset);
+        scrollToLine(getLayout().getLineForOffset(offset), true);
+    }
+
     private void scrollToLine(int line, boolean center) {
         int lineCount = getLineCount();
         int y = (int) (((float) line) / (float) lineCount) * getHeight();
@@ -771,6 +795,10 @@ public class EditAreaView extends BaseEditorView {
         void onEditorSizeChanged(int w, int h, int oldw, int oldh);
     }
 
+    public static interface OnSelectionChangedListener {
+        void onSelectionChanged(int selStart, int selEnd);
+    }
+
     private class ScaleListener extends ScaleGestureDetector.SimpleOnScaleGestureListener {
         private final float minSize;
         private final float maxSize;
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ide.compiler;
+
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import com.jecelyin.common.utils.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Directory of output binaries, one binary for each set of sources and build variant. Unlike a
+ * single shared output, the binary of one file stays valid while another file is built, so
+ * switching between files doesn't force a rebuild and several programs can run at once.
+ * <p>
+ * Next to each binary, a stamp file stores the build key it was built from. When the total
+ * size exceeds the limit, the least recently built binaries are deleted.
+ */
+
+public class ArtifactStore {
+    private static final String KEY_EXTENSION = ".key";
+    /**
+     * Readable part of the file name, the hash keeps the name unique
+     */
+    private static final int MAX_NAME_LENGTH = 32;
+
+    private final File mDir;
+    private final long mMaxSize;
+
+    /**
+     * @param maxSize - total size of all binaries in bytes, the latest binary is always kept
+     */
+    public ArtifactStore(File dir, long maxSize) {
+        mDir = dir;
+        mMaxSize = maxSize;
+    }
+
+    public File getDir() {
+        return mDir;
+    }
+
+    /**
+     * @param variant - anything else which changes the binary, e.g. the build profile
+     * @return path of the binary built from these sources, the file may not exist yet
+     */
+    public File getBinary(File[] sourceFiles, String variant) {
+        String[] paths = new String[sourceFiles.length];
+        for (int i = 0; i < sourceFiles.length; i++) {
+            paths[i] = sourceFiles[i].getAbsolutePath();
+        }
+        //the same sources in another order give the same binary
+        Arrays.sort(paths);
+        Hash hash = new Hash();
+        for (String path : paths) {
+            hash.update(path);
+        }
+        hash.update(variant);
+
+        String name = sourceFiles.length > 0 ? sourceFiles[0].getName() : "a";
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        name = name.replaceAll("[^A-Za-z0-9_+-]", "_");
+        if (name.length() > MAX_NAME_LENGTH) {
+            name = name.substring(0, MAX_NAME_LENGTH);
+        }
+        return new File(mDir, name + "-" + variant + "-" + hash.toHex().substring(0, 8));
+    }
+
+    /**
+     * @return true if the binary exists and was built from the given key, it can be run without
+     * building or restoring anything
+     */
+    @WorkerThread
+    public boolean isUpToDate(File binary, String buildKey) {
+        if (!binary.isFile() || binary.length() == 0) {
+            return false;
+        }
+        try {
+            return buildKey.equals(IOUtils.readFile(getKeyFile(binary)).trim());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Must be called before the binary is rewritten, a build which fails halfway must not leave
+     * a binary which looks up to date
+     */
+    @WorkerThread
+    public void invalidate(File binary) {
+        getKeyFile(binary).delete();
+    }
+
+    /**
+     * Remember the build key of a binary which was just written, mark it as recently used and
+     * delete old binaries if the store is too large
+     *
+     * @param buildKey - null if the binary can't be reused, its old key is removed
+     */
+    @WorkerThread
+    public void commit(File binary, @Nullable String buildKey) {
+        File keyFile = getKeyFile(binary);
+        if (buildKey == null || !IOUtils.writeFile(keyFile, buildKey)) {
+            keyFile.delete();
+        }
+        binary.setLastModified(System.currentTimeMillis());
+        trim(binary);
+    }
+
+    /**
+     * Delete the least recently built binaries until the store fits into its size limit
+     *
+     * @param keep - binary which must not be deleted
+     */
+    @WorkerThread
+    public void trim(@Nullable File keep) {
+        File[] files = mDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        List<File> binaries = new ArrayList<>();
+        long total = 0;
+        for (File file : files) {
+            if (file.isFile() && !file.getName().endsWith(KEY_EXTENSION)) {
+                binaries.add(file);
+                total += file.length();
+            }
+        }
+        if (total <= mMaxSize) {
+            return;
+        }
+        Collections.sort(binaries, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                long diff = o1.lastModified() - o2.lastModified();
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+        for (File binary : binaries) {
+            if (total <= mMaxSize) {
+                break;
+            }
+            if (binary.equals(keep)) {
+                continue;
+            }
+            long length = binary.length();
+            //a running program keeps its file open, deleting it is still safe
+            if (binary.delete()) {
+                getKeyFile(binary).delete();
+                total -= length;
+            }
+        }
+    }
+
+    private static File getKeyFile(File binary) {
+        return new File(binary.getPath() + KEY_EXTENSION);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ide.compiler;
+
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import com.duy.utils.IOUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Stores compiled binaries by the key returned from {@link INativeCompiler#getBuildKey(File[])}.
+ * The key already covers the sources, the flags and the toolchain version, so an entry never
+ * has to be invalidated, it is only replaced.
+ * <p>
+ * When the total size exceeds the limit, the least recently used binaries are deleted.
+ */
+public class BuildCache {
+    private static final String TMP_EXTENSION = ".tmp";
+
+    private final File mCacheDir;
+    private final long mMaxSize;
+
+    /**
+     * @param maxSize - total size of all binaries in bytes, the latest binary is always kept
+     */
+    public BuildCache(File cacheDir, long maxSize) {
+        mCacheDir = cacheDir;
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * @return the cached binary for the given key, null if it was never built
+     */
+    @Nullable
+    @WorkerThread
+    public File get(String key) {
+        File file = new File(mCacheDir, key);
+        if (file.isFile() && file.length() > 0) {
+            return file;
+        }
+        return null;
+    }
+
+    /**
+     * Copy the binary into the cache. The copy is written to a temporary file first so a
+     * half written binary is never returned by {@link #get(String)}
+     */
+    @WorkerThread
+    public boolean put(String key, File binary) {
+        if (!binary.isFile()) {
+            return false;
+        }
+        if (!mCacheDir.exists() && !mCacheDir.mkdirs()) {
+            return false;
+        }
+        File tmp = new File(mCacheDir, key + TMP_EXTENSION);
+        if (!com.jecelyin.common.utils.IOUtils.copyFile(binary, tmp)) {
+            tmp.delete();
+            return false;
+        }
+        File file = new File(mCacheDir, key);
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            return false;
+        }
+        IOUtils.changeToExecutable(file);
+        file.setLastModified(System.currentTimeMillis());
+        trim(file);
+        return true;
+    }
+
+    /**
+     * Copy the cached binary for the given key to the output path of the compiler
+     *
+     * @return true if the output file is ready to run
+     */
+    @WorkerThread
+    public boolean restore(String key, File output) {
+        File cached = get(key);
+        if (cached == null) {
+            return false;
+        }
+        //the old binary can still be running, replace the file instead of writing into it
+        output.delete();
+        if (!com.jecelyin.common.utils.IOUtils.copyFile(cached, output)) {
+            return false;
+        }
+        IOUtils.changeToExecutable(output);
+        //mark it as recently used
+        cached.setLastModified(System.currentTimeMillis());
+        return true;
+    }
+
+    /**
+     * Delete the least recently used binaries until the cache fits into its size limit
+     *
+     * @param keep - binary which must not be deleted
+     */
+    @WorkerThread
+    public void trim(@Nullable File keep) {
+        File[] files = mCacheDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        List<File> binaries = new ArrayList<>();
+        long total = 0;
+        for (File file : files) {
+            //a temporary file is written by another build
+            if (file.isFile() && !file.getName().endsWith(TMP_EXTENSION)) {
+                binaries.add(file);
+                total += file.length();
+            }
+        }
+        if (total <= mMaxSize) {
+            return;
+        }
+        Collections.sort(binaries, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                long diff = o1.lastModified() - o2.lastModified();
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+        for (File binary : binaries) {
+            if (total <= mMaxSize) {
+                break;
+            }
+            if (binary.equals(keep)) {
+                continue;
+            }
+            long length = binary.length();
+            if (binary.delete()) {
+                total -= length;
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ide.compiler;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Resource usage of one build, attached to {@link com.duy.ide.compiler.shell.ShellResult}.
+ * <p>
+ * Phase times are added in the order the phases were reported. When a phase is reported more
+ * than once (one report for each translation unit), the times are summed.
+ */
+
+public class BuildMetrics {
+    private final LinkedHashMap<String, Long> mPhaseTimes = new LinkedHashMap<>();
+    private long mTotalTime;
+    private long mPeakMemory;
+    private long mOutputBytes;
+    private boolean mFromCache;
+
+    /**
+     * @param time - time of the phase in milliseconds
+     */
+    public void addPhaseTime(String phase, long time) {
+        Long old = mPhaseTimes.get(phase);
+        mPhaseTimes.put(phase, old == null ? time : old + time);
+    }
+
+    public Map<String, Long> getPhaseTimes() {
+        return mPhaseTimes;
+    }
+
+    public long getTotalTime() {
+        return mTotalTime;
+    }
+
+    public void setTotalTime(long totalTime) {
+        mTotalTime = totalTime;
+    }
+
+    /**
+     * @return peak resident memory of the compiler processes in bytes, 0 if it was not measured
+     */
+    public long getPeakMemory() {
+        return mPeakMemory;
+    }
+
+    public void setPeakMemory(long peakMemory) {
+        mPeakMemory = peakMemory;
+    }
+
+    /**
+     * @return size of the compiler output (diagnostics and reports) in bytes
+     */
+    public long getOutputBytes() {
+        return mOutputBytes;
+    }
+
+    public void setOutputBytes(long outputBytes) {
+        mOutputBytes = outputBytes;
+    }
+
+    public boolean isFromCache() {
+        return mFromCache;
+    }
+
+    public void setFromCache(boolean fromCache) {
+        mFromCache = fromCache;
+    }
+
+    /**
+     * @return one line summary, for example
+     * "1.52s (cc1plus 1.20s, as 0.08s, collect2 0.21s), 96MB, 1KB output"
+     */
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder();
+        summary.append(formatTime(mTotalTime));
+        if (mFromCache) {
+            summary.append(" (cached)");
+        } else if (!mPhaseTimes.isEmpty()) {
+            summary.append(" (");
+            boolean first = true;
+            for (Map.Entry<String, Long> entry : mPhaseTimes.entrySet()) {
+                if (!first) {
+                    summary.append(", ");
+                }
+                first = false;
+                summary.append(entry.getKey()).append(' ').append(formatTime(entry.getValue()));
+            }
+            summary.append(')');
+        }
+        if (mPeakMemory > 0) {
+            summary.append(", ").append(mPeakMemory / 1024 / 1024).append("MB");
+        }
+        summary.append(", ").append((mOutputBytes + 1023) / 1024).append("KB output");
+        return summary.toString();
+    }
+
+    private static String formatTime(long millis) {
+        return String.format(Locale.US, "%.2fs", millis / 1000.0);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ide.compiler;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.support.annotation.WorkerThread;
+
+import com.duy.ide.compiler.shell.OutputBuffer;
+import com.duy.ide.compiler.shell.ShellResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs independent compile jobs (one per translation unit) on a bounded worker pool and merges
+ * their results into one {@link ShellResult}.
+ * <p>
+ * The pool is sized to the number of CPU cores, but never larger than the number of compiler
+ * processes the free memory can hold, cc1plus easily takes 100-200MB for a heavy source file.
+ */
+public class BuildScheduler {
+    private static final long MEMORY_PER_JOB = 200 * 1024 * 1024;
+
+    private final int mParallelism;
+
+    public BuildScheduler(int parallelism) {
+        mParallelism = Math.max(1, parallelism);
+    }
+
+    public static BuildScheduler create(Context context) {
+        return new BuildScheduler(getDefaultParallelism(context));
+    }
+
+    public static int getDefaultParallelism(Context context) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager == null) {
+            return cores;
+        }
+        ActivityManager.MemoryInfo memoryInfo = new ActivityManager.MemoryInfo();
+        activityManager.getMemoryInfo(memoryInfo);
+        long freeMemory = memoryInfo.availMem - memoryInfo.threshold;
+        int jobs = (int) Math.max(1, freeMemory / MEMORY_PER_JOB);
+        return Math.max(1, Math.min(cores, jobs));
+    }
+
+    public int getParallelism() {
+        return mParallelism;
+    }
+
+    /**
+     * Run all jobs and wait until they are finished
+     *
+     * @return results in the same order as jobs
+     */
+    @WorkerThread
+    public List<ShellResult> runAll(List<Callable<ShellResult>> jobs) throws InterruptedException {
+        List<ShellResult> results = new ArrayList<>();
+        if (jobs.isEmpty()) {
+            return results;
+        }
+        if (jobs.size() == 1 || mParallelism == 1) {
+            for (Callable<ShellResult> job : jobs) {
+                results.add(call(job));
+            }
+            return results;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(mParallelism, jobs.size()), new CompilerThreadFactory());
+        try {
+            List<Future<ShellResult>> futures = executor.invokeAll(jobs);
+            for (Future<ShellResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    e.printStackTrace();
+                    results.add(new ShellResult(-1, String.valueOf(e.getCause())));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    private ShellResult call(Callable<ShellResult> job) {
+        try {
+            return job.call();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new ShellResult(-1, e.toString());
+        }
+    }
+
+    public static ShellResult merge(List<ShellResult> results) {
+        return merge(results, new OutputBuffer());
+    }
+
+    /**
+     * Merge results of all jobs, outputs are copied in the order of jobs so output of one unit
+     * is never interleaved with another one. The temporary files of the results are deleted
+     *
+     * @param output - receives the output of all jobs
+     * @return the first non zero result code, or zero if all jobs succeeded
+     */
+    public static ShellResult merge(List<ShellResult> results, OutputBuffer output) {
+        int resultCode = 0;
+        long time = 0;
+        for (ShellResult result : results) {
+            output.append(result);
+            if (resultCode == 0) {
+                resultCode = result.getResultCode();
+            }
+            time = Math.max(time, result.getTime());
+        }
+        output.close();
+        ShellResult shellResult = new ShellResult(resultCode, output.getHead());
+        shellResult.setOutput(output);
+        shellResult.setTime(time);
+        return shellResult;
+    }
+
+    private static class CompilerThreadFactory implements ThreadFactory {
+        private final AtomicInteger mCount = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "BuildScheduler #" + mCount.getAndIncrement());
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    }
+}
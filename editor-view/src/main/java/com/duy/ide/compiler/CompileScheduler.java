@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ide.compiler;
+
+import android.os.AsyncTask;
+import android.support.annotation.MainThread;
+import android.support.annotation.Nullable;
+
+import com.duy.ide.compiler.shell.ProcessSupervisor;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Serializes builds which write the same output binary.
+ * <p>
+ * Only one foreground build runs at a time. Builds requested while one is running are
+ * coalesced, only the latest request is kept and it runs after the current build finishes.
+ * Background checks (which don't write any output) are cancelled as soon as a foreground build
+ * is requested, so they don't compete with it for CPU.
+ */
+
+public class CompileScheduler {
+    @Nullable
+    private volatile CompileTask mRunningTask;
+    @Nullable
+    private CompileTask mPendingTask;
+    private final Set<ProcessSupervisor> mBackgroundChecks = new HashSet<>();
+
+    /**
+     * Run the task now, or after the running build if there is one. A task which is still
+     * waiting is replaced by the new one
+     *
+     * @return true if the task started immediately
+     */
+    @MainThread
+    public boolean submit(CompileTask task) {
+        if (mRunningTask != null) {
+            mPendingTask = task;
+            return false;
+        }
+        start(task);
+        return true;
+    }
+
+    /**
+     * Must be called when the running task delivered its result
+     *
+     * @return true if the result is already outdated because a newer build was started
+     */
+    @MainThread
+    public boolean onTaskFinished() {
+        mRunningTask = null;
+        if (mPendingTask != null) {
+            CompileTask task = mPendingTask;
+            mPendingTask = null;
+            start(task);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Drop the waiting build and abort the running one
+     */
+    @MainThread
+    public void cancel() {
+        mPendingTask = null;
+        if (mRunningTask != null) {
+            mRunningTask.abort();
+        }
+    }
+
+    @MainThread
+    public boolean isBusy() {
+        return mRunningTask != null;
+    }
+
+    @Nullable
+    @MainThread
+    public CompileTask getRunningTask() {
+        return mRunningTask;
+    }
+
+    /**
+     * Register a background check, it will be cancelled when a foreground build is submitted
+     *
+     * @return the supervisor which must watch the processes of the check, null if a foreground
+     * build is running and the check should not be started
+     */
+    @Nullable
+    public ProcessSupervisor startBackgroundCheck(long timeout, long memoryLimit) {
+        synchronized (mBackgroundChecks) {
+            if (mRunningTask != null) {
+                return null;
+            }
+            ProcessSupervisor supervisor = new ProcessSupervisor(timeout, memoryLimit);
+            mBackgroundChecks.add(supervisor);
+            return supervisor;
+        }
+    }
+
+    public void finishBackgroundCheck(ProcessSupervisor supervisor) {
+        synchronized (mBackgroundChecks) {
+            mBackgroundChecks.remove(supervisor);
+        }
+    }
+
+    public void cancelBackgroundChecks() {
+        synchronized (mBackgroundChecks) {
+            for (ProcessSupervisor supervisor : mBackgroundChecks) {
+                supervisor.cancel();
+            }
+            mBackgroundChecks.clear();
+        }
+    }
+
+    private void start(CompileTask task) {
+        //a check can't be registered between these two statements
+        synchronized (mBackgroundChecks) {
+            mRunningTask = task;
+            cancelBackgroundChecks();
+        }
+        //the serial executor would queue the build behind any other task of the app
+        task.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+}
@@ -17,9 +17,13 @@
 package com.duy.ide.compiler;
 
 import android.os.AsyncTask;
+import android.os.SystemClock;
+import android.support.annotation.MainThread;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.duy.ide.compiler.shell.OutputListener;
+import com.duy.ide.compiler.shell.ProcessSupervisor;
 import com.duy.ide.compiler.shell.ShellResult;
 import com.jecelyin.common.utils.DLog;
 
@@ -29,26 +33,107 @@ import java.io.File;
  * Created by Duy on 25-Apr-18.
  */
 
-public class CompileTask extends AsyncTask<Void, Void, ShellResult> {
+public class CompileTask extends AsyncTask<Void, CharSequence, ShellResult> implements OutputListener {
     private static final String TAG = "CompileTask";
+    /**
+     * Compiler output can arrive thousands of lines per second, the lines are published in
+     * chunks so the main thread gets at most one message per interval
+     */
+    private static final long PUBLISH_INTERVAL = 100;
+    private static final int PUBLISH_MAX_LINES = 1000;
     @NonNull
     private INativeCompiler mCompiler;
     @NonNull
     private File[] mFiles;
     @Nullable
     private ICompileManager mCompileManager;
+    @Nullable
+    private BuildCache mBuildCache;
+    @Nullable
+    private ArtifactStore mArtifactStore;
+    private long mTimeout = 0;
+    private long mMemoryLimit = 0;
+    @Nullable
+    private ProcessSupervisor mSupervisor;
+    /**
+     * Lines read since the last published chunk, guarded by itself
+     */
+    private final StringBuilder mPendingLines = new StringBuilder();
+    private int mPendingCount = 0;
+    private long mLastPublishTime = 0;
 
     public CompileTask(@NonNull INativeCompiler compiler,
                        @NonNull File[] files,
                        @Nullable ICompileManager compileManager) {
+        this(compiler, files, compileManager, null);
+    }
+
+    public CompileTask(@NonNull INativeCompiler compiler,
+                       @NonNull File[] files,
+                       @Nullable ICompileManager compileManager,
+                       @Nullable BuildCache buildCache) {
         mCompiler = compiler;
         mFiles = files;
         mCompileManager = compileManager;
+        mBuildCache = buildCache;
+    }
+
+    /**
+     * Must be called before the task is executed
+     *
+     * @param timeout     - wall clock limit of the build in milliseconds, 0 for no limit
+     * @param memoryLimit - memory limit of each compiler process tree in bytes, 0 for no limit
+     */
+    public void setLimits(long timeout, long memoryLimit) {
+        mTimeout = timeout;
+        mMemoryLimit = memoryLimit;
+    }
+
+    /**
+     * Must be called before the task is executed
+     *
+     * @param artifactStore - store which contains the output file of the compiler, a binary which
+     *                      is still up to date is run without building or restoring it
+     */
+    public void setArtifactStore(@Nullable ArtifactStore artifactStore) {
+        mArtifactStore = artifactStore;
+    }
+
+    /**
+     * Kill the compiler and all its child processes. Unlike {@link #cancel(boolean)}, the result
+     * is still delivered to {@link ICompileManager#onCompileFailed(ShellResult)}
+     */
+    @MainThread
+    public void abort() {
+        if (mSupervisor != null) {
+            mSupervisor.cancel();
+        }
+    }
+
+    public INativeCompiler getCompiler() {
+        return mCompiler;
+    }
+
+    public File[] getSourceFiles() {
+        return mFiles;
+    }
+
+    /**
+     * @return the reason why the build was aborted, see {@link ProcessSupervisor#REASON_NONE}
+     */
+    public int getAbortReason() {
+        return mSupervisor != null ? mSupervisor.getAbortReason() : ProcessSupervisor.REASON_NONE;
+    }
+
+    @Nullable
+    public String getAbortMessage() {
+        return mSupervisor != null ? mSupervisor.getAbortMessage() : null;
     }
 
     @Override
     protected void onPreExecute() {
         super.onPreExecute();
+        mSupervisor = new ProcessSupervisor(mTimeout, mMemoryLimit);
         if (mCompileManager != null) {
             mCompileManager.onPrepareCompile();
         }
@@ -56,7 +141,94 @@ public class CompileTask extends AsyncTask<Void, Void, ShellResult> {
 
     @Override
     protected ShellResult doInBackground(Void... voids) {
-        return mCompiler.compile(mFiles);
+        long timeStart = System.currentTimeMillis();
+        String buildKey = null;
+        File output = mCompiler.getOutputFile(mFiles);
+        if (mBuildCache != null || mArtifactStore != null) {
+            buildKey = mCompiler.getBuildKey(mFiles);
+        }
+        if (buildKey != null && mArtifactStore != null && mArtifactStore.isUpToDate(output, buildKey)) {
+            if (DLog.DEBUG) DLog.d(TAG, "doInBackground: binary is up to date " + output);
+            mArtifactStore.commit(output, buildKey);
+            return createCachedResult(timeStart);
+        }
+        if (mArtifactStore != null) {
+            mArtifactStore.invalidate(output);
+            output.getParentFile().mkdirs();
+        }
+        if (buildKey != null && mBuildCache != null && mBuildCache.restore(buildKey, output)) {
+            if (DLog.DEBUG) DLog.d(TAG, "doInBackground: reuse cached binary " + buildKey);
+            if (mArtifactStore != null) {
+                mArtifactStore.commit(output, buildKey);
+            }
+            return createCachedResult(timeStart);
+        }
+
+        ShellResult result = mCompiler.compile(mFiles, this, mSupervisor);
+        publishPendingLines();
+        if (mSupervisor.isAborted()) {
+            ShellResult aborted = new ShellResult(result.getResultCode() != 0 ? result.getResultCode() : -1,
+                    result.getMessage());
+            aborted.setOutput(result.getOutput());
+            aborted.appendMessage(mSupervisor.getAbortMessage() + "\n");
+            aborted.setTime(result.getTime());
+            aborted.setMetrics(result.getMetrics());
+            return aborted;
+        }
+        if (result.getResultCode() == 0) {
+            if (buildKey != null && mBuildCache != null) {
+                mBuildCache.put(buildKey, output);
+            }
+            if (mArtifactStore != null) {
+                mArtifactStore.commit(output, buildKey);
+            }
+        }
+        return result;
+    }
+
+    private static ShellResult createCachedResult(long timeStart) {
+        ShellResult result = new ShellResult(0, "");
+        result.setTime(System.currentTimeMillis() - timeStart);
+        BuildMetrics metrics = new BuildMetrics();
+        metrics.setFromCache(true);
+        metrics.setTotalTime(result.getTime());
+        result.setMetrics(metrics);
+        return result;
+    }
+
+    @Override
+    public void onNewLine(String line) {
+        synchronized (mPendingLines) {
+            if (mPendingCount > 0) {
+                mPendingLines.append('\n');
+            }
+            mPendingLines.append(line);
+            mPendingCount++;
+            long now = SystemClock.uptimeMillis();
+            if (now - mLastPublishTime >= PUBLISH_INTERVAL || mPendingCount >= PUBLISH_MAX_LINES) {
+                mLastPublishTime = now;
+                publishPendingLines();
+            }
+        }
+    }
+
+    private void publishPendingLines() {
+        synchronized (mPendingLines) {
+            if (mPendingCount == 0) {
+                return;
+            }
+            publishProgress(mPendingLines.toString());
+            mPendingLines.setLength(0);
+            mPendingCount = 0;
+        }
+    }
+
+    @Override
+    protected void onProgressUpdate(CharSequence... values) {
+        super.onProgressUpdate(values);
+        if (mCompileManager != null) {
+            mCompileManager.onNewMessage(values[0]);
+        }
     }
 
     @Override
@@ -16,10 +16,92 @@
 
 package com.duy.ide.compiler;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
 /**
+ * Incremental SHA-1 digest used to build content addressed keys for compiler outputs.
+ * <p>
+ * Every value is written with its length before the content, so the sequences ("ab", "c") and
+ * ("a", "bc") never produce the same key.
+ * <p>
  * Created by Duy on 30-Apr-18.
  */
 
 public class Hash {
-    
+    private static final String ALGORITHM = "SHA-1";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final MessageDigest mDigest;
+
+    public Hash() {
+        try {
+            mDigest = MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("The hash algorithm " + ALGORITHM + " is not available", e);
+        }
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    public Hash update(String value) {
+        return update(value.getBytes(UTF_8));
+    }
+
+    public Hash update(long value) {
+        for (int i = 7; i >= 0; i--) {
+            mDigest.update((byte) (value >>> (i * 8)));
+        }
+        return this;
+    }
+
+    public Hash update(byte[] bytes) {
+        update((long) bytes.length);
+        mDigest.update(bytes);
+        return this;
+    }
+
+    /**
+     * Append the content of the file, a missing file is hashed as an empty marker so that
+     * creating the file later changes the key
+     */
+    public Hash update(File file) throws IOException {
+        if (!file.isFile()) {
+            return update(-1L);
+        }
+        update(file.length());
+        InputStream input = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                mDigest.update(buffer, 0, read);
+            }
+        } finally {
+            input.close();
+        }
+        return this;
+    }
+
+    /**
+     * Completes the digest, this object can't be used after calling this method
+     *
+     * @return lower case hex string of the digest
+     */
+    public String toHex() {
+        return toHex(mDigest.digest());
+    }
 }
@@ -25,6 +25,9 @@ import com.duy.ide.compiler.shell.ShellResult;
  */
 
 public interface ICompileManager {
+    /**
+     * @param charSequence - the output lines read since the last message, separated by '\n'
+     */
     @MainThread
     void onNewMessage(CharSequence charSequence);
 
@@ -16,17 +16,48 @@
 
 package com.duy.ide.compiler;
 
+import android.support.annotation.Nullable;
 import android.support.annotation.WorkerThread;
 
+import com.duy.ide.compiler.shell.OutputListener;
+import com.duy.ide.compiler.shell.ProcessSupervisor;
 import com.duy.ide.compiler.shell.ShellResult;
 
 import java.io.File;
+import java.util.Map;
 
 /**
  * Created by Duy on 25-Apr-18.
  */
 
 public interface INativeCompiler {
+    /**
+     * @param listener   - receives compiler output while the compiler is still running
+     * @param supervisor - must watch every process started by the compiler, so the build can be
+     *                   cancelled and limited
+     */
     @WorkerThread
-    ShellResult compile(File[] sourceFiles);
+    ShellResult compile(File[] sourceFiles, @Nullable OutputListener listener,
+                        @Nullable ProcessSupervisor supervisor);
+
+    /**
+     * @return a digest of everything that affects the binary (source contents, flags and
+     * toolchain version), null if the output of these sources can't be cached
+     */
+    @Nullable
+    @WorkerThread
+    String getBuildKey(File[] sourceFiles);
+
+    /**
+     * Build from the content of the editors instead of the files on storage, must be called
+     * before {@link #compile(File[], OutputListener, ProcessSupervisor)}
+     *
+     * @param unsavedFiles - unsaved content by file, the files are not written
+     */
+    void setUnsavedFiles(Map<File, String> unsavedFiles);
+
+    /**
+     * @return the binary file {@link #compile(File[], OutputListener, ProcessSupervisor)} writes for these sources
+     */
+    File getOutputFile(File[] sourceFiles);
 }
@@ -16,10 +16,25 @@
 
 package com.duy.ide.compiler.analyze;
 
+import android.support.annotation.MainThread;
+
 /**
  * Created by Duy on 25-Apr-18.
  */
 
 public interface ICodeAnalysis {
-    void analyze(String charSequence);
+    /**
+     * Called on every edit, the content is only read after typing pauses
+     *
+     * @param generation - changes with every edit of the content, the result of an analysis is
+     *                   outdated if the content has another generation when it is shown
+     */
+    @MainThread
+    void analyze(CharSequence charSequence, int generation);
+
+    /**
+     * Cancel the pending and running analysis
+     */
+    @MainThread
+    void cancel();
 }
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ide.compiler.shell;
+
+import android.support.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.io.StringReader;
+import java.io.Writer;
+
+/**
+ * Output of a process with bounded memory usage. The first characters are kept in memory, when
+ * the limit is reached the rest is written to a temporary file in the spill directory. A broken
+ * template can make gcc write tens of megabytes of errors, only the beginning of it is shown
+ * to the user but the parser still reads everything through {@link #openReader()}.
+ */
+
+public class OutputBuffer {
+    /**
+     * Characters kept in memory, enough for a few hundred diagnostics
+     */
+    public static final int DEFAULT_MEMORY_LIMIT = 256 * 1024;
+    private static final String CHARSET = "UTF-8";
+
+    @Nullable
+    private final File mSpillDir;
+    private final int mMemoryLimit;
+    private final StringBuilder mHead = new StringBuilder();
+    @Nullable
+    private File mSpillFile;
+    @Nullable
+    private Writer mSpillWriter;
+    private long mLength = 0;
+
+    /**
+     * Keep everything in memory, for processes with short output
+     */
+    public OutputBuffer() {
+        this(null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param spillDir    - directory of the temporary file, null to keep everything in memory
+     * @param memoryLimit - number of characters kept in memory
+     */
+    public OutputBuffer(@Nullable File spillDir, int memoryLimit) {
+        mSpillDir = spillDir;
+        mMemoryLimit = memoryLimit;
+    }
+
+    public synchronized void appendLine(String line) {
+        append(line);
+        append("\n");
+    }
+
+    public synchronized void append(String text) {
+        mLength += text.length();
+        if (mSpillFile == null && (mSpillDir == null || mHead.length() + text.length() <= mMemoryLimit)) {
+            mHead.append(text);
+            return;
+        }
+        try {
+            if (mSpillWriter == null) {
+                if (mSpillFile == null) {
+                    mSpillDir.mkdirs();
+                    mSpillFile = File.createTempFile("output", ".log", mSpillDir);
+                }
+                mSpillWriter = new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(mSpillFile, true), CHARSET));
+            }
+            mSpillWriter.write(text);
+        } catch (IOException e) {
+            //storage is full, losing the end of the output is better than running out of memory
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Copy the complete output of another result, its temporary file is deleted afterwards
+     */
+    public synchronized void append(ShellResult result) {
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(result.openMessageReader());
+            String line;
+            while ((line = reader.readLine()) != null) {
+                appendLine(line);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            appendLine(e.toString());
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            result.release();
+        }
+    }
+
+    /**
+     * @return the beginning of the output which is kept in memory
+     */
+    public synchronized String getHead() {
+        return mHead.toString();
+    }
+
+    /**
+     * @return number of characters of the complete output
+     */
+    public synchronized long length() {
+        return mLength;
+    }
+
+    public synchronized boolean isSpilled() {
+        return mSpillFile != null;
+    }
+
+    /**
+     * Read the complete output from the beginning, the temporary file is read lazily
+     */
+    public synchronized Reader openReader() throws IOException {
+        if (mSpillFile == null) {
+            return new StringReader(mHead.toString());
+        }
+        close();
+        return new InputStreamReader(new SequenceInputStream(
+                new ByteArrayInputStream(mHead.toString().getBytes(CHARSET)),
+                new FileInputStream(mSpillFile)), CHARSET);
+    }
+
+    /**
+     * Flush the temporary file, appending later reopens it
+     */
+    public synchronized void close() {
+        if (mSpillWriter != null) {
+            try {
+                mSpillWriter.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            mSpillWriter = null;
+        }
+    }
+
+    /**
+     * Delete the temporary file, the output can't be read completely anymore
+     */
+    public synchronized void delete() {
+        close();
+        if (mSpillFile != null) {
+            mSpillFile.delete();
+        }
+    }
+}
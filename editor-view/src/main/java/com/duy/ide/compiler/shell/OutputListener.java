@@ -0,0 +1,33 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ide.compiler.shell;
+
+import android.support.annotation.WorkerThread;
+
+/**
+ * Receives the merged stdout/stderr of a running process line by line, as soon as the process
+ * writes it.
+ */
+public interface OutputListener {
+    /**
+     * Called from the reader thread of the process, never from the main thread
+     *
+     * @param line - output line without line terminator
+     */
+    @WorkerThread
+    void onNewLine(String line);
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ide.compiler.shell;
+
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Watches all processes started for one build. The build can be cancelled from any thread and
+ * is aborted when it runs longer than the time limit or its processes use more memory than the
+ * memory limit. On abort, every running process is killed together with its children.
+ * The sampled memory usage is also kept for {@link com.duy.ide.compiler.BuildMetrics}.
+ */
+
+public class ProcessSupervisor {
+    public static final int REASON_NONE = 0;
+    public static final int REASON_CANCELLED = 1;
+    public static final int REASON_TIMEOUT = 2;
+    public static final int REASON_OUT_OF_MEMORY = 3;
+
+    private static final long POLL_INTERVAL = 100;
+    /**
+     * Reading /proc for the whole tree is not free, memory is checked less often than exit
+     */
+    private static final long MEMORY_CHECK_INTERVAL = 300;
+
+    private final long mTimeout;
+    private final long mMemoryLimit;
+    private final long mStartTime;
+    private final Set<Process> mProcesses = new HashSet<>();
+    private volatile int mAbortReason = REASON_NONE;
+    private volatile long mPeakMemory = 0;
+
+    /**
+     * @param timeout     - wall clock limit of the build in milliseconds, 0 for no limit
+     * @param memoryLimit - limit of resident memory of each process tree in bytes, 0 for no limit
+     */
+    public ProcessSupervisor(long timeout, long memoryLimit) {
+        mTimeout = timeout;
+        mMemoryLimit = memoryLimit;
+        mStartTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Kill all running processes, processes started later are killed immediately
+     */
+    public void cancel() {
+        abort(REASON_CANCELLED);
+    }
+
+    public boolean isAborted() {
+        return mAbortReason != REASON_NONE;
+    }
+
+    /**
+     * @return the largest resident memory of one process tree seen so far in bytes. Memory is
+     * sampled, a process which exits within the first sample interval is not measured
+     */
+    public long getPeakMemory() {
+        return mPeakMemory;
+    }
+
+    public int getAbortReason() {
+        return mAbortReason;
+    }
+
+    /**
+     * @return a line appended to the compiler output when the build was aborted, null otherwise
+     */
+    @Nullable
+    public String getAbortMessage() {
+        switch (mAbortReason) {
+            case REASON_CANCELLED:
+                return "Compilation cancelled";
+            case REASON_TIMEOUT:
+                return "Compilation terminated: time limit of " + (mTimeout / 1000) + "s exceeded";
+            case REASON_OUT_OF_MEMORY:
+                return "Compilation terminated: memory limit of " + (mMemoryLimit / 1024 / 1024) + "MB exceeded";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Wait until the process exits or the build is aborted
+     *
+     * @return exit code of the process
+     */
+    @WorkerThread
+    int waitFor(Process process) throws InterruptedException {
+        synchronized (mProcesses) {
+            mProcesses.add(process);
+        }
+        try {
+            if (isAborted()) {
+                kill(process);
+            }
+            long lastMemoryCheck = 0;
+            while (true) {
+                try {
+                    return process.exitValue();
+                } catch (IllegalThreadStateException e) {
+                    //still running
+                }
+                Thread.sleep(POLL_INTERVAL);
+
+                long now = System.currentTimeMillis();
+                if (mTimeout > 0 && now - mStartTime > mTimeout) {
+                    abort(REASON_TIMEOUT);
+                } else if (now - lastMemoryCheck >= MEMORY_CHECK_INTERVAL) {
+                    lastMemoryCheck = now;
+                    int pid = ProcessTree.getPid(process);
+                    if (pid > 0) {
+                        long memory = ProcessTree.getResidentMemory(ProcessTree.getTree(pid));
+                        updatePeakMemory(memory);
+                        if (mMemoryLimit > 0 && memory > mMemoryLimit) {
+                            abort(REASON_OUT_OF_MEMORY);
+                        }
+                    }
+                }
+            }
+        } finally {
+            synchronized (mProcesses) {
+                mProcesses.remove(process);
+            }
+        }
+    }
+
+    private synchronized void updatePeakMemory(long memory) {
+        if (memory > mPeakMemory) {
+            mPeakMemory = memory;
+        }
+    }
+
+    private void abort(int reason) {
+        synchronized (mProcesses) {
+            if (mAbortReason == REASON_NONE) {
+                mAbortReason = reason;
+            }
+            for (Process process : mProcesses) {
+                kill(process);
+            }
+        }
+    }
+
+    private static void kill(Process process) {
+        int pid = ProcessTree.getPid(process);
+        if (pid > 0) {
+            ProcessTree.kill(pid);
+        }
+        process.destroy();
+    }
+}
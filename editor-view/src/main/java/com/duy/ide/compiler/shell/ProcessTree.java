@@ -0,0 +1,225 @@
+/*
+ * Copyright 2018 Mr Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.ide.compiler.shell;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A process and all its descendants, read from /proc.
+ * <p>
+ * gcc is only a driver, the real work is done by the child processes it starts (cc1, cc1plus,
+ * as, collect2, ld), so killing or measuring the driver alone is not enough.
+ */
+
+public class ProcessTree {
+    private static final File PROC_DIR = new File("/proc");
+    /**
+     * USER_HZ, the unit of cpu times in /proc/[pid]/stat. It is 100 on every Android kernel and
+     * sysconf(_SC_CLK_TCK) is not available before API 21
+     */
+    private static final int CLOCK_TICKS_PER_SECOND = 100;
+
+    private ProcessTree() {
+    }
+
+    /**
+     * @return pid of the process, -1 if the implementation of {@link Process} doesn't expose it
+     */
+    public static int getPid(Process process) {
+        try {
+            Field f = process.getClass().getDeclaredField("pid");
+            f.setAccessible(true);
+            try {
+                return f.getInt(process);
+            } finally {
+                f.setAccessible(false);
+            }
+        } catch (Throwable e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return the given pid followed by all its descendants, parents always come before their
+     * children
+     */
+    public static List<Integer> getTree(int pid) {
+        Map<Integer, List<Integer>> children = new HashMap<>();
+        File[] files = PROC_DIR.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                int child = parseInt(file.getName());
+                if (child <= 0) {
+                    continue;
+                }
+                int parent = getParentPid(child);
+                if (parent <= 0) {
+                    continue;
+                }
+                List<Integer> list = children.get(parent);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    children.put(parent, list);
+                }
+                list.add(child);
+            }
+        }
+
+        List<Integer> tree = new ArrayList<>();
+        tree.add(pid);
+        for (int i = 0; i < tree.size(); i++) {
+            List<Integer> list = children.get(tree.get(i));
+            if (list != null) {
+                tree.addAll(list);
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * @return sum of resident set size of all processes in bytes
+     */
+    public static long getResidentMemory(List<Integer> pids) {
+        long total = 0;
+        for (Integer pid : pids) {
+            String value = readStatusField(pid, "VmRSS:");
+            if (value != null) {
+                //VmRSS:      1234 kB
+                total += parseLong(value.replace("kB", "").trim()) * 1024;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return the largest resident set size the process had so far in bytes (VmHWM), -1 if the
+     * process is gone
+     */
+    public static long getPeakResidentMemory(int pid) {
+        String value = readStatusField(pid, "VmHWM:");
+        return value == null ? -1 : parseLong(value.replace("kB", "").trim()) * 1024;
+    }
+
+    /**
+     * @return user and system cpu time of the process in milliseconds, null if the process is gone
+     */
+    public static long[] getCpuTime(int pid) {
+        //pid (name) state ppid ... utime stime
+        return readCpuTime(String.valueOf(pid), 11);
+    }
+
+    /**
+     * The kernel adds the cpu time of a child to its parent when the child is reaped, the times
+     * include the last slice which a sample of the running child misses
+     *
+     * @return user and system cpu time in milliseconds of all children of this process which
+     * were reaped, null if it can't be read
+     */
+    public static long[] getReapedChildrenCpuTime() {
+        //pid (name) state ppid ... utime stime cutime cstime
+        return readCpuTime("self", 13);
+    }
+
+    /**
+     * @param userField - index of the user time after the name, the system time follows
+     */
+    private static long[] readCpuTime(String pid, int userField) {
+        File stat = new File(PROC_DIR, pid + "/stat");
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(stat));
+            try {
+                String line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+                //the name in parentheses may contain spaces, fields are counted after it
+                String[] fields = line.substring(line.lastIndexOf(')') + 2).split(" ");
+                if (fields.length < userField + 2) {
+                    return null;
+                }
+                return new long[]{
+                        parseLong(fields[userField]) * 1000 / CLOCK_TICKS_PER_SECOND,
+                        parseLong(fields[userField + 1]) * 1000 / CLOCK_TICKS_PER_SECOND};
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            //the process is gone
+            return null;
+        }
+    }
+
+    /**
+     * Kill the process and all its descendants with SIGKILL. The parent is killed first so it
+     * can't start a new child after its children are gone
+     */
+    public static void kill(int pid) {
+        List<Integer> tree = getTree(pid);
+        for (Integer child : tree) {
+            android.os.Process.killProcess(child);
+        }
+    }
+
+    private static int getParentPid(int pid) {
+        String value = readStatusField(pid, "PPid:");
+        return value == null ? -1 : parseInt(value.trim());
+    }
+
+    private static String readStatusField(int pid, String name) {
+        File status = new File(PROC_DIR, pid + "/status");
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(status));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith(name)) {
+                        return line.substring(name.length());
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            //the process is gone
+        }
+        return null;
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -18,12 +18,26 @@ package com.duy.ide.compiler.shell;
 
 import android.support.annotation.Nullable;
 
+import com.duy.ide.compiler.BuildMetrics;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
 public class ShellResult {
 
     public final int resultCode;
     @Nullable
     public String message;
     private long time = 0;
+    @Nullable
+    private BuildMetrics metrics;
+    /**
+     * Complete output when it may be larger than {@link #message}, which only contains the part
+     * kept in memory
+     */
+    @Nullable
+    private OutputBuffer output;
 
     public ShellResult(int resultCode) {
         this.resultCode = resultCode;
@@ -42,6 +56,50 @@ public class ShellResult {
         this.time = time;
     }
 
+    @Nullable
+    public BuildMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(@Nullable BuildMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Nullable
+    public OutputBuffer getOutput() {
+        return output;
+    }
+
+    public void setOutput(@Nullable OutputBuffer output) {
+        this.output = output;
+    }
+
+    /**
+     * Read the complete output, use it instead of {@link #getMessage()} to parse the output
+     */
+    public Reader openMessageReader() throws IOException {
+        if (output != null) {
+            return output.openReader();
+        }
+        return new StringReader(message == null ? "" : message);
+    }
+
+    public void appendMessage(String text) {
+        message = message == null ? text : message + text;
+        if (output != null) {
+            output.append(text);
+        }
+    }
+
+    /**
+     * Delete the temporary file of the output, if any
+     */
+    public void release() {
+        if (output != null) {
+            output.delete();
+        }
+    }
+
     @Override
     public String toString() {
         return "ShellResult{" +
@@ -16,9 +16,12 @@
 
 package com.duy.ide.compiler.shell;
 
+import android.support.annotation.Nullable;
+
 import java.io.BufferedReader;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +33,11 @@ public class ShellUtils {
     private static final String COMMAND_SH = "sh";
     private static final String COMMAND_EXIT = "exit\n";
     private static final String COMMAND_LINE_END = "\n";
+    /**
+     * A child which outlives the process keeps the output pipe open, the reader is only waited
+     * for this long after the process exited
+     */
+    private static final long READER_JOIN_TIMEOUT = 2000;
 
     private ShellUtils() {
         throw new AssertionError();
@@ -130,15 +138,45 @@ public class ShellUtils {
     }
 
     public static ShellResult execCommand(String command, List<String> args, Map<String, String> env) {
+        return execCommand(command, args, env, null);
+    }
+
+    public static ShellResult execCommand(String command, List<String> args, Map<String, String> env,
+                                          @Nullable OutputListener listener) {
+        return execCommand(command, args, env, listener, null);
+    }
+
+    public static ShellResult execCommand(String command, List<String> args, Map<String, String> env,
+                                          @Nullable OutputListener listener,
+                                          @Nullable ProcessSupervisor supervisor) {
+        return execCommand(command, args, env, listener, supervisor, new OutputBuffer());
+    }
+
+    /**
+     * Start the process and read its merged output on a separate thread while it runs, so the
+     * process never blocks on a full pipe.
+     *
+     * @param listener   - receives every output line as soon as it is read, may be null
+     * @param supervisor - kills the process when the build is cancelled or exceeds its limits,
+     *                   may be null
+     * @param output     - stores the output, it decides how much of it is kept in memory
+     * @return exit code and the output of the process, the message only contains the part kept
+     * in memory, the complete output is read with {@link ShellResult#openMessageReader()}
+     */
+    public static ShellResult execCommand(String command, List<String> args, Map<String, String> env,
+                                          @Nullable OutputListener listener,
+                                          @Nullable ProcessSupervisor supervisor,
+                                          OutputBuffer output) {
         int result = -1;
         if (command == null || command.length() == 0) {
             return new ShellResult(result, null);
         }
+        if (supervisor != null && supervisor.isAborted()) {
+            return new ShellResult(result, "");
+        }
         long timeStart = System.currentTimeMillis();
 
         Process process = null;
-        BufferedReader reader = null;
-        StringBuilder message = null;
         try {
             ProcessBuilder builder = new ProcessBuilder(command);
 
@@ -153,39 +191,102 @@ public class ShellUtils {
                 map.put(entry.getKey(), entry.getValue());
             }
             process = builder.start();
-            result = process.waitFor();
-
-
-            message = new StringBuilder();
-            reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String line;
-            while ((line = reader.readLine()) != null) {
-                message.append(line);
-                message.append("\n");
+            OutputReader outputReader = new OutputReader(process.getInputStream(), listener, output);
+            outputReader.start();
+
+            result = supervisor != null ? supervisor.waitFor(process) : process.waitFor();
+            outputReader.join(READER_JOIN_TIMEOUT);
+            if (outputReader.isAlive()) {
+                //unblock the reader, the rest of the output is dropped
+                outputReader.abandon();
+                outputReader.join(READER_JOIN_TIMEOUT);
             }
         } catch (Exception e) {
             e.printStackTrace();
-            if (message != null) {
-                message.append(e.toString());
-            }
+            output.append(e.toString());
         } finally {
-            try {
-                if (reader != null) {
-                    reader.close();
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-
+            output.close();
             if (process != null) {
                 process.destroy();
             }
         }
         long timeEnd = System.currentTimeMillis();
-        ShellResult shellResult = new ShellResult(result, message == null ? "" : message.toString());
+        ShellResult shellResult = new ShellResult(result, output.getHead());
+        shellResult.setOutput(output);
         shellResult.setTime(timeEnd - timeStart);
         return shellResult;
     }
 
+    /**
+     * Drain the output stream of a process until EOF, store all lines in {@link OutputBuffer}
+     * and forward each line to {@link OutputListener}
+     */
+    private static class OutputReader extends Thread {
+        private final InputStream mInputStream;
+        @Nullable
+        private final OutputListener mListener;
+        private final OutputBuffer mOutput;
+        /**
+         * Guarded by {@link #mOutput}, nothing is appended after the output was given up
+         */
+        private boolean mAbandoned = false;
+
+        OutputReader(InputStream inputStream, @Nullable OutputListener listener, OutputBuffer output) {
+            super("OutputReader");
+            mInputStream = inputStream;
+            mListener = listener;
+            mOutput = output;
+        }
+
+        @Override
+        public void run() {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(mInputStream));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    synchronized (mOutput) {
+                        if (mAbandoned) {
+                            return;
+                        }
+                        mOutput.appendLine(line);
+                    }
+                    if (mListener != null) {
+                        mListener.onNewLine(line);
+                    }
+                }
+            } catch (IOException e) {
+                //the stream is closed when the reader is abandoned
+                if (!isAbandoned()) {
+                    e.printStackTrace();
+                }
+            } finally {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        /**
+         * Stop reading, the output may be closed afterwards
+         */
+        void abandon() {
+            synchronized (mOutput) {
+                mAbandoned = true;
+            }
+            try {
+                mInputStream.close();
+            } catch (IOException e) {
+                //already closed
+            }
+        }
+
+        private boolean isAbandoned() {
+            synchronized (mOutput) {
+                return mAbandoned;
+            }
+        }
+    }
 
 }
\ No newline at end of file
@@ -62,6 +62,15 @@ public class Preferences implements SharedPreferences.OnSharedPreferenceChangeLi
     public static final String KEY_FILE_SORT_TYPE = "show_file_sort";
     public static final String KEY_FULL_SCREEN = "fullscreen_mode";
     public static final String KEY_LAST_TAB = "last_tab";
+    public static final String KEY_COMPILE_TIMEOUT = "pref_compile_timeout";
+    public static final String KEY_COMPILE_MEMORY_LIMIT = "pref_compile_memory_limit";
+    public static final String KEY_COMPILE_TIME_REPORT = "pref_compile_time_report";
+    public static final String KEY_BUILD_PROFILE = "pref_build_profile";
+    public static final String KEY_BENCHMARK_RUNS = "pref_benchmark_runs";
+    public static final String KEY_BENCHMARK_WARMUP_RUNS = "pref_benchmark_warmup_runs";
+    public static final String KEY_BENCHMARK_INPUT = "pref_benchmark_input";
+    public static final String KEY_TEST_TIME_LIMIT = "pref_test_time_limit";
+    public static final String KEY_TEST_MEMORY_LIMIT = "pref_test_memory_limit";
 
     public static final int DEF_MIN_FONT_SIZE = 9;
     public static final int DEF_MAX_FONT_SIZE = 32;
@@ -121,6 +130,15 @@ public class Preferences implements SharedPreferences.OnSharedPreferenceChangeLi
         map.put(KEY_FILE_SORT_TYPE, 0);
         map.put(KEY_FULL_SCREEN, false);
         map.put(KEY_LAST_TAB, 0);
+        map.put(KEY_COMPILE_TIMEOUT, 120);
+        map.put(KEY_COMPILE_MEMORY_LIMIT, 1024);
+        map.put(KEY_COMPILE_TIME_REPORT, false);
+        map.put(KEY_BUILD_PROFILE, "debug");
+        map.put(KEY_BENCHMARK_RUNS, 10);
+        map.put(KEY_BENCHMARK_WARMUP_RUNS, 1);
+        map.put(KEY_BENCHMARK_INPUT, "");
+        map.put(KEY_TEST_TIME_LIMIT, 2);
+        map.put(KEY_TEST_MEMORY_LIMIT, 256);
 
         Map<String, ?> values = pm.getAll();
         for (String key : map.keySet()) {
@@ -230,6 +248,69 @@ public class Preferences implements SharedPreferences.OnSharedPreferenceChangeLi
     }
 
     //auto save is default
+    /**
+     * @return wall clock limit of one build in milliseconds, 0 for no limit
+     */
+    public long getCompileTimeout() {
+        return 1000L * (int) map.get(KEY_COMPILE_TIMEOUT);
+    }
+
+    /**
+     * @return memory limit of the compiler processes in bytes, 0 for no limit
+     */
+    public long getCompileMemoryLimit() {
+        return 1024L * 1024L * (int) map.get(KEY_COMPILE_MEMORY_LIMIT);
+    }
+
+    /**
+     * @return true if the compiler should report the time of every phase
+     */
+    public boolean isCompileTimeReport() {
+        return (boolean) map.get(KEY_COMPILE_TIME_REPORT);
+    }
+
+    /**
+     * @return id of the selected build profile, one of {@code build_profile_values}
+     */
+    public String getBuildProfile() {
+        return (String) map.get(KEY_BUILD_PROFILE);
+    }
+
+    /**
+     * @return number of measured runs of a benchmark
+     */
+    public int getBenchmarkRuns() {
+        return (int) map.get(KEY_BENCHMARK_RUNS);
+    }
+
+    /**
+     * @return number of runs before the measured runs, they fill caches and are not measured
+     */
+    public int getBenchmarkWarmupRuns() {
+        return (int) map.get(KEY_BENCHMARK_WARMUP_RUNS);
+    }
+
+    /**
+     * @return path of the file used as standard input of a benchmark, empty for no input
+     */
+    public String getBenchmarkInput() {
+        return (String) map.get(KEY_BENCHMARK_INPUT);
+    }
+
+    /**
+     * @return wall clock limit of one test case in milliseconds
+     */
+    public long getTestTimeLimit() {
+        return 1000L * (int) map.get(KEY_TEST_TIME_LIMIT);
+    }
+
+    /**
+     * @return memory limit of one test case in bytes
+     */
+    public long getTestMemoryLimit() {
+        return 1024L * 1024L * (int) map.get(KEY_TEST_MEMORY_LIMIT);
+    }
+
     public boolean isAutoSave() {
         return true;
     }
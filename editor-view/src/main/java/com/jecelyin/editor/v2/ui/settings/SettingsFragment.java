@@ -60,6 +60,12 @@ public class SettingsFragment extends PreferenceFragment implements android.pref
                 ((CheckBoxPreference) preference).setChecked((boolean) value);
             } else if ("pref_highlight_file_size_limit".equals(key)) {
                 preference.setSummary(stringValue + " KB");
+            } else if (Preferences.KEY_COMPILE_TIMEOUT.equals(key)
+                    || Preferences.KEY_TEST_TIME_LIMIT.equals(key)) {
+                preference.setSummary(stringValue + " s");
+            } else if (Preferences.KEY_COMPILE_MEMORY_LIMIT.equals(key)
+                    || Preferences.KEY_TEST_MEMORY_LIMIT.equals(key)) {
+                preference.setSummary(stringValue + " MB");
             } else {
                 // For all other preferences, set the summary to the value's
                 // simple string representation.